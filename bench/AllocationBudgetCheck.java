@@ -0,0 +1,216 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/***
+ * Checks that the ingestion path does not allocate more than its budget.
+ * The bytes allocated by the current thread are counted while the fixtures
+ * in bench/fixtures are parsed by the handlers directly and loaded through
+ * the TableLoader from a local server, and are compared against the
+ * budgets in bench/allocation-budgets.properties.
+ *
+ * Nothing is fetched from the network. The check exits with status 1 if
+ * any budget is exceeded, so that it can be run after every change to the
+ * parsing and model building.
+ *
+ * Run from the project directory with:
+ *   java AllocationBudgetCheck
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class AllocationBudgetCheck {
+
+    private static final int WARMUP = 200;
+    private static final int MEASURED = 200;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static Properties budgets;
+    private static boolean exceeded;
+
+    public static void main(String[] args) throws Exception {
+        Path fixtures = Paths.get(System.getProperty("bench.fixtures",
+                "bench/fixtures"));
+        byte[] channelXml = Files.readAllBytes(
+                fixtures.resolve("channels.xml"));
+        byte[] programXml = Files.readAllBytes(
+                fixtures.resolve("scheduledepisodes.xml"));
+
+        threads = (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+        budgets = new Properties();
+        try (Reader in = Files.newBufferedReader(Paths.get(
+                System.getProperty("bench.budgets",
+                        "bench/allocation-budgets.properties")),
+                StandardCharsets.UTF_8)) {
+            budgets.load(in);
+        }
+
+        HttpServer server = HttpServer.create(
+                new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v2/channels",
+                exchange -> serve(exchange, channelXml));
+        server.createContext("/api/v2/scheduledepisodes",
+                exchange -> serve(exchange, programXml));
+        server.start();
+
+        //Must be set before the TableLoader class is loaded.
+        System.setProperty("radioinfo.api", "http://localhost:"
+                + server.getAddress().getPort() + "/api/v2/");
+
+        try {
+            int episodes = count(programXml, "<scheduledepisode>");
+
+            check("handler.channelDocument", 1, () -> {
+                parse(channelXml, new ChannelHandler());
+            });
+            check("handler.scheduledepisode", episodes, () -> {
+                parse(programXml, new ProgramHandler());
+            });
+
+            //New caches every time, so that every file is parsed again.
+            check("loader.channelDocument", 1, () -> {
+                TableLoader loader = newLoader();
+                loader.loadChannels();
+            });
+
+            //The fixture is served for every day of the window.
+            int days = ScheduleWindow.fromProperties().getDays(
+                    System.currentTimeMillis()).size();
+            check("loader.scheduledepisode", episodes * days, () -> {
+                TableLoader loader = newLoader();
+                loader.loadPrograms(132);
+            });
+        } finally {
+            server.stop(0);
+        }
+
+        if(exceeded) {
+            System.out.println("Allocation budget exceeded");
+            System.exit(1);
+        }
+    }
+
+    /***
+     * Measures the bytes allocated per unit by an operation and compares
+     * them against the budget of the check.
+     *
+     * @param name The name of the budget.
+     * @param units The number of units handled by one operation.
+     * @param operation The operation to measure.
+     * @throws Exception If the operation fails.
+     */
+    private static void check(String name, int units, Operation operation)
+            throws Exception {
+        for(int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for(int i = 0; i < MEASURED; i++) {
+            operation.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        long perUnit = allocated / ((long) MEASURED * units);
+        String budget = budgets.getProperty(name);
+
+        String result;
+        if(budget == null) {
+            result = "no budget";
+        }
+        else if(perUnit > Long.parseLong(budget)) {
+            result = "EXCEEDS budget of " + budget;
+            exceeded = true;
+        }
+        else {
+            result = "within budget of " + budget;
+        }
+
+        System.out.printf(Locale.ROOT, "%-26s %9d bytes/unit  %s%n", name,
+                perUnit, result);
+    }
+
+    /***
+     * Creates a TableLoader with empty caches.
+     *
+     * @return The loader.
+     * @throws IOException If the url of the api is not valid.
+     */
+    private static TableLoader newLoader() throws IOException {
+        return new TableLoader(false, new ResponseCache(),
+                ScheduleWindow.fromProperties(),
+                SegmentCache.fromProperties());
+    }
+
+    /***
+     * Parses xml the way the TableLoader does.
+     *
+     * @param xml The xml file.
+     * @param handler The handler to parse with.
+     * @throws Exception If the xml could not be parsed.
+     */
+    private static void parse(byte[] xml, DefaultHandler handler)
+            throws Exception {
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                new InputSource(new ByteArrayInputStream(xml)), handler);
+    }
+
+    /***
+     * Counts the occurrences of a string in an xml file.
+     *
+     * @param xml The xml file.
+     * @param text The string to count.
+     * @return The number of occurrences.
+     */
+    private static int count(byte[] xml, String text) {
+        String content = new String(xml, StandardCharsets.UTF_8);
+        int found = 0;
+
+        for(int i = content.indexOf(text); i != -1;
+                i = content.indexOf(text, i + 1)) {
+            found++;
+        }
+
+        return found;
+    }
+
+    /***
+     * Sends a fixture, whatever the parameters of the request.
+     *
+     * @param exchange The http request and response.
+     * @param body The fixture.
+     * @throws IOException If the response could not be sent.
+     */
+    private static void serve(HttpExchange exchange, byte[] body)
+            throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /***
+     * An operation to be measured.
+     */
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
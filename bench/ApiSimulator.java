@@ -0,0 +1,501 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * In-process stand-in for the SverigesRadio api. Serves generated channels
+ * and scheduledepisodes as xml, or json with format=json, for any number of
+ * channels and episodes per day. Responses can be delayed, limited in
+ * bandwidth and made to fail, so that loading can be measured without
+ * the real api.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ApiSimulator {
+
+    private static final long DAY = 24 * 3600 * 1000L;
+
+    private int channels;
+    private int episodesPerDay;
+    private long latencyMillis;
+    private long bytesPerSecond;
+    private double errorRate;
+    private volatile long revision;
+
+    private HttpServer server;
+    private ExecutorService pool;
+
+    private AtomicLong requests;
+    private AtomicLong errors;
+    private AtomicLong bytes;
+
+    /***
+     * Constructor, the simulator is not started until start is called.
+     *
+     * @param channels The number of channels.
+     * @param episodesPerDay The number of episodes per channel and day.
+     */
+    public ApiSimulator(int channels, int episodesPerDay) {
+        this.channels = channels;
+        this.episodesPerDay = episodesPerDay;
+
+        requests = new AtomicLong();
+        errors = new AtomicLong();
+        bytes = new AtomicLong();
+    }
+
+    /***
+     * Sets the delay before every response.
+     *
+     * @param latencyMillis The delay in milliseconds.
+     */
+    public void setLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /***
+     * Limits the speed each response is sent with.
+     *
+     * @param bytesPerSecond The speed, or 0 for no limit.
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /***
+     * Sets the share of requests that fail with status 500.
+     *
+     * @param errorRate The share between 0 and 1.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /***
+     * Sets the revision of the schedules. The descriptions of the programs
+     * change with the revision, so that every response differs from the
+     * ones of earlier revisions and has to be parsed again.
+     *
+     * @param revision The revision, 0 for the original schedules.
+     */
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    /***
+     * Starts the simulator on a free port.
+     *
+     * @throws IOException If the server could not be started.
+     */
+    public void start() throws IOException {
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v2/channels", this::serveChannels);
+        server.createContext("/api/v2/scheduledepisodes",
+                this::servePrograms);
+        server.createContext("/api/v2/episodes/get", this::serveEpisode);
+
+        pool = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ApiSimulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(pool);
+        server.start();
+    }
+
+    /***
+     * Stops the simulator.
+     */
+    public void stop() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    /***
+     * Get the url of the simulated api.
+     *
+     * @return The url, ending with a slash.
+     */
+    public String getApiUrl() {
+        return "http://localhost:" + server.getAddress().getPort()
+                + "/api/v2/";
+    }
+
+    /***
+     * Get the number of requests served.
+     *
+     * @return The number of requests.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /***
+     * Get the number of requests that were made to fail.
+     *
+     * @return The number of failed requests.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /***
+     * Get the number of bytes sent in response bodies.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /***
+     * Serves the generated channels.
+     *
+     * @param exchange The http request and response.
+     * @throws IOException If the response could not be sent.
+     */
+    private void serveChannels(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+
+        ArrayList<Channel> list = new ArrayList<>();
+        for(int i = 0; i < channels; i++) {
+            Channel c = new Channel();
+            c.setId(channelId(i));
+            c.setName("Kanal " + i);
+
+            list.add(c);
+        }
+
+        StringWriter out = new StringWriter();
+        if(isJson(query)) {
+            out.write("{\"channels\":[");
+            List<Channel> page = page(list, query);
+            for(int i = 0; i < page.size(); i++) {
+                out.write((i > 0 ? "," : "") + "{\"id\":"
+                        + page.get(i).getId() + ",\"name\":\""
+                        + page.get(i).getName() + "\"}");
+            }
+            out.write("]," + paginationJson(list.size(), query) + "}");
+        }
+        else {
+            ScheduleXml.writeChannels(out, page(list, query));
+            insertPagination(out, list.size(), query);
+        }
+
+        respond(exchange, out.toString());
+    }
+
+    /***
+     * Serves the generated programs of a channel between the days given
+     * by fromdate and todate.
+     *
+     * @param exchange The http request and response.
+     * @throws IOException If the response could not be sent.
+     */
+    private void servePrograms(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+
+        int id;
+        long from;
+        long to;
+        try {
+            id = Integer.parseInt(query.get("channelid"));
+            from = parseDay(query.get("fromdate"));
+            to = parseDay(query.get("todate"));
+        } catch (NumberFormatException | ParseException
+                | NullPointerException e) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+
+        if(id < channelId(0) || id >= channelId(channels)) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        ArrayList<Program> list = new ArrayList<>();
+        long length = DAY / episodesPerDay;
+        for(long day = from; day <= to; day += DAY) {
+            for(int i = 0; i < episodesPerDay; i++) {
+                list.add(program(id, day + i * length));
+            }
+        }
+
+        StringWriter out = new StringWriter();
+        if(isJson(query)) {
+            out.write("{\"schedule\":[");
+            List<Program> page = page(list, query);
+            for(int i = 0; i < page.size(); i++) {
+                Program p = page.get(i);
+                out.write((i > 0 ? "," : "") + "{\"episodeid\":"
+                        + p.getEpisodeId() + ",\"title\":\"" + p.getName()
+                        + "\",\"description\":\"" + p.getDescription()
+                        + "\",\"starttimeutc\":\""
+                        + ScheduleXml.formatUtc(p.getStartMillis())
+                        + "\",\"endtimeutc\":\""
+                        + ScheduleXml.formatUtc(p.getEndMillis())
+                        + "\",\"imageurl\":\"" + p.getImage() + "\"}");
+            }
+            out.write("]," + paginationJson(list.size(), query) + "}");
+        }
+        else {
+            ScheduleXml.writePrograms(out, page(list, query));
+            insertPagination(out, list.size(), query);
+        }
+
+        respond(exchange, out.toString());
+    }
+
+    /***
+     * Serves a generated episode by its id. The id is the start of the
+     * episode in seconds plus the id of the channel, so both can be told
+     * from it as long as the channel ids are less than the length of an
+     * episode in seconds.
+     *
+     * @param exchange The http request and response.
+     * @throws IOException If the response could not be sent.
+     */
+    private void serveEpisode(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+
+        long episodeId;
+        try {
+            episodeId = Long.parseLong(query.get("id"));
+        } catch (NumberFormatException e) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+
+        long length = DAY / episodesPerDay;
+        int id = (int) (episodeId % (length / 1000));
+        long start = (episodeId - id) * 1000;
+
+        if(id < channelId(0) || id >= channelId(channels)
+                || start % length != 0) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        StringWriter out = new StringWriter();
+        ScheduleXml.writeEpisode(out, program(id, start));
+
+        respond(exchange, out.toString());
+    }
+
+    /***
+     * Generates the program of a channel that starts at a time.
+     *
+     * @param id The id of the channel.
+     * @param start The start of the program, a multiple of its length.
+     * @return The program.
+     */
+    private Program program(int id, long start) {
+        long length = DAY / episodesPerDay;
+        long i = Math.floorMod(start, DAY) / length;
+
+        Program p = new Program();
+        p.setEpisodeId(start / 1000 + id);
+        p.setName("Program " + (i % 40) + " på kanal " + id);
+        p.setDescription("Beskrivning av program " + (i % 40)
+                + " med nyheter, musik & samtal."
+                + (revision == 0 ? "" : " Version " + revision));
+        p.setImage("https://static-cdn.sr.se/images/" + (i % 40) + ".jpg");
+        p.setStartMillis(start);
+        p.setEndMillis(start + length);
+
+        return p;
+    }
+
+    /***
+     * Sends a response after the configured latency, at the configured
+     * bandwidth, or fails it at the configured error rate.
+     *
+     * @param exchange The http request and response.
+     * @param body The body to send.
+     * @throws IOException If the response could not be sent.
+     */
+    private void respond(HttpExchange exchange, String body)
+            throws IOException {
+        requests.incrementAndGet();
+
+        try {
+            if(latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+
+            if(errorRate > 0
+                    && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+
+            byte[] data = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    "application/xml; charset=utf-8");
+            exchange.sendResponseHeaders(200, data.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                int chunk = bytesPerSecond > 0
+                        ? (int) Math.max(1, bytesPerSecond / 100)
+                        : data.length;
+
+                for(int i = 0; i < data.length; i += chunk) {
+                    int n = Math.min(chunk, data.length - i);
+                    out.write(data, i, n);
+
+                    if(bytesPerSecond > 0) {
+                        out.flush();
+                        Thread.sleep(n * 1000L / bytesPerSecond);
+                    }
+                }
+            }
+
+            bytes.addAndGet(data.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        }
+    }
+
+    /***
+     * Gets the entries of the requested page, or all entries if the
+     * request is not paginated.
+     *
+     * @param entries All entries.
+     * @param query The request parameters.
+     * @param <T> The type of the entries.
+     * @return The entries of the page.
+     */
+    private static <T> List<T> page(List<T> entries,
+                                    Map<String, String> query) {
+        if(!query.containsKey("page")) {
+            return entries;
+        }
+
+        int page = Integer.parseInt(query.get("page"));
+        int size = Integer.parseInt(query.getOrDefault("size", "10"));
+        int from = Math.min(entries.size(), (page - 1) * size);
+
+        return entries.subList(from, Math.min(entries.size(), from + size));
+    }
+
+    /***
+     * Adds the pagination element of a paginated request after the root
+     * element of the written xml.
+     *
+     * @param out The written xml.
+     * @param total The total number of entries.
+     * @param query The request parameters.
+     */
+    private static void insertPagination(StringWriter out, int total,
+                                         Map<String, String> query) {
+        if(!query.containsKey("page")) {
+            return;
+        }
+
+        int size = Integer.parseInt(query.getOrDefault("size", "10"));
+        StringBuffer xml = out.getBuffer();
+        int at = xml.indexOf("<sr>") + "<sr>".length();
+
+        xml.insert(at, "\n  <pagination><page>" + query.get("page")
+                + "</page><size>" + size + "</size><totalhits>" + total
+                + "</totalhits><totalpages>" + totalPages(total, size)
+                + "</totalpages></pagination>");
+    }
+
+    /***
+     * Creates the pagination object of a json response.
+     *
+     * @param total The total number of entries.
+     * @param query The request parameters.
+     * @return The pagination object as a json member.
+     */
+    private static String paginationJson(int total,
+                                         Map<String, String> query) {
+        int size = Integer.parseInt(query.getOrDefault("size",
+                String.valueOf(Math.max(1, total))));
+
+        return "\"pagination\":{\"page\":" + query.getOrDefault("page", "1")
+                + ",\"size\":" + size + ",\"totalhits\":" + total
+                + ",\"totalpages\":" + totalPages(total, size) + "}";
+    }
+
+    private static int totalPages(int total, int size) {
+        return Math.max(1, (total + size - 1) / size);
+    }
+
+    private static boolean isJson(Map<String, String> query) {
+        return "json".equals(query.get("format"));
+    }
+
+    private static int channelId(int i) {
+        return 100 + i;
+    }
+
+    /***
+     * Reads a utc day.
+     *
+     * @param day The day as yyyy-MM-dd.
+     * @return The start of the day in milliseconds since the epoch.
+     * @throws ParseException If the day could not be read.
+     */
+    private static long parseDay(String day) throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        return format.parse(day).getTime();
+    }
+
+    /***
+     * Reads the parameters of the request.
+     *
+     * @param exchange The http request.
+     * @return The parameters by name.
+     */
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        HashMap<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if(query == null) {
+            return parameters;
+        }
+
+        for(String parameter : query.split("&")) {
+            int split = parameter.indexOf('=');
+
+            if(split > 0) {
+                parameters.put(parameter.substring(0, split),
+                        parameter.substring(split + 1));
+            }
+        }
+
+        return parameters;
+    }
+}
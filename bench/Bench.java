@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/***
+ * Small benchmark runner in the style of JMH for the benchmarks in bench.
+ * Every benchmark is run in warmup iterations and then in measured
+ * iterations of a fixed time, and the average time per operation is
+ * compared against a file of baselines.
+ *
+ * The results of the operations are summed into a sink that is printed
+ * if it ever reaches an impossible value, so that the work can not be
+ * removed by the compiler.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class Bench {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 200_000_000L;
+
+    private Path baselineFile;
+    private Properties baselines;
+    private TreeMap<String, Double> results;
+    private double tolerance;
+    private long sink;
+
+    /***
+     * Constructor, reads the baselines if the file exists.
+     *
+     * @param baselineFile The file of baselines in nanoseconds per
+     *                     operation.
+     * @throws IOException If the file exists but could not be read.
+     */
+    public Bench(Path baselineFile) throws IOException {
+        this.baselineFile = baselineFile;
+
+        baselines = new Properties();
+        results = new TreeMap<>();
+        tolerance = Double.parseDouble(
+                System.getProperty("bench.tolerance", "0.25"));
+
+        if(Files.exists(baselineFile)) {
+            try (Reader in = Files.newBufferedReader(baselineFile,
+                    StandardCharsets.UTF_8)) {
+                baselines.load(in);
+            }
+        }
+    }
+
+    /***
+     * Measures an operation and prints the result next to its baseline.
+     *
+     * @param name The name of the benchmark.
+     * @param operation The operation to measure.
+     * @return The average time of one operation in nanoseconds.
+     */
+    public double run(String name, Operation operation) {
+        for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(operation);
+        }
+
+        double[] times = new double[ITERATIONS];
+        double sum = 0;
+        for(int i = 0; i < ITERATIONS; i++) {
+            times[i] = iteration(operation);
+            sum += times[i];
+        }
+
+        double mean = sum / ITERATIONS;
+        double variance = 0;
+        for(double time : times) {
+            variance += (time - mean) * (time - mean);
+        }
+        double error = Math.sqrt(variance / (ITERATIONS - 1));
+
+        results.put(name, mean);
+
+        String baseline = baselines.getProperty(name);
+        String change = baseline == null ? "no baseline"
+                : String.format(Locale.ROOT, "%+6.1f%% vs %s",
+                        100 * (mean / Double.parseDouble(baseline) - 1),
+                        format(Double.parseDouble(baseline)));
+
+        System.out.printf(Locale.ROOT, "%-28s %12s +- %-10s %s%n", name,
+                format(mean), format(error), change);
+
+        return mean;
+    }
+
+    /***
+     * Runs an operation for one iteration.
+     *
+     * @param operation The operation to measure.
+     * @return The average time of one operation in nanoseconds.
+     */
+    private double iteration(Operation operation) {
+        long calls = 0;
+        long start = System.nanoTime();
+        long time;
+
+        do {
+            for(int i = 0; i < 16; i++) {
+                try {
+                    sink += operation.run();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            calls += 16;
+            time = System.nanoTime() - start;
+        } while(time < ITERATION_NANOS);
+
+        if(sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+
+        return (double) time / calls;
+    }
+
+    /***
+     * Gets the benchmarks that are slower than their baseline by more
+     * than the tolerance, set with -Dbench.tolerance (0.25 by default).
+     *
+     * @return The names of the slower benchmarks.
+     */
+    public List<String> getRegressions() {
+        ArrayList<String> regressions = new ArrayList<>();
+
+        results.forEach((name, mean) -> {
+            String baseline = baselines.getProperty(name);
+
+            if(baseline != null
+                    && mean > Double.parseDouble(baseline) * (1 + tolerance)) {
+                regressions.add(name);
+            }
+        });
+
+        return regressions;
+    }
+
+    /***
+     * Writes the results of this run as the new baselines.
+     *
+     * @throws IOException If the file could not be written.
+     */
+    public void saveBaselines() throws IOException {
+        try (Writer out = Files.newBufferedWriter(baselineFile,
+                StandardCharsets.UTF_8)) {
+            out.write("#Nanoseconds per operation, written by "
+                    + "HotPathBenchmark --save\n");
+
+            for(String name : results.keySet()) {
+                out.write(name + "=" + String.format(Locale.ROOT, "%.1f",
+                        results.get(name)) + "\n");
+            }
+        }
+    }
+
+    /***
+     * Formats a time with a unit that fits it.
+     *
+     * @param nanos The time in nanoseconds.
+     * @return The formatted time.
+     */
+    private static String format(double nanos) {
+        if(nanos >= 1e6) {
+            return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+        }
+        else if(nanos >= 1e3) {
+            return String.format(Locale.ROOT, "%.2f us", nanos / 1e3);
+        }
+
+        return String.format(Locale.ROOT, "%.1f ns", nanos);
+    }
+
+    /***
+     * An operation to be measured. The returned value is kept so that the
+     * work is not optimized away.
+     */
+    public interface Operation {
+        long run() throws Exception;
+    }
+}
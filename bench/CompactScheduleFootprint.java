@@ -0,0 +1,145 @@
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/***
+ * Measures the heap retained by a week of schedules for all channels when
+ * stored as lists of programs and when stored as compact schedules.
+ *
+ * Run with: java -Xmx1g CompactScheduleFootprint [channels] [days]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class CompactScheduleFootprint {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    //Programs per day with an average length of 45 minutes.
+    private static final int PROGRAMS_PER_DAY = 32;
+
+    public static void main(String[] args) {
+        int channelCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+
+        long empty = usedHeap();
+        List<List<Program>> lists = createSchedules(channelCount, days);
+        long listHeap = usedHeap() - empty;
+        lists.clear();
+
+        empty = usedHeap();
+        StringPool pool = new StringPool();
+        List<List<Program>> compact = compact(
+                createSchedules(channelCount, days), pool);
+        long compactHeap = usedHeap() - empty;
+
+        int programs = channelCount * days * PROGRAMS_PER_DAY;
+        System.out.printf("%d channels, %d days, %d programs%n",
+                channelCount, days, programs);
+        System.out.printf("Program lists:     %8d KiB (%d bytes/program)%n",
+                listHeap / 1024, listHeap / programs);
+        System.out.printf("Compact schedules: %8d KiB (%d bytes/program)%n",
+                compactHeap / 1024, compactHeap / programs);
+        System.out.printf("Reduction: %.1f%%, %d pooled strings%n",
+                100.0 * (listHeap - compactHeap) / listHeap, pool.size());
+
+        //Keep the schedules reachable until they have been measured.
+        if(compact.size() == -1) {
+            System.out.println(compact);
+        }
+    }
+
+    /***
+     * Stores the given schedules compactly.
+     *
+     * @param lists The schedules as lists of programs.
+     * @param pool The string pool to share the strings through.
+     * @return The compact schedules.
+     */
+    private static List<List<Program>> compact(List<List<Program>> lists,
+                                               StringPool pool) {
+        List<List<Program>> compact = new ArrayList<>();
+        for(List<Program> list : lists) {
+            compact.add(new CompactSchedule(list, pool));
+        }
+
+        return compact;
+    }
+
+    /***
+     * Creates schedules the way the ProgramHandler does, with new string
+     * instances for every program. Names repeat every day and are shared
+     * between groups of simulcasting channels.
+     *
+     * @param channelCount The number of channels.
+     * @param days The number of days.
+     * @return The schedule of every channel.
+     */
+    private static List<List<Program>> createSchedules(int channelCount,
+                                                       int days) {
+        SimpleDateFormat format =
+                new SimpleDateFormat("yyyy-MM-dd   HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("Europe/Stockholm"));
+
+        ArrayList<List<Program>> schedules = new ArrayList<>();
+        for(int c = 0; c < channelCount; c++) {
+            //Local channels share most of their programs.
+            int group = c < 4 ? c : 4 + c % 5;
+
+            ArrayList<Program> programs = new ArrayList<>();
+            long time = START;
+            for(int d = 0; d < days; d++) {
+                for(int i = 0; i < PROGRAMS_PER_DAY; i++) {
+                    long end = time + 45 * MINUTE;
+                    int show = group * 100 + i;
+
+                    Program p = new Program();
+                    p.setName(new String("Program " + show));
+                    p.setDescription(new String("Beskrivning av program "
+                            + show + ", som sänds varje dag med nyheter, "
+                            + "musik och samtal om veckans händelser."));
+                    p.setImage(new String("https://static-cdn.sr.se/images/"
+                            + show + "/program.jpg"));
+                    p.setStartMillis(time);
+                    p.setEndMillis(end);
+                    p.setStartTime(format.format(new Date(time)));
+                    p.setEndTime(format.format(new Date(end)));
+
+                    programs.add(p);
+                    time = end;
+                }
+            }
+
+            schedules.add(programs);
+        }
+
+        return schedules;
+    }
+
+    /***
+     * Gets the used heap after garbage collection.
+     *
+     * @return The used heap in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        for(int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            used = Math.min(used,
+                    runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Load test of the ScheduleDaemon. The daemon serves generated schedules
+ * around the current time while many client threads request schedules
+ * the same way the TableLoader does. Finally a TableLoader is pointed at
+ * the daemon to check that the served schedules can be loaded.
+ *
+ * Run with: java DaemonLoadTest [clients] [seconds] [channels]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class DaemonLoadTest {
+
+    private static final long MINUTE = 60_000L;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int channelCount = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        ScheduleDaemon daemon = new ScheduleDaemon(0);
+        daemon.start(false);
+
+        List<Channel> channels = createChannels(channelCount);
+        daemon.publish(channels);
+
+        String api = "http://localhost:" + daemon.getPort() + "/api/v2/";
+        System.setProperty("radioinfo.api", api);
+
+        String[] days = ScheduleWindow.fromProperties()
+                .getDays(System.currentTimeMillis()).toArray(new String[0]);
+
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong requests = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[clients][];
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for(int i = 0; i < clients; i++) {
+            int client = i;
+            new Thread(() -> {
+                long[] own = new long[1 << 16];
+                int count = 0;
+                int n = client;
+
+                while(System.nanoTime() < end) {
+                    Channel c = channels.get(n++ % channels.size());
+                    String day = days[n % days.length];
+                    String url = api + "scheduledepisodes?pagination=false"
+                            + "&channelid=" + c.getId() + "&fromdate=" + day
+                            + "&todate=" + day;
+
+                    long start = System.nanoTime();
+                    try {
+                        bytes.addAndGet(get(url));
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+
+                    if(count < own.length) {
+                        own[count++] = System.nanoTime() - start;
+                    }
+                    requests.incrementAndGet();
+                }
+
+                latencies[client] = Arrays.copyOf(own, count);
+                done.countDown();
+            }).start();
+        }
+
+        done.await();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream)
+                .sorted().toArray();
+
+        System.out.printf("%d clients, %d channels, %d s%n", clients,
+                channelCount, seconds);
+        System.out.printf("Requests: %d (%.0f/s), errors: %d, %.1f MiB%n",
+                requests.get(), requests.get() / (double) seconds,
+                errors.get(), bytes.get() / 1048576.0);
+        System.out.printf("Latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                percentile(all, 0.50), percentile(all, 0.99),
+                percentile(all, 1.0));
+
+        //Load all schedules through the daemon like a desktop client.
+        TableLoader loader = new TableLoader();
+        long start = System.nanoTime();
+        loader.loadChannels();
+        int programs = 0;
+        for(Channel c : loader.getChannels()) {
+            loader.loadPrograms(c.getId());
+            programs += c.getPrograms().size();
+        }
+        System.out.printf("TableLoader refresh: %d channels, %d programs "
+                + "in %.1f ms%n", loader.getChannels().size(), programs,
+                (System.nanoTime() - start) / 1e6);
+
+        daemon.stop();
+    }
+
+    /***
+     * Reads the whole body of the given url.
+     *
+     * @param url The url to read.
+     * @return The number of bytes read.
+     * @throws IOException If the request fails.
+     */
+    private static long get(String url) throws IOException {
+        HttpURLConnection connection =
+                (HttpURLConnection) new URL(url).openConnection();
+
+        try (InputStream in = connection.getInputStream()) {
+            return in.readAllBytes().length;
+        }
+    }
+
+    /***
+     * Gets a percentile of sorted latencies.
+     *
+     * @param sorted The sorted latencies in nanoseconds.
+     * @param p The percentile between 0 and 1.
+     * @return The latency in milliseconds.
+     */
+    private static double percentile(long[] sorted, double p) {
+        if(sorted.length == 0) {
+            return 0;
+        }
+
+        int i = (int) Math.min(sorted.length - 1, p * sorted.length);
+
+        return sorted[i] / 1e6;
+    }
+
+    /***
+     * Creates channels with programs of 30 minutes from two days before
+     * to two days after the current time.
+     *
+     * @param channelCount The number of channels.
+     * @return The channels.
+     */
+    static List<Channel> createChannels(int channelCount) {
+        long first = (System.currentTimeMillis() / (30 * MINUTE) - 96)
+                * 30 * MINUTE;
+
+        ArrayList<Channel> channels = new ArrayList<>();
+        for(int i = 0; i < channelCount; i++) {
+            Channel channel = new Channel();
+            channel.setId(100 + i);
+            channel.setName("Kanal " + i);
+
+            ArrayList<Program> programs = new ArrayList<>();
+            for(int j = 0; j < 192; j++) {
+                Program p = new Program();
+                p.setEpisodeId(i * 1000 + j);
+                p.setName("Program " + j + " & gäster");
+                p.setDescription("Beskrivning av program " + j);
+                p.setStartMillis(first + j * 30 * MINUTE);
+                p.setEndMillis(first + (j + 1) * 30 * MINUTE);
+
+                programs.add(p);
+            }
+
+            channel.setPrograms(programs);
+            channels.add(channel);
+        }
+
+        return channels;
+    }
+}
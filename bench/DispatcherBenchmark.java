@@ -0,0 +1,131 @@
+import javax.swing.*;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Sends a storm of channel updates from background threads to the EDT,
+ * once with one invokeLater per update and once through an EdtDispatcher,
+ * and compares how many updates the EDT had to apply, how long it was
+ * busy, the longest time an event such as a paint had to wait and how
+ * long it took the EDT to catch up after the storm. Each update spins for
+ * a while to stand in for updating the table of programs.
+ *
+ * Run with: java -Djava.awt.headless=true DispatcherBenchmark [threads]
+ *           [channels] [update micros]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class DispatcherBenchmark {
+
+    private static final long STORM_MILLIS = 3000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int channels = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long cost = (args.length > 2 ? Integer.parseInt(args[2]) : 20)
+                * 1000L;
+
+        System.out.printf("%d threads, %d channels, %d us per update%n",
+                threads, channels, cost / 1000);
+        System.out.println("mode         posted   applied   busy ms  "
+                + "stall ms  catch-up ms");
+
+        //The first runs warm up the EDT, the JIT and the flight recorder.
+        run("warmup", threads, channels, cost, false, true);
+        run("warmup", threads, channels, cost, true, true);
+        run("invokeLater", threads, channels, cost, false, false);
+        run("dispatcher", threads, channels, cost, true, false);
+
+        System.exit(0);
+    }
+
+    /***
+     * Runs one storm and prints its results.
+     *
+     * @param name The name of the run.
+     * @param threads The number of threads sending updates.
+     * @param channels The number of channels updated.
+     * @param cost The time in nanoseconds each update takes on the EDT.
+     * @param coalesce True to send through a dispatcher.
+     * @param quiet True to not print the results.
+     * @throws Exception If the EDT is interrupted.
+     */
+    private static void run(String name, int threads, int channels,
+                            long cost, boolean coalesce, boolean quiet)
+            throws Exception {
+        EdtDispatcher dispatcher = EdtDispatcher.fromProperties();
+        AtomicLong posted = new AtomicLong();
+        AtomicLong applied = new AtomicLong();
+        AtomicLong busy = new AtomicLong();
+        long end = System.nanoTime() + STORM_MILLIS * 1000000L;
+
+        Thread[] senders = new Thread[threads];
+        for(int t = 0; t < threads; t++) {
+            int first = t;
+            senders[t] = new Thread(() -> {
+                int channel = first;
+                while(System.nanoTime() < end) {
+                    Runnable update = () -> {
+                        long start = System.nanoTime();
+                        while(System.nanoTime() - start < cost) {
+                            Thread.onSpinWait();
+                        }
+                        applied.incrementAndGet();
+                        busy.addAndGet(System.nanoTime() - start);
+                    };
+
+                    if(coalesce) {
+                        dispatcher.post(channel, update);
+                    }
+                    else {
+                        SwingUtilities.invokeLater(update);
+                    }
+                    posted.incrementAndGet();
+                    channel = (channel + threads) % channels;
+
+                    //Every channel is updated once per 10 ms.
+                    if(channel < threads) {
+                        try {
+                            Thread.sleep(10);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+
+        for(Thread sender : senders) {
+            sender.start();
+        }
+
+        //Empty tasks are sent to the EDT during the storm to find the
+        //longest time a paint would have waited.
+        long stall = 0;
+        while(System.nanoTime() < end) {
+            long sent = System.nanoTime();
+            SwingUtilities.invokeAndWait(() -> { });
+            stall = Math.max(stall, System.nanoTime() - sent);
+            Thread.sleep(5);
+        }
+
+        for(Thread sender : senders) {
+            sender.join();
+        }
+
+        //Done when no updates are left.
+        long stopped = System.nanoTime();
+        do {
+            SwingUtilities.invokeAndWait(() -> { });
+        } while(dispatcher.getPendingCount() > 0);
+        SwingUtilities.invokeAndWait(() -> { });
+        long catchUp = System.nanoTime() - stopped;
+
+        if(!quiet) {
+            System.out.printf(Locale.ROOT, "%-11s %8d %9d %9.1f %9.1f "
+                            + "%12.1f%n", name, posted.get(), applied.get(),
+                    busy.get() / 1e6, stall / 1e6, catchUp / 1e6);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/***
+ * Measures the throughput of exporting one week of all channels to
+ * iCalendar, CSV and JSON with ScheduleExport. The week is exported both
+ * from channels with their programs loaded and from a ScheduleArchive,
+ * where only one channel is read at a time. The output is only counted,
+ * so the time is that of the export and not of the disk.
+ *
+ * Run with: java -Xmx32m ExportBenchmark [channels] [days]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ExportBenchmark {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long HOUR = 3600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    //Programs are 30 minutes long.
+    private static final long LENGTH = HOUR / 2;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+
+        ArrayList<Channel> channels = new ArrayList<>();
+        for(int c = 1; c <= count; c++) {
+            Channel channel = new Channel();
+            channel.setId(c);
+            channel.setName("P" + c + ", \"Kanal\"; Sverige");
+            channel.setPrograms(programs(c, days));
+            channels.add(channel);
+        }
+
+        Path directory = Files.createTempDirectory("radioinfo-export");
+
+        try {
+            ScheduleArchive archive = new ScheduleArchive(directory);
+            for(Channel channel : channels) {
+                archive.append(channel.getId(), channel.getPrograms());
+            }
+
+            System.out.printf("%d channels, %d days, %d programs%n", count,
+                    days, count * days * (int) (DAY / LENGTH));
+            System.out.println("format  source     ms  programs/s    MB/s");
+
+            for(ScheduleExport.Format format
+                    : ScheduleExport.Format.values()) {
+                measure(format, "loaded", channels,
+                        ScheduleExport.loaded(), days);
+                measure(format, "archive", channels,
+                        ScheduleExport.archived(archive), days);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for(Path file : files.sorted(Comparator.reverseOrder())
+                        .toArray(Path[]::new)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /***
+     * Exports the week until the timing is stable and prints the average
+     * time and throughput.
+     *
+     * @param format The format to export to.
+     * @param name The name of the source.
+     * @param channels The channels to export.
+     * @param source The source of the programs.
+     * @param days The number of days to export.
+     * @throws IOException If the export fails.
+     */
+    private static void measure(ScheduleExport.Format format, String name,
+                                List<Channel> channels,
+                                ScheduleExport.ProgramSource source,
+                                int days) throws IOException {
+        CountingWriter out = new CountingWriter();
+        long programs = 0;
+
+        for(int i = 0; i < 5; i++) {
+            programs = ScheduleExport.export(out, format, channels, START,
+                    START + days * DAY, source);
+        }
+
+        int runs = 10;
+        out.chars = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < runs; i++) {
+            ScheduleExport.export(out, format, channels, START,
+                    START + days * DAY, source);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9 / runs;
+
+        System.out.printf(Locale.ROOT, "%-6s  %-7s %6.1f %11.0f %7.1f%n",
+                format.getExtension(), name, seconds * 1000,
+                programs / seconds, out.chars / runs / seconds / 1e6);
+    }
+
+    /***
+     * Creates the programs of a channel, every 30 minutes for a number of
+     * days.
+     *
+     * @param channel The id of the channel.
+     * @param days The number of days.
+     * @return The programs.
+     */
+    private static List<Program> programs(int channel, int days) {
+        ArrayList<Program> programs = new ArrayList<>();
+
+        for(long start = START; start < START + days * DAY;
+                start += LENGTH) {
+            int show = (int) (start / LENGTH % 40);
+
+            Program p = new Program();
+            p.setStartMillis(start);
+            p.setEndMillis(start + LENGTH);
+            p.setEpisodeId(start / 1000 + channel);
+            p.setName("Program " + show);
+            p.setDescription("Beskrivning av program " + show
+                    + " med nyheter, musik och samtal. Det här är en "
+                    + "längre text som får raderna i iCalendar att vikas.");
+            p.setImage("https://static-cdn.sr.se/images/" + show + ".jpg");
+
+            programs.add(p);
+        }
+
+        return programs;
+    }
+
+    /***
+     * Writer that only counts what is written to it.
+     */
+    private static class CountingWriter extends Writer {
+        private long chars;
+
+        @Override
+        public void write(int c) {
+            chars++;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            chars += len;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            chars += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
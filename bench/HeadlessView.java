@@ -0,0 +1,217 @@
+import javax.swing.*;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EventListener;
+import java.util.List;
+
+/***
+ * View without windows used to run the TableController headless. It only
+ * keeps what it is told to show, so that it can be checked afterwards.
+ * The programs are also shown in a table that is never displayed, so that
+ * the table model and its listeners are used as in the GUI.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class HeadlessView implements RadioInfoView {
+
+    private ArrayList<Channel> channels = new ArrayList<>();
+    private List<Program> programs = new ArrayList<>();
+    private ArrayList<String> errors = new ArrayList<>();
+    private ArrayList<String[]> watchlistMatches = new ArrayList<>();
+    private ArrayList<EventListener> listeners = new ArrayList<>();
+    private ProgramTableModel model = new ProgramTableModel();
+    private JTable table = new JTable(model);
+
+    /***
+     * Get the channels in the list of channels.
+     *
+     * @return The channels.
+     */
+    public List<Channel> getChannels() {
+        return channels;
+    }
+
+    /***
+     * Get the programs in the table of programs.
+     *
+     * @return The programs.
+     */
+    public List<Program> getPrograms() {
+        return programs;
+    }
+
+    /***
+     * Get the error messages that would have been displayed.
+     *
+     * @return The error messages.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /***
+     * Get the matches of the watchlist that would have been shown.
+     *
+     * @return The rows of matches.
+     */
+    public List<String[]> getWatchlistMatches() {
+        return watchlistMatches;
+    }
+
+    /***
+     * Counts the listeners added to the view and to its table.
+     *
+     * @return The number of listeners.
+     */
+    public int getListenerCount() {
+        return listeners.size() + table.getMouseListeners().length
+                + model.getTableModelListeners().length;
+    }
+
+    @Override
+    public void addChannelToList(Channel channel) {
+        channels.add(channel);
+    }
+
+    @Override
+    public void clearList() {
+        channels.clear();
+    }
+
+    @Override
+    public void setChannels(List<Channel> channels) {
+        this.channels.clear();
+        this.channels.addAll(channels);
+    }
+
+    @Override
+    public Channel getSelectedChannel() {
+        return channels.isEmpty() ? null : channels.get(0);
+    }
+
+    @Override
+    public void setPrograms(List<Program> programs) {
+        this.programs = programs;
+        model.setPrograms(programs);
+    }
+
+    @Override
+    public void clearTable() {
+        setPrograms(new ArrayList<>());
+    }
+
+    @Override
+    public Program getSelectedProgram() {
+        return programs.isEmpty() ? null : programs.get(0);
+    }
+
+    @Override
+    public void setTitle(String channel) {
+    }
+
+    @Override
+    public void closeChannelSelect() {
+    }
+
+    @Override
+    public void setProgramInfo(String info, String startTime,
+                               String endTime) {
+    }
+
+    @Override
+    public void setProgramName(String name) {
+    }
+
+    @Override
+    public void setImage(BufferedImage image) {
+    }
+
+    @Override
+    public void openSelectedProgram(String channel) {
+    }
+
+    @Override
+    public void setOverview(List<String[]> rows) {
+    }
+
+    @Override
+    public void updateOverviewRow(int row, String[] data) {
+    }
+
+    @Override
+    public void openOverview() {
+    }
+
+    @Override
+    public String getSearchText() {
+        return "";
+    }
+
+    @Override
+    public void setSearchResults(List<String[]> rows) {
+    }
+
+    @Override
+    public void displayError(String error) {
+        errors.add(error);
+    }
+
+    @Override
+    public void addUpdateListener(ActionListener actionListener) {
+        listeners.add(actionListener);
+    }
+
+    @Override
+    public void addExportListener(ActionListener actionListener) {
+        listeners.add(actionListener);
+    }
+
+    @Override
+    public ScheduleExport.Selection chooseExport(List<Channel> channels) {
+        return null;
+    }
+
+    @Override
+    public File chooseExportFile() {
+        return null;
+    }
+
+    @Override
+    public void addWatchlistListener(ActionListener actionListener) {
+        listeners.add(actionListener);
+    }
+
+    @Override
+    public List<String> editWatchlist(List<String> patterns) {
+        return null;
+    }
+
+    @Override
+    public void showWatchlistMatches(List<String[]> rows) {
+        watchlistMatches.addAll(rows);
+    }
+
+    @Override
+    public void addOverviewListener(ActionListener actionListener) {
+        listeners.add(actionListener);
+    }
+
+    @Override
+    public void addSearchListener(ActionListener actionListener) {
+        listeners.add(actionListener);
+    }
+
+    @Override
+    public void addChannelSelectListener(MouseListener mouseListener) {
+        listeners.add(mouseListener);
+    }
+
+    @Override
+    public void addProgramSelectListener(MouseListener mouseListener) {
+        table.addMouseListener(mouseListener);
+    }
+}
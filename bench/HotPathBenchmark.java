@@ -0,0 +1,143 @@
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Benchmarks of the hot paths of RadioInfo: parsing the channels and
+ * programs with the SAX handlers, converting the times of the programs,
+ * filling the table of programs and finding the selected channel in the
+ * TableController. The xml is read from the fixtures in bench/fixtures,
+ * which follow the format of the SverigesRadio api.
+ *
+ * Results are compared against bench/baselines.properties, and the run
+ * fails if a benchmark is slower than its baseline by more than the
+ * tolerance. Baselines are measured on one machine, so they should be
+ * saved again with --save before comparing on another. The same
+ * benchmarks are run with JMH by radioinfo.jmh.HotPathBenchmark in the jmh
+ * module.
+ *
+ * Run from the project directory with:
+ *   java HotPathBenchmark [--save]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class HotPathBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path fixtures = Paths.get(System.getProperty("bench.fixtures",
+                "bench/fixtures"));
+        Bench bench = new Bench(Paths.get(System.getProperty(
+                "bench.baselines", "bench/baselines.properties")));
+
+        byte[] channelXml = Files.readAllBytes(
+                fixtures.resolve("channels.xml"));
+        byte[] programXml = Files.readAllBytes(
+                fixtures.resolve("scheduledepisodes.xml"));
+
+        //Parsing
+        bench.run("parse.channels", () -> {
+            ChannelHandler handler = new ChannelHandler();
+            parse(channelXml, handler);
+            return handler.getChannels().size();
+        });
+        bench.run("parse.programs", () -> {
+            ProgramHandler handler = new ProgramHandler();
+            parse(programXml, handler);
+            return handler.getPrograms().size();
+        });
+        bench.run("parse.programsInWindow", () -> {
+            ProgramHandler handler = new ProgramHandler(
+                    ScheduleWindow.fromProperties());
+            parse(programXml, handler);
+            return handler.getPrograms().size();
+        });
+
+        ChannelHandler channelHandler = new ChannelHandler();
+        parse(channelXml, channelHandler);
+        List<Channel> channels = channelHandler.getChannels();
+
+        ProgramHandler programHandler = new ProgramHandler();
+        parse(programXml, programHandler);
+        List<Program> programs = programHandler.getPrograms();
+
+        ArrayList<String> times = new ArrayList<>();
+        for(Program p : programs) {
+            times.add(ScheduleXml.formatUtc(p.getStartMillis()));
+        }
+
+        //Time conversion
+        int[] next = new int[1];
+        bench.run("time.formatDateTime", () -> {
+            next[0] = (next[0] + 1) % times.size();
+            return ProgramHandler.formatDateTime(times.get(next[0]))
+                    .length();
+        });
+        bench.run("time.parseDateTime", () -> {
+            next[0] = (next[0] + 1) % times.size();
+            return ProgramHandler.parseDateTime(times.get(next[0]));
+        });
+
+        ScheduleWindow window = ScheduleWindow.fromProperties();
+        long now = programs.get(programs.size() / 2).getStartMillis();
+        bench.run("time.isWithinRange", () -> {
+            next[0] = (next[0] + 1) % programs.size();
+            return window.contains(programs.get(next[0]).getStartMillis(),
+                    now) ? 1 : 0;
+        });
+
+        //Table of programs
+        bench.run("table.populate", () -> {
+            ProgramTableModel model = new ProgramTableModel();
+            model.setPrograms(programs);
+            return model.getRowCount();
+        });
+
+        ProgramTableModel shown = new ProgramTableModel();
+        shown.setPrograms(programs);
+        ArrayList<Program> reloaded = new ArrayList<>(programs);
+        bench.run("table.reload", () -> {
+            shown.setPrograms(reloaded);
+            return shown.getRowCount();
+        });
+
+        //Channel lookup
+        bench.run("lookup.channel", () -> {
+            next[0] = (next[0] + 1) % channels.size();
+            return TableController.indexOfChannel(channels,
+                    channels.get(next[0]).getId());
+        });
+
+        if(args.length > 0 && args[0].equals("--save")) {
+            bench.saveBaselines();
+            System.out.println("Baselines saved");
+            return;
+        }
+
+        List<String> regressions = bench.getRegressions();
+        if(!regressions.isEmpty()) {
+            System.out.println("Slower than baseline: " + regressions);
+            System.exit(1);
+        }
+    }
+
+    /***
+     * Parses xml the way the TableLoader does.
+     *
+     * @param xml The xml file.
+     * @param handler The handler to parse with.
+     * @throws Exception If the xml could not be parsed.
+     */
+    private static void parse(byte[] xml, DefaultHandler handler)
+            throws Exception {
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                new InputSource(new ByteArrayInputStream(xml)), handler);
+    }
+}
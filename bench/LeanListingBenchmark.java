@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * Loads the schedules of all channels from the ApiSimulator, once in full
+ * and once lean with only the titles, times and episodes of the programs,
+ * and measures the load time and the heap the schedules retain. Then
+ * opens programs of the lean schedules, first loading their details from
+ * the api and then again from the cache of details.
+ *
+ * Run with: java LeanListingBenchmark [channels] [opens]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class LeanListingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int opens = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ApiSimulator api = new ApiSimulator(channels, 48);
+        api.start();
+
+        try {
+            //Must be set before the TableLoader class is loaded.
+            System.setProperty("radioinfo.api", api.getApiUrl());
+
+            //Warms up the parsers.
+            load(false);
+            load(true);
+
+            System.out.printf("%d channels, 48 programs per day%n",
+                    channels);
+            System.out.println("schedules    programs   load ms  heap KiB"
+                    + "  bytes/program");
+
+            measure("full", false);
+            List<List<Program>> lean = measure("lean", true);
+
+            open(lean, opens);
+        } finally {
+            api.stop();
+        }
+    }
+
+    /***
+     * Loads the schedules and prints the time it took and the heap they
+     * retain.
+     *
+     * @param name The name of the mode.
+     * @param lean True to load the schedules lean.
+     * @return The schedules.
+     * @throws Exception If the schedules could not be loaded.
+     */
+    private static List<List<Program>> measure(String name, boolean lean)
+            throws Exception {
+        long empty = usedHeap();
+        long start = System.nanoTime();
+        List<List<Program>> schedules = load(lean);
+        double millis = (System.nanoTime() - start) / 1e6;
+        long heap = usedHeap() - empty;
+
+        int programs = 0;
+        for(List<Program> schedule : schedules) {
+            programs += schedule.size();
+        }
+
+        System.out.printf(Locale.ROOT, "%-10s %10d %9.1f %9d %14d%n", name,
+                programs, millis, heap / 1024, heap / programs);
+
+        return schedules;
+    }
+
+    /***
+     * Opens programs of the lean schedules twice, timing the first open
+     * that loads the details and the second that finds them cached.
+     *
+     * @param schedules The lean schedules.
+     * @param opens The number of programs to open.
+     * @throws Exception If the details could not be loaded.
+     */
+    private static void open(List<List<Program>> schedules, int opens)
+            throws Exception {
+        TableLoader loader = new TableLoader();
+        ProgramDetails details = new ProgramDetails(64);
+
+        ArrayList<Program> programs = new ArrayList<>();
+        for(int i = 0; i < opens; i++) {
+            List<Program> schedule = schedules.get(i % schedules.size());
+            programs.add(schedule.get((i * 7) % schedule.size()));
+        }
+
+        int described = 0;
+        long start = System.nanoTime();
+        for(Program p : programs) {
+            if(details.load(p, loader).getDescription() != null) {
+                described++;
+            }
+        }
+        double first = (System.nanoTime() - start) / 1e6 / opens;
+
+        start = System.nanoTime();
+        for(Program p : programs) {
+            details.getCached(p);
+        }
+        double cached = (System.nanoTime() - start) / 1e6 / opens;
+
+        System.out.printf(Locale.ROOT, "open detail: first %.2f ms, cached "
+                + "%.4f ms, %d of %d described%n", first, cached, described,
+                opens);
+    }
+
+    /***
+     * Loads the schedules of every channel with a new loader.
+     *
+     * @param lean True to load the schedules lean.
+     * @return The schedule of every channel.
+     * @throws Exception If the schedules could not be loaded.
+     */
+    private static List<List<Program>> load(boolean lean) throws Exception {
+        TableLoader loader = new TableLoader(false, new ResponseCache(),
+                ScheduleWindow.fromProperties(), new SegmentCache(0, 0));
+        loader.setLean(lean);
+
+        List<List<Program>> schedules = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for(Channel c : loader.fetchChannels()) {
+            schedules.add(loader.fetchPrograms(c.getId(), now));
+        }
+
+        return schedules;
+    }
+
+    /***
+     * Gets the used heap after garbage collection.
+     *
+     * @return The used heap in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        for(int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            used = Math.min(used,
+                    runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+}
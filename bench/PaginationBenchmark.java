@@ -0,0 +1,200 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * Compares loading large schedules from the ApiSimulator as one document
+ * per day, with pagination=false, and page by page with the pages fetched
+ * in parallel, as with -Dradioinfo.paginated=true. For each mode the time
+ * to load the schedule of a channel, the bytes allocated while loading it
+ * and the peak of the used heap are measured.
+ *
+ * Run with: java PaginationBenchmark [channels] [episodes per day]
+ *           [latency ms] [bytes per second] [rounds]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class PaginationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int episodes = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        long bandwidth = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        ApiSimulator api = new ApiSimulator(channels, episodes);
+        api.setLatency(latency);
+        api.setBandwidth(bandwidth);
+        api.start();
+
+        try {
+            //Must be set before the TableLoader class is loaded.
+            System.setProperty("radioinfo.api", api.getApiUrl());
+
+            //Warms up both modes.
+            measure(api, false, 1);
+            measure(api, true, 1);
+
+            System.out.printf("%d channels, %d episodes/day, latency %d ms, "
+                    + "bandwidth %s%n", channels, episodes, latency,
+                    bandwidth == 0 ? "unlimited" : bandwidth + " B/s");
+            System.out.println("mode       median ms   max ms  alloc KiB"
+                    + "  peak heap KiB  requests/load");
+
+            print("single", measure(api, false, rounds));
+            print("paged", measure(api, true, rounds));
+        } finally {
+            api.stop();
+            System.exit(0);
+        }
+    }
+
+    /***
+     * Loads the schedule of every channel the given number of times with
+     * new loaders that keep no responses between the loads.
+     *
+     * @param api The simulator, for the number of requests.
+     * @param paginated True to load the schedules page by page.
+     * @param rounds The number of times to load every schedule.
+     * @return The measurements.
+     * @throws Exception If a schedule could not be loaded.
+     */
+    private static Result measure(ApiSimulator api, boolean paginated,
+                                  int rounds) throws Exception {
+        TableLoader channelLoader = new TableLoader();
+        List<Channel> channels = channelLoader.fetchChannels();
+
+        Result result = new Result(channels.size() * rounds);
+        long requests = api.getRequests();
+        HeapSampler sampler = new HeapSampler();
+        long now = System.currentTimeMillis();
+
+        for(int round = 0; round < rounds; round++) {
+            for(Channel c : channels) {
+                TableLoader loader = new TableLoader(paginated,
+                        new ResponseCache(0), ScheduleWindow.fromProperties(),
+                        new SegmentCache(0, 0));
+
+                long base = sampler.reset();
+                long allocated = RefreshBenchmark.allocatedBytes();
+                long start = System.nanoTime();
+
+                loader.fetchPrograms(c.getId(), now);
+
+                result.add(System.nanoTime() - start,
+                        RefreshBenchmark.allocatedBytes() - allocated,
+                        sampler.peak() - base);
+            }
+        }
+
+        sampler.stop();
+        result.requests = api.getRequests() - requests;
+
+        return result;
+    }
+
+    /***
+     * Prints the measurements of a mode.
+     *
+     * @param name The name of the mode.
+     * @param result The measurements.
+     */
+    private static void print(String name, Result result) {
+        Arrays.sort(result.nanos);
+        System.out.printf(Locale.ROOT, "%-10s %9.1f %8.1f %10d %14d %14d%n",
+                name, result.nanos[result.count / 2] / 1e6,
+                result.nanos[result.count - 1] / 1e6,
+                result.allocated / result.count / 1024,
+                result.peak / 1024, result.requests / result.count);
+    }
+
+    /***
+     * The measurements of the loads of one mode.
+     */
+    private static class Result {
+        private final long[] nanos;
+        private int count;
+        private long allocated;
+        private long peak;
+        private long requests;
+
+        private Result(int loads) {
+            nanos = new long[loads];
+        }
+
+        private void add(long time, long bytes, long heap) {
+            nanos[count++] = time;
+            allocated += bytes;
+            peak = Math.max(peak, heap);
+        }
+    }
+
+    /***
+     * Samples the used heap every millisecond on a thread of its own and
+     * keeps the highest value since the last reset.
+     */
+    private static class HeapSampler {
+        private volatile boolean running = true;
+        private volatile long peak;
+        private final Thread thread;
+
+        private HeapSampler() {
+            thread = new Thread(() -> {
+                while(running) {
+                    peak = Math.max(peak, usedHeap());
+
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "HeapSampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /***
+         * Collects the garbage and starts a new peak.
+         *
+         * @return The used heap after the collection.
+         */
+        private long reset() {
+            System.gc();
+            long used = usedHeap();
+            peak = used;
+
+            return used;
+        }
+
+        /***
+         * Get the highest used heap since the last reset.
+         *
+         * @return The used heap in bytes.
+         */
+        private long peak() {
+            return Math.max(peak, usedHeap());
+        }
+
+        /***
+         * Stops the sampling.
+         */
+        private void stop() {
+            running = false;
+            thread.interrupt();
+        }
+
+        /***
+         * Get the used heap.
+         *
+         * @return The used heap in bytes.
+         */
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import javax.swing.*;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Measures the hourly refresh of the TableController against the
+ * ApiSimulator, with and without the schedules prefetched before it. The
+ * segments of days that have not ended are never reused, as when the
+ * window has moved into a new day, so every refresh that is not
+ * prefetched downloads the schedules of the coming days again.
+ *
+ * Run with: java -Djava.awt.headless=true PrefetchBenchmark [channels]
+ *           [latency ms] [refreshes]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class PrefetchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int latency = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int refreshes = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        ApiSimulator api = new ApiSimulator(channels, 48);
+        api.setLatency(latency);
+        api.start();
+
+        try {
+            //Must be set before the TableLoader class is loaded.
+            System.setProperty("radioinfo.api", api.getApiUrl());
+            System.setProperty("radioinfo.segmentMaxAge", "0");
+
+            BlockingQueue<String> outcomes = new ArrayBlockingQueue<>(16);
+            TableController[] controller = new TableController[1];
+            SwingUtilities.invokeAndWait(() -> {
+                controller[0] = new TableController(new HeadlessView());
+                controller[0].addRefreshListener(
+                        e -> outcomes.add(e.getActionCommand()));
+            });
+
+            //The first refresh is started by the timer of the controller.
+            await(outcomes);
+
+            System.out.printf("%d channels, %d ms per api response%n",
+                    channels, latency);
+            System.out.println("refresh         ms");
+
+            for(int i = 0; i < refreshes; i++) {
+                long start = System.nanoTime();
+                SwingUtilities.invokeAndWait(
+                        () -> controller[0].scheduledRefresh());
+                await(outcomes);
+                print("loaded", start);
+
+                //The prefetch is for a refresh right away, which is then
+                //started once it has loaded.
+                waitForPrefetch(controller[0]);
+
+                start = System.nanoTime();
+                SwingUtilities.invokeAndWait(
+                        () -> controller[0].scheduledRefresh());
+                await(outcomes);
+                print("prefetched", start);
+            }
+        } finally {
+            api.stop();
+        }
+
+        System.exit(0);
+    }
+
+    /***
+     * Prefetches the schedules for a refresh right away and waits until
+     * they have loaded.
+     *
+     * @param controller The controller.
+     * @throws Exception If the prefetch failed.
+     */
+    private static void waitForPrefetch(TableController controller)
+            throws Exception {
+        TableController.PrefetchWorker[] worker =
+                new TableController.PrefetchWorker[1];
+        SwingUtilities.invokeAndWait(() -> worker[0] = controller.prefetch(
+                System.currentTimeMillis()));
+        worker[0].get();
+    }
+
+    private static void await(BlockingQueue<String> outcomes)
+            throws InterruptedException {
+        String outcome = outcomes.poll(5, TimeUnit.MINUTES);
+        if(!"loaded".equals(outcome)) {
+            throw new IllegalStateException("Refresh " + outcome);
+        }
+    }
+
+    private static void print(String name, long start) {
+        System.out.printf(Locale.ROOT, "%-12s %7.1f%n", name,
+                (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,168 @@
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Measures the whole update of RadioInfo, from the TableController through
+ * the TableLoader to the view, against the ApiSimulator instead of the
+ * real api. The first update downloads everything, the following ones are
+ * served from the response and segment caches.
+ *
+ * Run with: java -Djava.awt.headless=true RefreshBenchmark [channels]
+ *           [episodes per day] [latency ms] [bytes per second]
+ *           [error rate] [updates]
+ * Add -Dradioinfo.paginated=true or -Dradioinfo.compact=true to measure
+ * those modes.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class RefreshBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int episodes = args.length > 1 ? Integer.parseInt(args[1]) : 48;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        long bandwidth = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        double errorRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+        int updates = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+
+        ApiSimulator api = new ApiSimulator(channels, episodes);
+        api.setLatency(latency);
+        api.setBandwidth(bandwidth);
+        api.setErrorRate(errorRate);
+
+        System.out.printf("%d channels, %d episodes/day, latency %d ms, "
+                + "bandwidth %s, error rate %.2f%n", channels, episodes,
+                latency, bandwidth == 0 ? "unlimited" : bandwidth + " B/s",
+                errorRate);
+        api.start();
+
+        try {
+            run(api, updates);
+        } finally {
+            api.stop();
+            System.exit(0);
+        }
+    }
+
+    /***
+     * Runs the updates and prints the measurements of each.
+     *
+     * @param api The started simulator.
+     * @param updates The number of updates after the first one.
+     * @throws Exception If the controller could not be run.
+     */
+    private static void run(ApiSimulator api, int updates) throws Exception {
+        //Must be set before the TableLoader class is loaded.
+        System.setProperty("radioinfo.api", api.getApiUrl());
+
+
+        HeadlessView view = new HeadlessView();
+        AtomicReference<TableController> controller = new AtomicReference<>();
+        AtomicReference<CountDownLatch> finished = new AtomicReference<>(
+                new CountDownLatch(1));
+        AtomicBoolean loaded = new AtomicBoolean();
+
+        long start = System.nanoTime();
+        long allocated = allocatedBytes();
+        long requests = api.getRequests();
+        long bytes = api.getBytes();
+
+        //The controller starts the first update itself.
+        SwingUtilities.invokeAndWait(() -> {
+            controller.set(new TableController(view));
+            controller.get().addRefreshListener(e -> {
+                loaded.set(e.getActionCommand().equals("loaded"));
+                finished.get().countDown();
+            });
+        });
+
+        for(int i = 0; i <= updates; i++) {
+            finished.get().await();
+
+            long time = System.nanoTime() - start;
+            int programs = 0;
+            for(Channel c : view.getChannels()) {
+                programs += c.getPrograms() == null ? 0
+                        : c.getPrograms().size();
+            }
+
+            System.out.printf("%-6s %-7s %8.1f ms, %4d requests, %7.1f KiB,"
+                    + " %5d programs (%.0f/s), %8.1f MiB allocated%n",
+                    i == 0 ? "cold" : "warm", loaded.get() ? "loaded"
+                            : "failed", time / 1e6,
+                    api.getRequests() - requests,
+                    (api.getBytes() - bytes) / 1024.0, programs,
+                    programs / (time / 1e9),
+                    (allocatedBytes() - allocated) / 1048576.0);
+
+            if(i == updates) {
+                break;
+            }
+
+            finished.set(new CountDownLatch(1));
+            start = System.nanoTime();
+            allocated = allocatedBytes();
+            requests = api.getRequests();
+            bytes = api.getBytes();
+
+            SwingUtilities.invokeAndWait(() -> controller.get().refresh());
+        }
+
+        System.out.printf("Errors injected: %d, shown: %d%n",
+                api.getErrors(), view.getErrors().size());
+        System.out.print(RadioInfoMetrics.get().dump());
+    }
+
+    /***
+     * Gets the number of bytes allocated by all live threads. Threads
+     * that have ended are not counted, so the simulator threads are kept
+     * out while the SwingWorker and page threads are kept alive by their
+     * pools.
+     *
+     * @return The allocated bytes, or 0 if it can not be measured.
+     */
+    static long allocatedBytes() {
+        if(!(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean)
+                        ManagementFactory.getThreadMXBean();
+
+        long total = 0;
+        long[] ids = threads.getAllThreadIds();
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        for(int i = 0; i < ids.length; i++) {
+            Thread thread = findThread(ids[i]);
+
+            if(allocated[i] > 0 && (thread == null
+                    || !thread.getName().equals("ApiSimulator"))) {
+                total += allocated[i];
+            }
+        }
+
+        return total;
+    }
+
+    /***
+     * Finds a live thread by id.
+     *
+     * @param id The id of the thread.
+     * @return The thread or null if it has ended.
+     */
+    private static Thread findThread(long id) {
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            if(thread.getId() == id) {
+                return thread;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/***
+ * Fills a ScheduleArchive the way the hourly refresh does, appending the
+ * schedule window of every channel again and again, and measures the size
+ * of the archive and the time it takes to read one month of one channel.
+ *
+ * Run with: java ScheduleArchiveBenchmark [channels] [days]
+ *           [hours between refreshes]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleArchiveBenchmark {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long HOUR = 3600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    //Programs are 30 minutes long.
+    private static final long LENGTH = HOUR / 2;
+
+    public static void main(String[] args) throws IOException {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 62;
+        int every = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        Path directory = Files.createTempDirectory("radioinfo-archive");
+
+        try {
+            ScheduleArchive archive = new ScheduleArchive(directory);
+
+            long writeStart = System.nanoTime();
+            int appends = 0;
+            for(long now = START; now < START + days * DAY;
+                    now += every * HOUR) {
+                for(int c = 1; c <= channels; c++) {
+                    archive.append(c, window(c, now));
+                    appends++;
+                }
+            }
+            double writeTime = (System.nanoTime() - writeStart) / 1e9;
+
+            System.out.printf("%d channels, %d days, %d appends in %.1f s"
+                    + "%n", channels, days, appends, writeTime);
+            System.out.printf("Archive size: %d KiB%n",
+                    size(directory) / 1024);
+
+            //One month in the middle of the archive.
+            long from = START + 15 * DAY;
+            long to = from + 30 * DAY;
+
+            measure("Month read, warm", () -> archive.read(1, from, to));
+            measure("Month read, reopened", () -> new ScheduleArchive(
+                    directory).read(1, from, to));
+
+            archive.compact();
+            System.out.printf("Archive size after compaction: %d KiB%n",
+                    size(directory) / 1024);
+            measure("Month read, compacted", () -> archive.read(1, from,
+                    to));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for(Path file : files.sorted(Comparator.reverseOrder())
+                        .toArray(Path[]::new)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /***
+     * Creates the programs of the schedule window of a channel, 12 hours
+     * back and 12 hours ahead.
+     *
+     * @param channel The id of the channel.
+     * @param now The time of the refresh.
+     * @return The programs.
+     */
+    private static List<Program> window(int channel, long now) {
+        ArrayList<Program> programs = new ArrayList<>();
+        long first = now - 12 * HOUR - Math.floorMod(now, LENGTH);
+
+        for(long start = first; start < now + 12 * HOUR; start += LENGTH) {
+            int show = (int) (start / LENGTH % 40);
+
+            Program p = new Program();
+            p.setStartMillis(start);
+            p.setEndMillis(start + LENGTH);
+            p.setEpisodeId(start / 1000 + channel);
+            p.setName("Program " + show);
+            p.setDescription("Beskrivning av program " + show
+                    + " med nyheter, musik och samtal.");
+            p.setImage("https://static-cdn.sr.se/images/" + show + ".jpg");
+
+            programs.add(p);
+        }
+
+        return programs;
+    }
+
+    /***
+     * Runs a read until the timing is stable and prints the average time.
+     *
+     * @param name The name of the measurement.
+     * @param read The read to measure.
+     * @throws IOException If the archive could not be read.
+     */
+    private static void measure(String name, Read read) throws IOException {
+        int found = 0;
+        for(int i = 0; i < 20; i++) {
+            found = read.run().size();
+        }
+
+        int calls = 50;
+        long start = System.nanoTime();
+        for(int i = 0; i < calls; i++) {
+            found = read.run().size();
+        }
+        double time = (System.nanoTime() - start) / 1e6 / calls;
+
+        System.out.printf("%s: %.2f ms, %d programs%n", name, time, found);
+    }
+
+    private static long size(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        }
+    }
+
+    /***
+     * A read to be measured.
+     */
+    private interface Read {
+        List<Program> run() throws IOException;
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Measures the time it takes to find what is on every channel with the
+ * ScheduleIndex, compared to scanning the program lists of the channels.
+ *
+ * Run with: java ScheduleIndexBenchmark [channels] [programs per channel]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleIndexBenchmark {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    private static long seed = 1;
+
+    public static void main(String[] args) {
+        int channelCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int programCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        List<Channel> channels = createChannels(channelCount, programCount);
+        long end = START + programCount * 30 * MINUTE;
+
+        long buildStart = System.nanoTime();
+        ScheduleIndex index = new ScheduleIndex(channels);
+        long buildTime = System.nanoTime() - buildStart;
+
+        System.out.printf("%d channels, %d programs per channel%n",
+                channelCount, programCount);
+        System.out.printf("Index build: %.2f ms%n", buildTime / 1e6);
+
+        double indexed = measure(() -> {
+            long time = randomTime(end);
+            return index.programsAt(time).length;
+        });
+        System.out.printf("Index, all channels at T: %.1f us%n",
+                indexed / 1e3);
+
+        double scanned = measure(() -> {
+            long time = randomTime(end);
+            return scan(channels, time);
+        });
+        System.out.printf("Scan, all channels at T: %.1f us%n",
+                scanned / 1e3);
+    }
+
+    /***
+     * Finds the programs on at the given time by scanning every list.
+     *
+     * @param channels The channels to scan.
+     * @param time The time in milliseconds since the epoch.
+     * @return The number of channels with a program on.
+     */
+    private static int scan(List<Channel> channels, long time) {
+        int found = 0;
+
+        for(Channel c : channels) {
+            for(Program p : c.getPrograms()) {
+                if(p.getStartMillis() <= time && p.getEndMillis() > time) {
+                    found++;
+                    break;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /***
+     * Runs the given operation until the timing is stable and returns
+     * the average time of one call.
+     *
+     * @param operation The operation to measure.
+     * @return The average time in nanoseconds.
+     */
+    private static double measure(Operation operation) {
+        long sink = 0;
+
+        //Warm up
+        for(int i = 0; i < 200; i++) {
+            sink += operation.run();
+        }
+
+        int calls = 1000;
+        long start = System.nanoTime();
+        for(int i = 0; i < calls; i++) {
+            sink += operation.run();
+        }
+        long time = System.nanoTime() - start;
+
+        if(sink == 42) {
+            System.out.println();
+        }
+
+        return (double) time / calls;
+    }
+
+    /***
+     * Gets a pseudo random time within the generated schedules.
+     *
+     * @param end The end of the schedules.
+     * @return The time in milliseconds since the epoch.
+     */
+    private static long randomTime(long end) {
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+
+        return START + Math.floorMod(seed >>> 1, end - START);
+    }
+
+    /***
+     * Creates channels with back to back programs of 30 minutes.
+     *
+     * @param channelCount The number of channels.
+     * @param programCount The number of programs in each channel.
+     * @return The channels.
+     */
+    static List<Channel> createChannels(int channelCount, int programCount) {
+        ArrayList<Channel> channels = new ArrayList<>(channelCount);
+
+        for(int i = 0; i < channelCount; i++) {
+            Channel channel = new Channel();
+            channel.setId(i + 1);
+            channel.setName("Kanal " + (i + 1));
+
+            ArrayList<Program> programs = new ArrayList<>(programCount);
+            for(int j = 0; j < programCount; j++) {
+                Program program = new Program();
+                program.setName("Program " + j);
+                program.setStartMillis(START + j * 30 * MINUTE);
+                program.setEndMillis(START + (j + 1) * 30 * MINUTE);
+
+                programs.add(program);
+            }
+
+            channel.setPrograms(programs);
+            channels.add(channel);
+        }
+
+        return channels;
+    }
+
+    /***
+     * An operation to be measured.
+     */
+    private interface Operation {
+        int run();
+    }
+}
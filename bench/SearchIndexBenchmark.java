@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Measures the time it takes to search the programs of all channels with
+ * the SearchIndex, and to update the index with the schedule of one
+ * channel. The schedules span several days. The names are made from a
+ * small set of Swedish words, and the descriptions from a larger made up
+ * vocabulary where some words are much more common than others.
+ *
+ * Run with: java SearchIndexBenchmark [channels] [days]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class SearchIndexBenchmark {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    //Programs of 30 minutes, back to back.
+    private static final int PROGRAMS_PER_DAY = 48;
+
+    private static final String[] WORDS = { "ekot", "nyheter", "musik",
+            "sport", "kultur", "vetenskap", "morgon", "kväll", "radio",
+            "sverige", "världen", "samtal", "reportage", "dokumentär",
+            "barn", "historia", "ekonomi", "politik", "väder", "trafik",
+            "jazz", "klassiskt", "pop", "rock", "humor", "teater", "lokalt",
+            "ekologi", "ekonomiekot", "sommar", "vinter", "p1", "p2", "p3" };
+
+    private static final String[] SYLLABLES = { "ba", "ke", "lo", "mi",
+            "nu", "sä", "tö", "rå", "fi", "go", "he", "ju", "vy", "de" };
+
+    //Words of the names, of the descriptions and one that is not used.
+    private static final String[] QUERIES = { "ekot", "eko", "nyheter",
+            "kväll musik", "dokumentär historia", "ba", "bake", "s",
+            "finns inte" };
+
+    private static long seed = 1;
+
+    public static void main(String[] args) {
+        int channelCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        List<Channel> channels = createChannels(channelCount,
+                days * PROGRAMS_PER_DAY);
+
+        long buildStart = System.nanoTime();
+        SearchIndex index = new SearchIndex();
+        for(Channel c : channels) {
+            index.updateChannel(c.getId(), c);
+        }
+        long buildTime = System.nanoTime() - buildStart;
+
+        System.out.printf("%d channels, %d days, %d programs%n",
+                channelCount, days,
+                channelCount * days * PROGRAMS_PER_DAY);
+        System.out.printf("Index build: %.2f ms%n", buildTime / 1e6);
+
+        for(String query : QUERIES) {
+            int hits = index.search(query).size();
+            double time = measure(() -> index.search(query).size());
+
+            System.out.printf("Search \"%s\": %d hits in %.1f us%n", query,
+                    hits, time / 1e3);
+        }
+
+        Channel first = channels.get(0);
+        double update = measure(() -> {
+            index.updateChannel(first.getId(), first);
+            return 1;
+        });
+        System.out.printf("Update of one channel: %.1f us%n", update / 1e3);
+    }
+
+    /***
+     * Runs the given operation until the timing is stable and returns
+     * the average time of one call.
+     *
+     * @param operation The operation to measure.
+     * @return The average time in nanoseconds.
+     */
+    private static double measure(Operation operation) {
+        long sink = 0;
+
+        //Warm up
+        for(int i = 0; i < 200; i++) {
+            sink += operation.run();
+        }
+
+        int calls = 1000;
+        long start = System.nanoTime();
+        for(int i = 0; i < calls; i++) {
+            sink += operation.run();
+        }
+        long time = System.nanoTime() - start;
+
+        if(sink == 42) {
+            System.out.println();
+        }
+
+        return (double) time / calls;
+    }
+
+    /***
+     * Gets a pseudo random number.
+     *
+     * @param bound The number after the largest one.
+     * @return The number, from 0 up to bound.
+     */
+    private static int random(int bound) {
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+
+        return (int) Math.floorMod(seed >>> 1, bound);
+    }
+
+    /***
+     * Gets a pseudo random word of the names.
+     *
+     * @return The word.
+     */
+    private static String nameWord() {
+        return WORDS[random(WORDS.length)];
+    }
+
+    /***
+     * Gets a pseudo random word of the descriptions, made of two or three
+     * syllables. Of the 2744 words the first are the most common.
+     *
+     * @return The word.
+     */
+    private static String descriptionWord() {
+        double u = random(1 << 20) / (double) (1 << 20);
+        int word = (int) (u * u * u * SYLLABLES.length * SYLLABLES.length
+                * SYLLABLES.length);
+
+        String first = SYLLABLES[word / (SYLLABLES.length
+                * SYLLABLES.length)];
+        String second = SYLLABLES[word / SYLLABLES.length
+                % SYLLABLES.length];
+        String third = SYLLABLES[word % SYLLABLES.length];
+
+        //The most common words are the shortest.
+        return word < SYLLABLES.length * SYLLABLES.length ? second + third
+                : first + second + third;
+    }
+
+    /***
+     * Creates channels with back to back programs of 30 minutes, with a
+     * name of two words and a description of twelve.
+     *
+     * @param channelCount The number of channels.
+     * @param programCount The number of programs in each channel.
+     * @return The channels.
+     */
+    private static List<Channel> createChannels(int channelCount,
+                                                int programCount) {
+        ArrayList<Channel> channels = new ArrayList<>(channelCount);
+
+        for(int i = 0; i < channelCount; i++) {
+            Channel channel = new Channel();
+            channel.setId(i + 1);
+            channel.setName("Kanal " + (i + 1));
+
+            ArrayList<Program> programs = new ArrayList<>(programCount);
+            for(int j = 0; j < programCount; j++) {
+                Program program = new Program();
+                program.setName(nameWord() + " " + nameWord());
+
+                StringBuilder description = new StringBuilder();
+                for(int k = 0; k < 12; k++) {
+                    description.append(descriptionWord()).append(' ');
+                }
+                program.setDescription(description.toString());
+                program.setStartMillis(START + j * 30 * MINUTE);
+                program.setEndMillis(START + (j + 1) * 30 * MINUTE);
+
+                programs.add(program);
+            }
+
+            channel.setPrograms(programs);
+            channels.add(channel);
+        }
+
+        return channels;
+    }
+
+    /***
+     * An operation to measure.
+     */
+    private interface Operation {
+        int run();
+    }
+}
@@ -0,0 +1,313 @@
+import javax.swing.*;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+/***
+ * Runs thousands of refreshes of the TableController back to back against
+ * the ApiSimulator, to show that memory use stays flat over days of
+ * hourly refreshes. Every refresh gets schedules of a new revision, so
+ * every channel and program is parsed and created again as when the real
+ * schedules change.
+ *
+ * The controller runs on a simulated clock that is advanced by an hour, or
+ * the given number of hours, before every refresh. The schedule window
+ * moves over the days, cached segments grow old and new days are loaded,
+ * so the response and segment caches churn as in days of uptime.
+ *
+ * The heap after garbage collection, the number of live threads and the
+ * number of listeners of the view are sampled during the run. The trend
+ * of each is fitted with least squares over the samples after the warmup,
+ * and the run exits with status 1 if any of them grows.
+ *
+ * Run with: java -Djava.awt.headless=true -Xmx256m SoakTest [refreshes]
+ *           [channels] [episodes per day] [samples] [hours per refresh]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class SoakTest {
+
+    //Growth of the heap over the whole run that is still seen as flat.
+    private static final double HEAP_TOLERANCE = 0.05;
+
+    private static final long HOUR = 3600 * 1000L;
+
+    public static void main(String[] args) throws Exception {
+        int refreshes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int channels = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int episodes = args.length > 2 ? Integer.parseInt(args[2]) : 48;
+        int samples = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+        long step = (args.length > 4 ? Long.parseLong(args[4]) : 1) * HOUR;
+
+        //The caches keep four days of schedules, so that they are full and
+        //removing old days after the warmup instead of still filling up.
+        setDefault("radioinfo.responses", channels * 4 + 1);
+        setDefault("radioinfo.segments", channels * 4);
+
+        ApiSimulator api = new ApiSimulator(channels, episodes);
+        api.start();
+
+        try {
+            //Must be set before the TableLoader class is loaded.
+            System.setProperty("radioinfo.api", api.getApiUrl());
+
+            System.out.printf(Locale.ROOT, "%d refreshes of %d channels "
+                    + "with %d episodes/day over %.1f simulated days%n",
+                    refreshes, channels, episodes,
+                    refreshes * (double) step / (24 * HOUR));
+
+            boolean flat = run(api, refreshes, samples, step);
+            if(!flat) {
+                System.exit(1);
+            }
+        } finally {
+            api.stop();
+        }
+
+        System.exit(0);
+    }
+
+    /***
+     * Sets a system property unless it is already set.
+     *
+     * @param key The name of the property.
+     * @param value The value.
+     */
+    private static void setDefault(String key, int value) {
+        if(System.getProperty(key) == null) {
+            System.setProperty(key, Integer.toString(value));
+        }
+    }
+
+    /***
+     * Runs the refreshes and prints the samples and their trends.
+     *
+     * @param api The started simulator.
+     * @param refreshes The number of refreshes.
+     * @param samples The number of samples to take.
+     * @param step The simulated time between refreshes in milliseconds.
+     * @return True if nothing grew.
+     * @throws Exception If the controller could not be run.
+     */
+    private static boolean run(ApiSimulator api, int refreshes, int samples,
+                               long step) throws Exception {
+        HeadlessView view = new HeadlessView();
+        long began = System.currentTimeMillis() / HOUR * HOUR;
+        SimulatedClock clock = new SimulatedClock(began);
+        AtomicReference<TableController> controller =
+                new AtomicReference<>();
+        AtomicReference<CountDownLatch> finished = new AtomicReference<>(
+                new CountDownLatch(1));
+        int[] failed = new int[1];
+
+        //The controller starts the first refresh itself.
+        SwingUtilities.invokeAndWait(() -> {
+            controller.set(new TableController(view, clock));
+            controller.get().addRefreshListener(e -> {
+                if(!e.getActionCommand().equals("loaded")) {
+                    failed[0]++;
+                }
+                finished.get().countDown();
+            });
+        });
+        finished.get().await();
+
+        ArrayList<double[]> taken = new ArrayList<>();
+        int every = Math.max(1, refreshes / samples);
+        long start = System.nanoTime();
+
+        System.out.println("refresh    day   heap MiB  threads  listeners"
+                + "  responses");
+        for(int i = 1; i <= refreshes; i++) {
+            clock.advance(step);
+            api.setRevision(i);
+            finished.set(new CountDownLatch(1));
+            SwingUtilities.invokeAndWait(() -> controller.get().refresh());
+            finished.get().await();
+
+            if(i % every == 0) {
+                double[] sample = { i, usedHeap() / 1048576.0,
+                        threadCount(),
+                        onEdt(view::getListenerCount) };
+                taken.add(sample);
+
+                System.out.printf(Locale.ROOT, "%7d %6.1f %10.1f %8.0f "
+                        + "%10.0f %10d%n", (int) sample[0],
+                        (clock.millis() - began) / (24.0 * HOUR), sample[1],
+                        sample[2], sample[3],
+                        controller.get().getResponseCache().size());
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%.1f refreshes/s, %d failed%n",
+                refreshes / seconds, failed[0]);
+
+        //The first samples are skipped while caches and pools fill up.
+        ArrayList<double[]> measured = new ArrayList<>(
+                taken.subList(taken.size() / 4, taken.size()));
+        if(measured.size() < 2) {
+            System.out.println("Too few samples for a trend");
+            return true;
+        }
+
+        double first = measured.get(0)[0];
+        double last = measured.get(measured.size() - 1)[0];
+        double heapMean = mean(measured, 1);
+        double heapGrowth = slope(measured, 1) * (last - first);
+        double threadGrowth = slope(measured, 2) * (last - first);
+        double listenerGrowth = slope(measured, 3) * (last - first);
+
+        System.out.printf(Locale.ROOT, "Trend over the last %d refreshes: "
+                + "heap %+.2f MiB (%+.1f%%), threads %+.1f, "
+                + "listeners %+.1f%n", (int) (last - first), heapGrowth,
+                100 * heapGrowth / heapMean, threadGrowth, listenerGrowth);
+
+        boolean flat = heapGrowth <= heapMean * HEAP_TOLERANCE
+                && threadGrowth < 1 && listenerGrowth < 1;
+        System.out.println(flat ? "No growth found" : "Growth found");
+
+        return flat;
+    }
+
+    /***
+     * Gets the slope of a column of the samples against the refreshes,
+     * fitted with least squares.
+     *
+     * @param samples The samples, with the refresh in column 0.
+     * @param column The column to fit.
+     * @return The change per refresh.
+     */
+    private static double slope(ArrayList<double[]> samples, int column) {
+        double x = mean(samples, 0);
+        double y = mean(samples, column);
+        double covariance = 0;
+        double variance = 0;
+
+        for(double[] sample : samples) {
+            covariance += (sample[0] - x) * (sample[column] - y);
+            variance += (sample[0] - x) * (sample[0] - x);
+        }
+
+        return covariance / variance;
+    }
+
+    private static double mean(ArrayList<double[]> samples, int column) {
+        double sum = 0;
+        for(double[] sample : samples) {
+            sum += sample[column];
+        }
+
+        return sum / samples.size();
+    }
+
+    /***
+     * Counts the live threads of the application. The threads of the
+     * simulator are left out, since they stand in for the api.
+     *
+     * @return The number of threads.
+     */
+    private static int threadCount() {
+        int count = 0;
+
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            if(!thread.getName().equals("ApiSimulator")) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /***
+     * Reads a value on the EDT, where the view is used.
+     *
+     * @param value Reads the value.
+     * @return The value.
+     * @throws Exception If reading fails.
+     */
+    private static int onEdt(IntSupplier value) throws Exception {
+        int[] read = new int[1];
+        SwingUtilities.invokeAndWait(() -> read[0] = value.getAsInt());
+
+        return read[0];
+    }
+
+    /***
+     * Clock of the simulated time, which only moves when advanced.
+     */
+    private static class SimulatedClock extends Clock {
+        private volatile long millis;
+
+        /***
+         * Constructor.
+         *
+         * @param millis The time to start at in milliseconds since the
+         *               epoch.
+         */
+        SimulatedClock(long millis) {
+            this.millis = millis;
+        }
+
+        /***
+         * Moves the time forward. Only called by the thread running the
+         * refreshes.
+         *
+         * @param by The time to move in milliseconds.
+         */
+        void advance(long by) {
+            millis += by;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /***
+     * Gets the used heap after garbage collection.
+     *
+     * @return The used heap in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            used = Math.min(used,
+                    runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+}
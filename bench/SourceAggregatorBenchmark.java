@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/***
+ * Loads every channel and schedule through the schedule sources, to
+ * compare the api alone, a local mirror of xml files alone and the two
+ * combined by a ScheduleAggregator with each policy. The api is played by
+ * the ApiSimulator with a delay on every response, and the mirror is
+ * written from a first load of the api.
+ *
+ * Run with: java SourceAggregatorBenchmark [channels] [latency ms]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class SourceAggregatorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int latency = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        ApiSimulator api = new ApiSimulator(channels, 48);
+        api.setLatency(latency);
+        api.start();
+
+        Path mirror = Files.createTempDirectory("radioinfo-mirror");
+
+        try {
+            //Must be set before the TableLoader class is loaded.
+            System.setProperty("radioinfo.api", api.getApiUrl());
+
+            writeMirror(newLoader(), mirror);
+
+            System.out.printf("%d channels, %d ms per api response%n",
+                    channels, latency);
+            System.out.println("sources                  ms  channels  "
+                    + "programs");
+
+            run("api", newLoader());
+            run("mirror", mirror(mirror));
+            run("first response", new ScheduleAggregator(Arrays.asList(
+                    newLoader(), mirror(mirror)),
+                    ScheduleAggregator.Policy.FIRST_RESPONSE));
+            run("fallback", new ScheduleAggregator(Arrays.asList(
+                    newLoader(), mirror(mirror)),
+                    ScheduleAggregator.Policy.FALLBACK));
+
+            api.setErrorRate(1);
+            run("fallback, api down", new ScheduleAggregator(Arrays.asList(
+                    newLoader(), mirror(mirror)),
+                    ScheduleAggregator.Policy.FALLBACK));
+
+            System.out.println();
+            for(String line : RadioInfoMetrics.get().getSourceTimes()) {
+                System.out.println(line);
+            }
+        } finally {
+            api.stop();
+
+            try (Stream<Path> files = Files.walk(mirror)) {
+                for(Path file : files.sorted(Comparator.reverseOrder())
+                        .toArray(Path[]::new)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        System.exit(0);
+    }
+
+    /***
+     * Loads every channel and its programs from a source, the way a
+     * refresh does, and prints the time it took.
+     *
+     * @param name The name of the run.
+     * @param source The source to load from.
+     * @throws Exception If loading fails.
+     */
+    private static void run(String name, ScheduleSource source)
+            throws Exception {
+        long start = System.nanoTime();
+        int programs = 0;
+
+        List<Channel> loaded = source.fetchChannels();
+        for(Channel c : loaded) {
+            List<Program> schedule = source.fetchPrograms(c.getId());
+            programs += schedule == null ? 0 : schedule.size();
+        }
+
+        System.out.printf(Locale.ROOT, "%-20s %7.1f %9d %9d%n", name,
+                (System.nanoTime() - start) / 1e6, loaded.size(), programs);
+    }
+
+    /***
+     * Writes the channels and schedules of a source as xml files that a
+     * FileScheduleSource can read.
+     *
+     * @param source The source to copy.
+     * @param directory The directory to write to.
+     * @throws Exception If loading or writing fails.
+     */
+    private static void writeMirror(ScheduleSource source, Path directory)
+            throws Exception {
+        List<Channel> channels = source.fetchChannels();
+
+        try (Writer out = Files.newBufferedWriter(
+                directory.resolve("channels.xml"), StandardCharsets.UTF_8)) {
+            ScheduleXml.writeChannels(out, channels);
+        }
+
+        for(Channel c : channels) {
+            List<Program> programs = source.fetchPrograms(c.getId());
+            if(programs == null) {
+                continue;
+            }
+
+            try (Writer out = Files.newBufferedWriter(
+                    directory.resolve(c.getId() + ".xml"),
+                    StandardCharsets.UTF_8)) {
+                ScheduleXml.writePrograms(out, programs);
+            }
+        }
+    }
+
+    /***
+     * Creates a TableLoader with empty caches, so that every response is
+     * downloaded.
+     *
+     * @return The loader.
+     * @throws IOException If the url of the api is not valid.
+     */
+    private static TableLoader newLoader() throws IOException {
+        return new TableLoader(false, new ResponseCache(),
+                ScheduleWindow.fromProperties(),
+                SegmentCache.fromProperties());
+    }
+
+    private static ScheduleSource mirror(Path directory) {
+        return new FileScheduleSource(directory,
+                ScheduleWindow.fromProperties());
+    }
+}
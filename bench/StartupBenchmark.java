@@ -0,0 +1,82 @@
+import javax.swing.*;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/***
+ * Measures a cold start of the TableController against the ApiSimulator,
+ * the way Main starts it: the time the EDT is held by the creation of the
+ * controller, the longest time the EDT could not paint until the first
+ * refresh is shown, and the time until it is shown. The startup timeline
+ * is printed at the end.
+ *
+ * Every run should be a new jvm, since the cost of a cold start is mostly
+ * the loading of classes.
+ *
+ * Run with: java -Djava.awt.headless=true StartupBenchmark [channels]
+ *           [latency ms]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        StartupTimeline.mark("main");
+
+        int channels = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int latency = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ApiSimulator api = new ApiSimulator(channels, 48);
+        api.setLatency(latency);
+        api.start();
+
+        try {
+            //Must be set before the TableLoader class is loaded.
+            System.setProperty("radioinfo.api", api.getApiUrl());
+
+            long start = System.nanoTime();
+            CountDownLatch loaded = new CountDownLatch(1);
+            long[] edt = new long[1];
+
+            //The view stands in for the GUI, which is built and shown
+            //before the controller is created.
+            HeadlessView[] view = new HeadlessView[1];
+            SwingUtilities.invokeAndWait(() -> view[0] = new HeadlessView());
+
+            SwingUtilities.invokeAndWait(() -> {
+                long created = System.nanoTime();
+                TableController controller = new TableController(view[0]);
+                edt[0] = System.nanoTime() - created;
+
+                controller.addRefreshListener(e -> loaded.countDown());
+            });
+
+            //The first refresh is started by the timer of the controller.
+            //Until it is shown, empty tasks are sent to the EDT to find
+            //the longest time a paint would have waited.
+            long stall = 0;
+            while(loaded.getCount() > 0) {
+                long sent = System.nanoTime();
+                SwingUtilities.invokeAndWait(() -> { });
+                stall = Math.max(stall, System.nanoTime() - sent);
+                Thread.sleep(1);
+            }
+            double first = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf(Locale.ROOT, "EDT held by the controller: "
+                    + "%.1f ms%n", edt[0] / 1e6);
+            System.out.printf(Locale.ROOT, "Longest EDT stall: %.1f ms%n",
+                    stall / 1e6);
+            System.out.printf(Locale.ROOT, "First refresh shown after: "
+                    + "%.1f ms%n", first);
+
+            for(String line : StartupTimeline.getLines()) {
+                System.out.println("startup " + line);
+            }
+        } finally {
+            api.stop();
+        }
+
+        System.exit(0);
+    }
+}
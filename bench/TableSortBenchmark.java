@@ -0,0 +1,145 @@
+import javax.swing.DefaultRowSorter;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableRowSorter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * Sorts and filters a table of programs from several days, once with a
+ * TableRowSorter over the shown strings and once with the
+ * ProgramTableSorter over the keys of the ProgramTableModel. The first
+ * sort by a column also computes its keys, later sorts reuse them.
+ *
+ * Run with: java TableSortBenchmark [programs]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class TableSortBenchmark {
+
+    private static final String[] WORDS = { "Ekot", "P1 Morgon",
+            "Vetenskapsradion", "Sommar i P1", "Musikguiden", "Ölandsnytt",
+            "Studio Ett", "Äntligen helg", "Kulturnytt", "Radiosporten" };
+
+    private static final String[] COLUMNS =
+            { "name", "start", "end", "length" };
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+        ProgramTableModel model = new ProgramTableModel();
+        model.setPrograms(programs(count));
+
+        System.out.printf("%d programs, ms per operation%n", count);
+        System.out.println("operation              strings      keys");
+
+        TableRowSorter<ProgramTableModel> strings =
+                new TableRowSorter<>(model);
+        ProgramTableSorter keys = new ProgramTableSorter(model);
+
+        for(int column = 0; column < COLUMNS.length; column++) {
+            String name = COLUMNS[column];
+
+            compare("first sort " + name, sort(strings, column, 1),
+                    sort(keys, column, 1));
+            compare("sort " + name, sort(strings, column, ROUNDS),
+                    sort(keys, column, ROUNDS));
+        }
+
+        RowFilter<ProgramTableModel, Integer> text =
+                RowFilter.regexFilter("(?i)nytt");
+        compare("filter text", time(ROUNDS, () -> {
+            strings.setRowFilter(null);
+            strings.setRowFilter(text);
+        }), time(ROUNDS, () -> {
+            keys.setFilter("", 0, 24 * 60);
+            keys.setFilter("nytt", 0, 24 * 60);
+        }));
+
+        //The strings have no time of day to filter by, so the shown start
+        //time is matched against the hours of the evening.
+        RowFilter<ProgramTableModel, Integer> evening =
+                RowFilter.regexFilter(" (1[89]|2[0-3]):", 1);
+        compare("filter evening", time(ROUNDS, () -> {
+            strings.setRowFilter(null);
+            strings.setRowFilter(evening);
+        }), time(ROUNDS, () -> {
+            keys.setFilter("", 0, 24 * 60);
+            keys.setFilter("", 18 * 60, 24 * 60);
+        }));
+
+        System.out.printf("%d and %d rows left after filtering%n",
+                strings.getViewRowCount(), keys.getViewRowCount());
+    }
+
+    /***
+     * Sorts by a column, ascending and descending in turn.
+     *
+     * @param sorter The sorter.
+     * @param column The column.
+     * @param rounds The number of sorts.
+     * @return The time in milliseconds per sort.
+     */
+    private static double sort(DefaultRowSorter<ProgramTableModel, ?> sorter,
+                               int column, int rounds) {
+        return time(rounds, () -> {
+            boolean ascending = sorter.getSortKeys().isEmpty()
+                    || sorter.getSortKeys().get(0).getSortOrder()
+                    != SortOrder.ASCENDING;
+
+            sorter.setSortKeys(List.of(new RowSorter.SortKey(column,
+                    ascending ? SortOrder.ASCENDING
+                            : SortOrder.DESCENDING)));
+        });
+    }
+
+    private static double time(int rounds, Runnable operation) {
+        long start = System.nanoTime();
+        for(int i = 0; i < rounds; i++) {
+            operation.run();
+        }
+
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+
+    private static void compare(String name, double strings, double keys) {
+        System.out.printf(Locale.ROOT, "%-20s %9.2f %9.2f%n", name,
+                strings, keys);
+    }
+
+    /***
+     * Creates programs of varying lengths after each other, as in a
+     * schedule of several days.
+     *
+     * @param count The number of programs.
+     * @return The programs sorted by start time.
+     */
+    private static List<Program> programs(int count) {
+        ArrayList<Program> programs = new ArrayList<>();
+        long start = System.currentTimeMillis() / 60000 * 60000;
+
+        for(int i = 0; i < count; i++) {
+            long end = start + (5 + (i * 37) % 115) * 60000L;
+
+            Program p = new Program();
+            p.setName(WORDS[(i * 7) % WORDS.length] + " " + (i % 97));
+            p.setStartMillis(start);
+            p.setEndMillis(end);
+            p.setStartTime(ProgramHandler.formatDateTime(
+                    ScheduleXml.formatUtc(start)));
+            p.setEndTime(ProgramHandler.formatDateTime(
+                    ScheduleXml.formatUtc(end)));
+            p.setEpisodeId(i + 1);
+            programs.add(p);
+
+            start = end;
+        }
+
+        return programs;
+    }
+}
@@ -0,0 +1,123 @@
+import javax.swing.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Checks that the matches of the watchlist found by a refresh that is
+ * replaced before it is shown are shown by the refresh replacing it, and
+ * that they are not shown again after that. The schedules are loaded from
+ * the ApiSimulator, whose descriptions contain the revision, and the
+ * watched word only matches the schedules of revision 1.
+ *
+ * Run with: java -Djava.awt.headless=true WatchlistAlertCheck
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class WatchlistAlertCheck {
+
+    public static void main(String[] args) throws Exception {
+        ApiSimulator api = new ApiSimulator(5, 48);
+        api.start();
+        Path words = Files.createTempFile("radioinfo-watchlist", ".txt");
+
+        boolean passed;
+        try {
+            Files.write(words, List.of("Version 1"), StandardCharsets.UTF_8);
+
+            //Must be set before the TableLoader class is loaded.
+            System.setProperty("radioinfo.api", api.getApiUrl());
+            System.setProperty("radioinfo.watchlist", words.toString());
+
+            //Every refresh loads the schedules of the current revision.
+            System.setProperty("radioinfo.segmentMaxAge", "0");
+
+            passed = run(api);
+        } finally {
+            api.stop();
+            Files.deleteIfExists(words);
+        }
+
+        System.out.println(passed ? "Matches of the replaced refresh were "
+                + "shown once" : "Matches were lost or shown twice");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /***
+     * Runs a first refresh without matches, a refresh with matches that
+     * is replaced once it has matched, and two more refreshes.
+     *
+     * @param api The started simulator.
+     * @return True if the matches were shown by the replacing refresh and
+     * not by the one after it.
+     * @throws Exception If the controller could not be run.
+     */
+    private static boolean run(ApiSimulator api) throws Exception {
+        HeadlessView view = new HeadlessView();
+        AtomicReference<TableController> controller =
+                new AtomicReference<>();
+        AtomicReference<CountDownLatch> finished = new AtomicReference<>(
+                new CountDownLatch(1));
+
+        //The controller starts the first refresh itself.
+        SwingUtilities.invokeAndWait(() -> {
+            controller.set(new TableController(view));
+            controller.get().addRefreshListener(
+                    e -> finished.get().countDown());
+        });
+        finished.get().await();
+        int before = onEdt(view);
+
+        //The refresh is replaced after it has matched and before its
+        //done is run, since the EDT is held until then.
+        api.setRevision(1);
+        finished.set(new CountDownLatch(1));
+        SwingUtilities.invokeAndWait(() -> {
+            SwingWorker<?, ?> replaced = controller.get().refresh(null);
+            long end = System.currentTimeMillis() + 30000;
+
+            while(!replaced.isDone() && System.currentTimeMillis() < end) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            controller.get().refresh();
+        });
+        finished.get().await();
+        int shown = onEdt(view) - before;
+
+        //The matches have now been reported.
+        finished.set(new CountDownLatch(1));
+        SwingUtilities.invokeAndWait(() -> controller.get().refresh());
+        finished.get().await();
+        int again = onEdt(view) - before - shown;
+
+        System.out.printf("before %d, shown after the replaced refresh %d, "
+                + "shown again %d%n", before, shown, again);
+
+        return before == 0 && shown > 0 && again == 0;
+    }
+
+    /***
+     * Counts the matches shown by the view, on the EDT where it is used.
+     *
+     * @param view The view.
+     * @return The number of matches shown.
+     * @throws Exception If the EDT is interrupted.
+     */
+    private static int onEdt(HeadlessView view) throws Exception {
+        int[] count = new int[1];
+        SwingUtilities.invokeAndWait(() ->
+                count[0] = view.getWatchlistMatches().size());
+
+        return count[0];
+    }
+}
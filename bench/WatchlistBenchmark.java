@@ -0,0 +1,160 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/***
+ * Measures the time it takes the Watchlist to match the schedules of all
+ * channels against a growing number of watched words, next to matching
+ * every word against every program one by one. The time of the watchlist
+ * should stay flat as words are added, and grow only with the number of
+ * programs.
+ *
+ * Run with: java WatchlistBenchmark [channels] [days]
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class WatchlistBenchmark {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long LENGTH = 1800_000L;
+
+    //Topics that descriptions and watched words are made of.
+    private static final int TOPICS = 50_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        ArrayList<Channel> channels = channels(count, days);
+        int programs = count * days * 48;
+
+        System.out.printf("%d channels, %d programs%n", count, programs);
+        System.out.println("   words  build ms  update ms  matches  "
+                + "naive ms");
+
+        for(int words : new int[] { 1, 10, 100, 1000, 10_000 }) {
+            List<String> patterns = patterns(words);
+
+            long build = System.nanoTime();
+            Watchlist watchlist = new Watchlist(patterns);
+            double buildTime = (System.nanoTime() - build) / 1e6;
+            int matches = watchlist.update(channels).size();
+
+            //Later updates do the same work but find nothing new.
+            int runs = 20;
+            for(int i = 0; i < runs; i++) {
+                watchlist.update(channels);
+            }
+            long start = System.nanoTime();
+            for(int i = 0; i < runs; i++) {
+                watchlist.update(channels);
+            }
+            double time = (System.nanoTime() - start) / 1e6 / runs;
+
+            String naive = "-";
+            if(words <= 1000) {
+                naive = String.format(Locale.ROOT, "%.1f",
+                        naive(channels, patterns));
+            }
+
+            System.out.printf(Locale.ROOT, "%8d %9.2f %10.2f %8d %9s%n",
+                    words, buildTime, time, matches, naive);
+        }
+    }
+
+    /***
+     * Matches every word against every program, the way it would be done
+     * without the automaton.
+     *
+     * @param channels The channels.
+     * @param patterns The words.
+     * @return The time of one match of all programs in milliseconds.
+     */
+    private static double naive(List<Channel> channels,
+                                List<String> patterns) {
+        int runs = 3;
+        int found = 0;
+        long start = System.nanoTime();
+
+        for(int run = 0; run < runs; run++) {
+            for(Channel channel : channels) {
+                for(Program p : channel.getPrograms()) {
+                    String name = p.getName().toLowerCase();
+                    String description = p.getDescription().toLowerCase();
+
+                    for(String pattern : patterns) {
+                        String word = pattern.toLowerCase();
+                        if(name.contains(word)
+                                || description.contains(word)) {
+                            found++;
+                        }
+                    }
+                }
+            }
+        }
+
+        if(found < 0) {
+            System.out.println(found);
+        }
+
+        return (System.nanoTime() - start) / 1e6 / runs;
+    }
+
+    /***
+     * Creates watched words about random topics.
+     *
+     * @param words The number of words.
+     * @return The words.
+     */
+    private static List<String> patterns(int words) {
+        Random random = new Random(words);
+        ArrayList<String> patterns = new ArrayList<>();
+
+        for(int i = 0; i < words; i++) {
+            patterns.add("Ämne " + random.nextInt(TOPICS) + ".");
+        }
+
+        return patterns;
+    }
+
+    /***
+     * Creates channels with a program every 30 minutes, each about a few
+     * random topics.
+     *
+     * @param count The number of channels.
+     * @param days The number of days.
+     * @return The channels.
+     */
+    private static ArrayList<Channel> channels(int count, int days) {
+        Random random = new Random(1);
+        ArrayList<Channel> channels = new ArrayList<>();
+
+        for(int c = 1; c <= count; c++) {
+            ArrayList<Program> programs = new ArrayList<>();
+
+            for(int i = 0; i < days * 48; i++) {
+                Program p = new Program();
+                p.setStartMillis(START + i * LENGTH);
+                p.setEndMillis(START + (i + 1) * LENGTH);
+                p.setEpisodeId(c * 100_000L + i);
+                p.setName("Program " + i % 40 + " på kanal " + c);
+                p.setDescription("Nyheter, musik och samtal om ämne "
+                        + random.nextInt(TOPICS) + ", ämne "
+                        + random.nextInt(TOPICS) + " och ämne "
+                        + random.nextInt(TOPICS) + ".");
+
+                programs.add(p);
+            }
+
+            Channel channel = new Channel();
+            channel.setId(c);
+            channel.setName("Kanal " + c);
+            channel.setPrograms(programs);
+            channels.add(channel);
+        }
+
+        return channels;
+    }
+}
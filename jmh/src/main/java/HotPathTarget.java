@@ -0,0 +1,139 @@
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+import radioinfo.jmh.HotPaths;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * The hot paths of RadioInfo benchmarked by radioinfo.jmh.HotPathBenchmark,
+ * the same as those of the HotPathBenchmark in bench. The xml is read from
+ * the fixtures in bench/fixtures.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class HotPathTarget implements HotPaths {
+
+    private byte[] channelXml;
+    private byte[] programXml;
+
+    private List<Channel> channels;
+    private List<Program> programs;
+    private ArrayList<String> times;
+
+    private ScheduleWindow window;
+    private long now;
+
+    private ProgramTableModel shown;
+    private ArrayList<Program> reloaded;
+
+    @Override
+    public void load(Path fixtures) throws Exception {
+        channelXml = Files.readAllBytes(fixtures.resolve("channels.xml"));
+        programXml = Files.readAllBytes(
+                fixtures.resolve("scheduledepisodes.xml"));
+
+        ChannelHandler channelHandler = new ChannelHandler();
+        parse(channelXml, channelHandler);
+        channels = channelHandler.getChannels();
+
+        ProgramHandler programHandler = new ProgramHandler();
+        parse(programXml, programHandler);
+        programs = programHandler.getPrograms();
+
+        times = new ArrayList<>();
+        for(Program p : programs) {
+            times.add(ScheduleXml.formatUtc(p.getStartMillis()));
+        }
+
+        window = ScheduleWindow.fromProperties();
+        now = programs.get(programs.size() / 2).getStartMillis();
+
+        shown = new ProgramTableModel();
+        shown.setPrograms(programs);
+        reloaded = new ArrayList<>(programs);
+    }
+
+    @Override
+    public int getPrograms() {
+        return programs.size();
+    }
+
+    @Override
+    public int getChannels() {
+        return channels.size();
+    }
+
+    @Override
+    public int parseChannels() throws Exception {
+        ChannelHandler handler = new ChannelHandler();
+        parse(channelXml, handler);
+        return handler.getChannels().size();
+    }
+
+    @Override
+    public int parsePrograms() throws Exception {
+        ProgramHandler handler = new ProgramHandler();
+        parse(programXml, handler);
+        return handler.getPrograms().size();
+    }
+
+    @Override
+    public int parseProgramsInWindow() throws Exception {
+        ProgramHandler handler = new ProgramHandler(window);
+        parse(programXml, handler);
+        return handler.getPrograms().size();
+    }
+
+    @Override
+    public String formatDateTime(int program) {
+        return ProgramHandler.formatDateTime(times.get(program));
+    }
+
+    @Override
+    public long parseDateTime(int program) {
+        return ProgramHandler.parseDateTime(times.get(program));
+    }
+
+    @Override
+    public boolean isWithinRange(int program) {
+        return window.contains(programs.get(program).getStartMillis(), now);
+    }
+
+    @Override
+    public int populateTable() {
+        ProgramTableModel model = new ProgramTableModel();
+        model.setPrograms(programs);
+        return model.getRowCount();
+    }
+
+    @Override
+    public int reloadTable() {
+        shown.setPrograms(reloaded);
+        return shown.getRowCount();
+    }
+
+    @Override
+    public int lookupChannel(int channel) {
+        return TableController.indexOfChannel(channels,
+                channels.get(channel).getId());
+    }
+
+    /***
+     * Parses xml the way the TableLoader does.
+     *
+     * @param xml The xml file.
+     * @param handler The handler to parse with.
+     * @throws Exception If the xml could not be parsed.
+     */
+    private static void parse(byte[] xml, DefaultHandler handler)
+            throws Exception {
+        SAXParserFactory.newInstance().newSAXParser().parse(
+                new InputSource(new ByteArrayInputStream(xml)), handler);
+    }
+}
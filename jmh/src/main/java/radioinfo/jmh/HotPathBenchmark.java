@@ -0,0 +1,109 @@
+package radioinfo.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * JMH benchmarks of the hot paths of RadioInfo: parsing the channels and
+ * programs with the SAX handlers, converting the times of the programs,
+ * filling the table of programs and finding the selected channel in the
+ * TableController. The benchmarks are those of the HotPathBenchmark in
+ * bench, run by JMH with warmup and forks of their own.
+ *
+ * Build and run from the project directory with:
+ *   mvn -B package
+ *   java -jar jmh/target/benchmarks.jar -rf json -rff jmh-result.json
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HotPathBenchmark {
+
+    private HotPaths paths;
+    private int programs;
+    private int channels;
+    private int next;
+
+    /***
+     * Loads the fixtures, from bench/fixtures or the directory given by
+     * the system property bench.fixtures.
+     *
+     * @throws Exception If the fixtures could not be loaded.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        paths = (HotPaths) Class.forName("HotPathTarget")
+                .getDeclaredConstructor().newInstance();
+        paths.load(Paths.get(System.getProperty("bench.fixtures",
+                "bench/fixtures")));
+
+        programs = paths.getPrograms();
+        channels = paths.getChannels();
+    }
+
+    @Benchmark
+    public int parseChannels() throws Exception {
+        return paths.parseChannels();
+    }
+
+    @Benchmark
+    public int parsePrograms() throws Exception {
+        return paths.parsePrograms();
+    }
+
+    @Benchmark
+    public int parseProgramsInWindow() throws Exception {
+        return paths.parseProgramsInWindow();
+    }
+
+    @Benchmark
+    public String formatDateTime() {
+        next = (next + 1) % programs;
+        return paths.formatDateTime(next);
+    }
+
+    @Benchmark
+    public long parseDateTime() {
+        next = (next + 1) % programs;
+        return paths.parseDateTime(next);
+    }
+
+    @Benchmark
+    public boolean isWithinRange() {
+        next = (next + 1) % programs;
+        return paths.isWithinRange(next);
+    }
+
+    @Benchmark
+    public int populateTable() {
+        return paths.populateTable();
+    }
+
+    @Benchmark
+    public int reloadTable() {
+        return paths.reloadTable();
+    }
+
+    @Benchmark
+    public int lookupChannel() {
+        next = (next + 1) % channels;
+        return paths.lookupChannel(next);
+    }
+}
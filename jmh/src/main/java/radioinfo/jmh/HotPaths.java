@@ -0,0 +1,112 @@
+package radioinfo.jmh;
+
+import java.nio.file.Path;
+
+/***
+ * The hot paths of RadioInfo that are benchmarked with JMH. RadioInfo is
+ * written in the default package, which classes in a package can not
+ * refer to, while JMH only runs benchmarks in a package. The paths are
+ * therefore implemented by HotPathTarget in the default package, and the
+ * benchmarks call it through this interface.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public interface HotPaths {
+
+    /***
+     * Reads the fixtures and parses them once for the benchmarks of the
+     * times, the table and the channels.
+     *
+     * @param fixtures The directory of the fixtures.
+     * @throws Exception If the fixtures could not be read.
+     */
+    void load(Path fixtures) throws Exception;
+
+    /***
+     * Get the number of parsed programs.
+     *
+     * @return The number of programs.
+     */
+    int getPrograms();
+
+    /***
+     * Get the number of parsed channels.
+     *
+     * @return The number of channels.
+     */
+    int getChannels();
+
+    /***
+     * Parses the channels with the ChannelHandler.
+     *
+     * @return The number of channels.
+     * @throws Exception If the xml could not be parsed.
+     */
+    int parseChannels() throws Exception;
+
+    /***
+     * Parses the programs with the ProgramHandler.
+     *
+     * @return The number of programs.
+     * @throws Exception If the xml could not be parsed.
+     */
+    int parsePrograms() throws Exception;
+
+    /***
+     * Parses the programs with the ProgramHandler, keeping those in the
+     * window of the schedule.
+     *
+     * @return The number of programs kept.
+     * @throws Exception If the xml could not be parsed.
+     */
+    int parseProgramsInWindow() throws Exception;
+
+    /***
+     * Formats the start time of a program for the table.
+     *
+     * @param program The index of the program.
+     * @return The formatted time.
+     */
+    String formatDateTime(int program);
+
+    /***
+     * Parses the start time of a program.
+     *
+     * @param program The index of the program.
+     * @return The time in milliseconds.
+     */
+    long parseDateTime(int program);
+
+    /***
+     * Checks if a program starts within the window of the schedule.
+     *
+     * @param program The index of the program.
+     * @return True if it does.
+     */
+    boolean isWithinRange(int program);
+
+    /***
+     * Fills a new table model with the programs.
+     *
+     * @return The number of rows.
+     */
+    int populateTable();
+
+    /***
+     * Replaces the programs of a filled table model with the same
+     * programs.
+     *
+     * @return The number of rows.
+     */
+    int reloadTable();
+
+    /***
+     * Finds a channel in the list of channels the way the TableController
+     * does.
+     *
+     * @param channel The index of the channel.
+     * @return The index found.
+     */
+    int lookupChannel(int channel);
+}
@@ -0,0 +1,155 @@
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/***
+ * Compact storage of the programs of a schedule. The start and end times
+ * are kept in primitive arrays and the names, descriptions and image urls
+ * are shared through a string pool, so a name repeated over many days and
+ * channels is only stored once. The formatted start and end times are not
+ * stored at all. A Program is created from the columns each time one is
+ * read from the list.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class CompactSchedule extends AbstractList<Program>
+        implements RandomAccess {
+
+    private static final DateTimeFormatter LOCAL_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd   HH:mm:ss")
+                    .withZone(ZoneId.of("Europe/Stockholm"));
+
+    private long[] starts;
+    private long[] ends;
+    private long[] episodeIds;
+    private String[] names;
+    private String[] descriptions;
+    private String[] images;
+
+    /***
+     * Constructor, copies the given programs into columns.
+     *
+     * @param programs The programs to store.
+     * @param pool The pool to share the strings of the programs through.
+     */
+    public CompactSchedule(List<Program> programs, StringPool pool) {
+        int size = programs.size();
+
+        starts = new long[size];
+        ends = new long[size];
+        episodeIds = new long[size];
+        names = new String[size];
+        descriptions = new String[size];
+        images = new String[size];
+
+        for(int i = 0; i < size; i++) {
+            Program p = programs.get(i);
+
+            starts[i] = p.getStartMillis();
+            ends[i] = p.getEndMillis();
+            episodeIds[i] = p.getEpisodeId();
+            names[i] = pool.get(p.getName());
+            descriptions[i] = pool.get(p.getDescription());
+            images[i] = pool.get(p.getImage());
+        }
+    }
+
+    /***
+     * Stores the given programs compactly unless they already are.
+     *
+     * @param programs The programs to store.
+     * @param pool The pool to share the strings through.
+     * @return The compact schedule.
+     */
+    public static CompactSchedule of(List<Program> programs,
+                                     StringPool pool) {
+        if(programs instanceof CompactSchedule) {
+            return (CompactSchedule) programs;
+        }
+
+        return new CompactSchedule(programs, pool);
+    }
+
+    /***
+     * Creates the program at the given position of the schedule.
+     *
+     * @param i The position of the program.
+     * @return A new program with the stored values.
+     */
+    @Override
+    public Program get(int i) {
+        Program p = new Program();
+
+        p.setName(names[i]);
+        p.setDescription(descriptions[i]);
+        p.setImage(images[i]);
+        p.setStartMillis(starts[i]);
+        p.setEndMillis(ends[i]);
+        p.setEpisodeId(episodeIds[i]);
+        p.setStartTime(format(starts[i]));
+        p.setEndTime(format(ends[i]));
+
+        return p;
+    }
+
+    /***
+     * Get the episode id of the program at the given position without
+     * creating the program.
+     *
+     * @param i The position of the program.
+     * @return The episode id, 0 if it is unknown.
+     */
+    public long getEpisodeId(int i) {
+        return episodeIds[i];
+    }
+
+    /***
+     * Get the start time of the program at the given position without
+     * creating the program.
+     *
+     * @param i The position of the program.
+     * @return The start time in milliseconds since the epoch.
+     */
+    public long getStartMillis(int i) {
+        return starts[i];
+    }
+
+    /***
+     * Get the end time of the program at the given position without
+     * creating the program.
+     *
+     * @param i The position of the program.
+     * @return The end time in milliseconds since the epoch.
+     */
+    public long getEndMillis(int i) {
+        return ends[i];
+    }
+
+    /***
+     * Get the number of programs.
+     *
+     * @return The number of programs.
+     */
+    @Override
+    public int size() {
+        return starts.length;
+    }
+
+    /***
+     * Formats a time the same way as the ProgramHandler.
+     *
+     * @param millis The time in milliseconds since the epoch.
+     * @return The time in Swedish time, or "-" if it is unknown.
+     */
+    private static String format(long millis) {
+        if(millis == 0) {
+            return "-";
+        }
+
+        return LOCAL_FORMAT.format(Instant.ofEpochMilli(millis));
+    }
+}
@@ -0,0 +1,157 @@
+import javax.swing.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/***
+ * Sends updates from background threads to the gui once per frame instead
+ * of one invokeLater per update. Every update has a key, and an update
+ * that has not been applied yet is replaced by a newer one with the same
+ * key, so that only the latest state of for example a channel is drawn.
+ * The pending updates are applied in the order they were last posted, in
+ * one pass on the EDT that stops when the time budget of the frame is
+ * used up. The rest are applied in the next frame.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class EdtDispatcher {
+
+    private final LinkedHashMap<Object, Runnable> pending;
+    private final Timer timer;
+    private final long budget;
+    private boolean scheduled;
+
+    /***
+     * Constructor.
+     *
+     * @param frameMillis The time in milliseconds between two passes.
+     * @param budgetMillis The time in milliseconds a pass may hold the
+     *                     EDT. At least one update is applied per pass.
+     */
+    public EdtDispatcher(int frameMillis, int budgetMillis) {
+        pending = new LinkedHashMap<>();
+        budget = budgetMillis * 1000000L;
+
+        timer = new Timer(frameMillis, e -> applyPending());
+        timer.setRepeats(false);
+        //A pass that takes longer than a frame starts the timer again
+        //before its own event is done, which would be coalesced away.
+        timer.setCoalesce(false);
+    }
+
+    /***
+     * Creates a dispatcher with the frame and budget given by the system
+     * properties radioinfo.frameMillis and radioinfo.frameBudget, or 16
+     * ms frames of which at most 8 ms are used by default.
+     *
+     * @return The dispatcher.
+     */
+    public static EdtDispatcher fromProperties() {
+        return new EdtDispatcher(
+                Integer.getInteger("radioinfo.frameMillis", 16),
+                Integer.getInteger("radioinfo.frameBudget", 8));
+    }
+
+    /***
+     * Posts an update to be applied on the EDT in the next frame. A
+     * pending update with the same key is dropped. May be called from any
+     * thread.
+     *
+     * @param key The key of the state that is updated.
+     * @param update The update.
+     */
+    public void post(Object key, Runnable update) {
+        synchronized(pending) {
+            //Removed first so that the order is that of the latest post.
+            pending.remove(key);
+            pending.put(key, update);
+
+            if(!scheduled) {
+                scheduled = true;
+                timer.start();
+            }
+        }
+    }
+
+    /***
+     * Drops a pending update, if there is one. May be called from any
+     * thread.
+     *
+     * @param key The key of the update.
+     */
+    public void remove(Object key) {
+        synchronized(pending) {
+            pending.remove(key);
+        }
+    }
+
+    /***
+     * Get the number of updates waiting to be applied.
+     *
+     * @return The number of updates.
+     */
+    public int getPendingCount() {
+        synchronized(pending) {
+            return pending.size();
+        }
+    }
+
+    /***
+     * Applies pending updates until the budget of the frame is used up
+     * and schedules the next frame if any are left. Called on the EDT by
+     * the timer.
+     */
+    private void applyPending() {
+        long start = System.nanoTime();
+        RadioInfoEvents.EdtUpdate event = new RadioInfoEvents.EdtUpdate();
+        event.begin();
+
+        int applied = 0;
+        try {
+            Runnable update;
+            while((update = takeOldest()) != null) {
+                update.run();
+                applied++;
+
+                if(System.nanoTime() - start >= budget) {
+                    break;
+                }
+            }
+        } finally {
+            //Also when an update fails, so that the rest are applied.
+            synchronized(pending) {
+                if(pending.isEmpty()) {
+                    scheduled = false;
+                }
+                else {
+                    timer.start();
+                }
+            }
+        }
+
+        RadioInfoMetrics.get().recordEdtUpdate(System.nanoTime() - start);
+        if(event.shouldCommit()) {
+            event.kind = "dispatch";
+            event.rows = applied;
+            event.commit();
+        }
+    }
+
+    /***
+     * Takes the oldest pending update.
+     *
+     * @return The update, or null if there is none.
+     */
+    private Runnable takeOldest() {
+        synchronized(pending) {
+            Iterator<Runnable> it = pending.values().iterator();
+            if(!it.hasNext()) {
+                return null;
+            }
+
+            Runnable update = it.next();
+            it.remove();
+            return update;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+
+/***
+ * Handles the parsing of the xml file of a single episode on
+ * SverigesRadio, as returned by episodes/get. Only the title, description
+ * and image of the episode itself are read, not those of its broadcasts
+ * and podcast files.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class EpisodeHandler extends DefaultHandler
+        implements PagedHandler {
+
+    private StringBuilder text = new StringBuilder();
+    private ArrayList<Program> episodes;
+    private Program currentEpisode;
+    private int depth;
+    private int episodeDepth;
+
+    /***
+     * Called when the start tag of the xml file is read.
+     * Used here as a constructor for the class.
+     */
+    @Override
+    public void startDocument() {
+        episodes = new ArrayList<>();
+        depth = 0;
+    }
+
+    /***
+     * Gets called when the parser reads the start tag of an element
+     * in the xml file being parsed.
+     *
+     * @param uri the namespace uri or an empty string if the element has no
+     *            namespace uri.
+     * @param localName The local name of the element or an empty string if
+     *                  no namespace processing is being done.
+     * @param qName The name of the element.
+     * @param attributes The value of the attributes of the element.
+     */
+    @Override
+    public void startElement(String uri, String localName, String qName,
+                             Attributes attributes) {
+        text.setLength(0);
+        depth++;
+
+        if(qName.equals("episode")) {
+            currentEpisode = new Program();
+            episodeDepth = depth;
+
+            try {
+                currentEpisode.setEpisodeId(Long.parseLong(
+                        attributes.getValue("id")));
+            } catch (NumberFormatException e) {
+                //Episodes without a readable id keep 0.
+            }
+        }
+    }
+
+    /***
+     * Gets called when the parser reads the end tag of an element
+     * in the xml file being parsed.
+     *
+     * @param uri The namespace uri or an empty string if the element has
+     *            no namespace uri.
+     * @param localName The local name of the element or an empty
+     *                  string if no namespace processing is being done
+     * @param qName the name of the element.
+     */
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        //Elements of the broadcasts and files of the episode are nested
+        //deeper.
+        boolean ofEpisode = currentEpisode != null
+                && depth == episodeDepth + 1;
+        depth--;
+
+        if(qName.equals("episode") && currentEpisode != null) {
+            episodes.add(currentEpisode);
+            currentEpisode = null;
+            return;
+        }
+
+        if(!ofEpisode) {
+            return;
+        }
+
+        switch (qName) {
+            case "title" :
+                currentEpisode.setName(text.toString());
+                break;
+            case "description" :
+                currentEpisode.setDescription(text.toString());
+                break;
+            case "imageurl" :
+                currentEpisode.setImage(text.toString());
+                break;
+        }
+    }
+
+    /***
+     * Gets the string stored between the current element tags.
+     *
+     * @param ch The array of characters (string) containing the data.
+     * @param start The start index of the data in the array of characters ch.
+     * @param length The length of the data in the array of characters ch
+     *               beginning at start.
+     */
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        text.append(ch, start, length);
+    }
+
+    /***
+     * Get the parsed episodes, each with its id, title, description and
+     * image url.
+     *
+     * @return The episodes.
+     */
+    public ArrayList<Program> getEpisodes() {
+        return episodes;
+    }
+
+    /***
+     * Get the total number of pages, always 1 for a single episode.
+     *
+     * @return 1.
+     */
+    @Override
+    public int getTotalPages() {
+        return 1;
+    }
+}
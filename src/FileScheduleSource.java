@@ -0,0 +1,103 @@
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/***
+ * Reads channels and schedules from xml files in a directory, in the same
+ * format as the SverigesRadio api. The channels are read from
+ * channels.xml and the programs of each channel from <id>.xml, for example
+ * a mirror of the api, a saved copy or test fixtures.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class FileScheduleSource implements ScheduleSource {
+
+    private Path directory;
+    private ScheduleWindow window;
+    private volatile boolean cancelled;
+
+    /***
+     * Constructor.
+     *
+     * @param directory The directory of the xml files.
+     * @param window The window of programs to keep around the current
+     *               time.
+     */
+    public FileScheduleSource(Path directory, ScheduleWindow window) {
+        this.directory = directory;
+        this.window = window;
+    }
+
+    @Override
+    public String getName() {
+        return "file:" + directory;
+    }
+
+    @Override
+    public List<Channel> fetchChannels()
+            throws ParserConfigurationException, SAXException, IOException {
+        ChannelHandler handler = new ChannelHandler();
+        parse(directory.resolve("channels.xml"), handler);
+
+        return new ArrayList<>(handler.getChannels());
+    }
+
+    @Override
+    public List<Program> fetchPrograms(int channelId, long now)
+            throws ParserConfigurationException, SAXException, IOException {
+        Path file = directory.resolve(channelId + ".xml");
+        if(!Files.exists(file)) {
+            return null;
+        }
+
+        ProgramHandler handler = new ProgramHandler();
+        parse(file, handler);
+
+        ArrayList<Program> programs = new ArrayList<>();
+        for(Program p : handler.getPrograms()) {
+            if(window.contains(p.getStartMillis(), now)) {
+                programs.add(p);
+            }
+        }
+        programs.sort(Comparator.comparingLong(Program::getStartMillis));
+
+        return programs;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /***
+     * Parses an xml file with the given handler.
+     *
+     * @param file The xml file.
+     * @param handler The handler to parse with.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException If the file could not be parsed.
+     * @throws IOException If the file could not be read or loading has
+     *                     been cancelled.
+     */
+    private void parse(Path file, DefaultHandler handler)
+            throws ParserConfigurationException, SAXException, IOException {
+        if(cancelled || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Hämtningen avbröts");
+        }
+
+        try (InputStream in = Files.newInputStream(file)) {
+            SAXParserFactory.newInstance().newSAXParser().parse(in, handler);
+        }
+    }
+}
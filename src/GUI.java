@@ -1,437 +1,939 @@
-import javax.swing.*;
-import javax.swing.border.TitledBorder;
-import javax.swing.table.DefaultTableModel;
-import java.awt.*;
-import java.awt.event.ActionListener;
-import java.awt.event.MouseListener;
-import java.awt.image.BufferedImage;
-
-/***
- * Gui class that handles gui components for RadioInfo.
- *
- * @author Leo Juneblad (c19lsd)
- * @version 1.0
- */
-public class GUI {
-
-    private JFrame tableFrame;
-    private JFrame channelFrame;
-    private JFrame programFrame;
-
-    private JMenuItem uppdatera;
-
-    private JTable table;
-    private JScrollPane scrollPane;
-
-    private JList<Channel> list;
-    private JScrollPane listPane;
-
-    private JPanel panel;
-    private JPanel programPanel;
-
-    private JTextArea programInfo;
-
-    private JLabel labelImage;
-    private JLabel programName;
-
-    private String infoMessage = "Skapat av:\n"
-            + "Leo Juneblad\n"
-            + "För: Applikationsutveckling i Java - Umeå Universitet";
-
-    private String helpMessage = "Hur programmet används:\n\n"
-            + "I tabellen på startsidan visas namnen, start tider\n"
-            + "och slut tider för program i den aktuella kanalen.\n"
-            + "Programmen som visas är de som spelats 12 timmar innan\n"
-            + "nu och 12 timmar efter nu. Tabellen uppdateras varje timme.\n"
-            + "Namnet på den aktuella kanalen visas ovanför tabellen.\n\n"
-            + "För att välja en ny kanal klickar du Kanaler->Välj Kanal.\n\n"
-            + "För att manuelt uppdatera tabellen innan en timme har gått\n"
-            + "klickar du på Alternativ -> Uppdatera.";
-
-    /***
-     * Constructor, build the needed JFrames.
-     */
-    public GUI() {
-        buildTableFrame();
-        buildChannelFrame();
-        buildProgramFrame();
-    }
-
-    /***
-     * Makes the main JFrame visible.
-     */
-    public void setVisible() {
-        tableFrame.setVisible(true);
-    }
-
-    /***
-     * Builds the main JFrame containing the table and the menu.
-     */
-    private void buildTableFrame() {
-        tableFrame = new JFrame("RadioInfo");
-        tableFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        tableFrame.setMinimumSize(new Dimension(380, 300));
-        tableFrame.setLayout(new BorderLayout());
-
-        buildMenu();
-        buildTable();
-
-        tableFrame.add(panel, BorderLayout.CENTER);
-        tableFrame.setJMenuBar(buildMenu());
-        tableFrame.pack();
-    }
-
-    /***
-     * Builds the JFrame containing the list of channels.
-     */
-    private void buildChannelFrame() {
-        channelFrame = new JFrame("Välj Kanal");
-        channelFrame.setMinimumSize(new Dimension(380, 250));
-
-        buildList();
-
-        channelFrame.add(listPane);
-    }
-
-    /***
-     * Builds the JFrame that contains information about the selected program.
-     */
-    private void buildProgramFrame() {
-        programFrame = new JFrame("Program");
-        programFrame.setMinimumSize(new Dimension(380, 250));
-        programFrame.setLayout(new BorderLayout());
-
-        programFrame.add(buildProgramPanel());
-    }
-
-    /***
-     * Initializes the list of channels and adds it to a scrollpane.
-     */
-    private void buildList() {
-        list = new JList<>();
-        DefaultListModel<Channel> listModel = new DefaultListModel<>();
-
-        list.setModel(listModel);
-        listPane = new JScrollPane(list);
-    }
-
-    /***
-     * Adds the given channel to the jlist of channels.
-     *
-     * @param channel The channel to be added to the list.
-     */
-    public void addChannelToList(Channel channel) {
-        DefaultListModel<Channel> model =
-                (DefaultListModel<Channel>) list.getModel();
-
-        model.addElement(channel);
-    }
-
-    /***
-     * Gets the highlighted channel in the jlist of channels.
-     *
-     * @return The selected channel.
-     */
-    public Channel getSelectedChannel() {
-        return list.getSelectedValue();
-    }
-
-    /***
-     * Gets the name of the selected program in the table of programs.
-     *
-     * @return The name of the selected program in the table.
-     */
-    public String getSelectedProgram() {
-        return (String) table.getValueAt(table.getSelectedRow(), 0);
-    }
-
-    /***
-     * Removes all entries from the table of programs.
-     */
-    public void clearTable() {
-        DefaultTableModel tableModel = (DefaultTableModel) table.getModel();
-
-        tableModel.setRowCount(0);
-    }
-
-    /***
-     * Removes all elements from the list of channels.
-     */
-    public void clearList() {
-        DefaultListModel listModel = (DefaultListModel) list.getModel();
-
-        listModel.removeAllElements();
-    }
-
-    /***
-     * Adds a program to the table of programs.
-     *
-     * @param data An array of values to be entered on a row in the list.
-     */
-    public void addProgram(String[] data) {
-        DefaultTableModel tableModel = (DefaultTableModel) table.getModel();
-
-        tableModel.fireTableDataChanged();
-
-        tableModel.addRow(data);
-    }
-
-    /***
-     * Creates the jtable to hold the programs and adds it to a scrollpane.
-     */
-    private void buildTable () {
-
-        panel = new JPanel();
-        panel.setLayout(new BorderLayout());
-
-        String[][] data = {};
-        String[] names = { "Program", "Starttid", "Sluttid" };
-
-        DefaultTableModel model = new DefaultTableModel(data, names) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-
-        table = new JTable();
-        table.setModel(model);
-
-        scrollPane = new JScrollPane(table);
-
-        panel.add(scrollPane, BorderLayout.CENTER);
-        panel.setBorder(BorderFactory.createTitledBorder(
-                BorderFactory.createEtchedBorder(), "P1",
-                TitledBorder.CENTER, TitledBorder.TOP));
-
-    }
-
-    /***
-     * Initializes the label to hold the program icon.
-     *
-     * @return The label to hold an image.
-     */
-    public JLabel buildImage() {
-        labelImage = new JLabel();
-
-        return labelImage;
-    }
-
-    /***
-     * Adds menus to the menubar.
-     *
-     * @return The jmenubar that contains the menus that have been added.
-     */
-    private JMenuBar buildMenu() {
-        JMenuBar menuBar = new JMenuBar();
-
-        menuBar.add(buildAboutMenu());
-        menuBar.add(buildChannelMenu());
-        menuBar.add(buildOptionsMenu());
-
-        return menuBar;
-    }
-
-    /***
-     * Create the menu that contains the "select" menu button.
-     *
-     * @return The menu containing the relevant buttons.
-     */
-    private JMenu buildChannelMenu() {
-        JMenu kanaler = new JMenu("Kanaler");
-
-        JMenuItem pickChannels = new JMenuItem("Välj Kanal");
-
-        pickChannels.addActionListener(e -> {
-            openChannelSelect();
-        });
-
-        kanaler.add(pickChannels);
-
-        return kanaler;
-    }
-
-    /***
-     * Puts together the options menu.
-     *
-     * @return the options menu.
-     */
-    private JMenu buildOptionsMenu() {
-        JMenu alternativ = new JMenu("Alternativ");
-
-        uppdatera = new JMenuItem("Uppdatera");
-
-        alternativ.add(uppdatera);
-
-        return alternativ;
-    }
-
-    /***
-     * Puts together the about menu.
-     *
-     * @return the about menu.
-     */
-    private JMenu buildAboutMenu() {
-        JMenu om = new JMenu("Om");
-
-        JMenuItem info = new JMenuItem("Info");
-
-        info.addActionListener(e -> {
-            JOptionPane.showMessageDialog(tableFrame, infoMessage, "Om",
-                    JOptionPane.PLAIN_MESSAGE);
-        });
-
-        JMenuItem help = new JMenuItem("Hjälp");
-
-        help.addActionListener(e -> {
-            JOptionPane.showMessageDialog(tableFrame, helpMessage, "Hjälp",
-                    JOptionPane.PLAIN_MESSAGE);
-        });
-
-        om.add(info);
-        om.add(help);
-
-        return om;
-    }
-
-    /***
-     * Puts together the panel that contains information about a
-     * selected program.
-     *
-     * @return The jpanel with program information.
-     */
-    private JPanel buildProgramPanel() {
-        programPanel = new JPanel();
-
-        programInfo = new JTextArea();
-        programName = new JLabel();
-
-        programInfo.setLineWrap(true);
-        programInfo.setWrapStyleWord(true);
-        programInfo.setEditable(false);
-
-        programPanel.setLayout(new BorderLayout());
-
-        programPanel.add(programName, BorderLayout.NORTH);
-        programPanel.add(buildImage(), BorderLayout.CENTER);
-        programPanel.add(programInfo, BorderLayout.SOUTH);
-
-        programPanel.setBorder(BorderFactory.createTitledBorder(
-                BorderFactory.createEtchedBorder(), "Program",
-                TitledBorder.CENTER, TitledBorder.TOP));
-
-        return programPanel;
-    }
-
-    /***
-     * Displays the information about the program in the appropriate
-     * swing elements.
-     *
-     * @param info The description of the program displayed.
-     * @param startTime The start time of the program to be displayed.
-     * @param endTime The end time of the program to be displayed.
-     */
-    public void setProgramInfo(String info, String startTime,
-                               String endTime) {
-        programName.setText(startTime + " -- " + endTime);
-        programInfo.setText(info);
-    }
-
-    /***
-     * Sets the the title of the jpanel that contains information about
-     * the program.
-     *
-     * @param name The string to set the title to.
-     */
-    public void setProgramName(String name) {
-        programPanel.setBorder(BorderFactory.createTitledBorder(
-                BorderFactory.createEtchedBorder(), name,
-                TitledBorder.CENTER, TitledBorder.TOP));
-    }
-
-    /***
-     * Displays the channel select frame.
-     */
-    public void openChannelSelect() {
-        channelFrame.setLocation(tableFrame.getLocation());
-        channelFrame.setVisible(true);
-    }
-
-    /***
-     * Removes the channel select frame.
-     */
-    public void closeChannelSelect() {
-        channelFrame.setVisible(false);
-    }
-
-    /***
-     * Opens the program frame with information about the selected program.
-     * @param channel The channel containing the selected program.
-     */
-    public void openSelectedProgram(String channel) {
-        programFrame.setTitle(channel);
-        programFrame.setLocation(tableFrame.getLocation());
-        programFrame.setVisible(true);
-    }
-
-    /***
-     * Sets the image icon to be displayed in the program frame.
-     *
-     * @param bufImage The image to display.
-     */
-    public void setImage(BufferedImage bufImage) {
-        Image image = bufImage.getScaledInstance(100, 100,
-                Image.SCALE_SMOOTH);
-
-        labelImage.setIcon(new ImageIcon(image));
-    }
-
-    /***
-     * Sets the title of the jpanel containing the table of programs.
-     *
-     * @param channel The string to be set as a title preferably the
-     *                name of the current channel.
-     */
-    public void setTitle(String channel) {
-        panel.setBorder(BorderFactory.createTitledBorder(
-                BorderFactory.createEtchedBorder(), channel,
-                TitledBorder.CENTER, TitledBorder.TOP));
-    }
-
-
-    /***
-     * Displays an error message.
-     *
-     * @param error The message to be displayed.
-     */
-    public void displayError(String error) {
-        JOptionPane.showMessageDialog(tableFrame, error);
-    }
-
-    /***
-     * Adds an action listener to the update menu item.
-     *
-     * @param actionListener The action listener to be added.
-     */
-    public void addUpdateListener(ActionListener actionListener) {
-        uppdatera.addActionListener(actionListener);
-    }
-
-    /***
-     * Adds a mouse listener to the list of channels.
-     *
-     * @param mouseListener the mouse listener to be added.
-     */
-    public void addChannelSelectListener(MouseListener mouseListener) {
-        list.addMouseListener(mouseListener);
-    }
-
-    /***
-     * Adds a mouse listener to the table of programs.
-     *
-     * @param mouseListener The mouse listener to be added.
-     */
-    public void addProgramSelectListener(MouseListener mouseListener) {
-        table.addMouseListener(mouseListener);
-    }
-}
+import javax.swing.*;
+import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Gui class that handles gui components for RadioInfo.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class GUI implements RadioInfoView {
+
+    private JFrame tableFrame;
+    private JFrame channelFrame;
+    private JFrame programFrame;
+    private JFrame overviewFrame;
+    private JFrame searchFrame;
+    private JFrame watchlistFrame;
+
+    private JMenuItem uppdatera;
+    private JMenuItem exportera;
+    private JMenuItem bevakningar;
+    private JMenuItem nowNext;
+
+    private JTable table;
+    private ProgramTableModel tableModel;
+    private ProgramTableSorter tableSorter;
+    private JScrollPane scrollPane;
+
+    private JTextField filterField;
+    private JComboBox<String> timeFilter;
+
+    private JTable overviewTable;
+    private DefaultTableModel overviewModel;
+
+    private JTextField searchField;
+    private JTable searchTable;
+    private DefaultTableModel searchModel;
+
+    private JTable watchlistTable;
+    private DefaultTableModel watchlistModel;
+
+    private JList<Channel> list;
+    private JScrollPane listPane;
+
+    private JPanel panel;
+    private JPanel programPanel;
+
+    private JTextArea programInfo;
+
+    private JLabel labelImage;
+    private JLabel programName;
+
+    private String infoMessage = "Skapat av:\n"
+            + "Leo Juneblad\n"
+            + "För: Applikationsutveckling i Java - Umeå Universitet";
+
+    private String helpMessage = "Hur programmet används:\n\n"
+            + "I tabellen på startsidan visas namnen, start tider\n"
+            + "och slut tider för program i den aktuella kanalen.\n"
+            + windowHelp(ScheduleWindow.fromProperties())
+            + "Tabellen uppdateras varje timme.\n"
+            + "Namnet på den aktuella kanalen visas ovanför tabellen.\n"
+            + "Klicka på en kolumn för att sortera tabellen och skriv i\n"
+            + "Filtrera för att bara visa vissa program.\n\n"
+            + "För att välja en ny kanal klickar du Kanaler->Välj Kanal.\n\n"
+            + "För att manuelt uppdatera tabellen innan en timme har gått\n"
+            + "klickar du på Alternativ -> Uppdatera.";
+
+    /***
+     * Describes the programs shown in the table, from the window set with
+     * radioinfo.lookback and radioinfo.lookahead.
+     *
+     * @param window The window of the shown programs.
+     * @return The lines of the help message.
+     */
+    private static String windowHelp(ScheduleWindow window) {
+        return "Programmen som visas är de som spelats "
+                + window.getLookbackHours() + " timmar innan\n"
+                + "nu och " + window.getLookaheadHours()
+                + " timmar efter nu. ";
+    }
+
+    /***
+     * Constructor, builds the main JFrame. The other frames are built the
+     * first time they are opened, so that the main window is shown as
+     * soon as possible. Only the models they show are created here, so
+     * that they can be filled before the frames are built.
+     */
+    public GUI() {
+        buildTableFrame();
+        buildList();
+
+        overviewModel = readOnlyModel("Kanal", "Nu", "Sen", "Starttid");
+        searchModel = readOnlyModel("Kanal", "Program", "Starttid",
+                "Sluttid");
+        watchlistModel = readOnlyModel("Kanal", "Program", "Starttid",
+                "Bevakning");
+    }
+
+    /***
+     * Makes the main JFrame visible.
+     */
+    public void setVisible() {
+        tableFrame.setVisible(true);
+        StartupTimeline.mark("window");
+    }
+
+    /***
+     * Creates a table model whose cells cannot be edited.
+     *
+     * @param names The names of the columns.
+     * @return The empty model.
+     */
+    private static DefaultTableModel readOnlyModel(String... names) {
+        String[][] data = {};
+
+        return new DefaultTableModel(data, names) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    /***
+     * Builds the main JFrame containing the table and the menu.
+     */
+    private void buildTableFrame() {
+        tableFrame = new JFrame("RadioInfo");
+        tableFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        tableFrame.setMinimumSize(new Dimension(380, 300));
+        tableFrame.setLayout(new BorderLayout());
+
+        buildTable();
+
+        tableFrame.add(buildSearchField(), BorderLayout.NORTH);
+        tableFrame.add(panel, BorderLayout.CENTER);
+        tableFrame.setJMenuBar(buildMenu());
+        tableFrame.pack();
+    }
+
+    /***
+     * Builds the JFrame containing the list of channels.
+     */
+    private void buildChannelFrame() {
+        channelFrame = new JFrame("Välj Kanal");
+        channelFrame.setMinimumSize(new Dimension(380, 250));
+
+        channelFrame.add(listPane);
+    }
+
+    /***
+     * Builds the JFrame that contains information about the selected
+     * program, unless it has been built already.
+     */
+    private void buildProgramFrame() {
+        if(programFrame != null) {
+            return;
+        }
+
+        programFrame = new JFrame("Program");
+        programFrame.setMinimumSize(new Dimension(380, 250));
+        programFrame.setLayout(new BorderLayout());
+
+        programFrame.add(buildProgramPanel());
+    }
+
+    /***
+     * Creates the text field used to search for programs.
+     *
+     * @return The panel containing the search field.
+     */
+    private JPanel buildSearchField() {
+        JPanel searchPanel = new JPanel(new BorderLayout());
+
+        searchField = new JTextField();
+
+        searchPanel.add(new JLabel("Sök: "), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+
+        return searchPanel;
+    }
+
+    /***
+     * Builds the JFrame that shows the programs found by a search.
+     */
+    private void buildSearchFrame() {
+        searchFrame = new JFrame("Sökresultat");
+        searchFrame.setMinimumSize(new Dimension(500, 300));
+
+        searchTable = new JTable();
+        searchTable.setModel(searchModel);
+
+        searchFrame.add(new JScrollPane(searchTable));
+    }
+
+    /***
+     * Builds the JFrame that shows programs that matched the watchlist.
+     */
+    private void buildWatchlistFrame() {
+        watchlistFrame = new JFrame("Bevakade program");
+        watchlistFrame.setMinimumSize(new Dimension(500, 300));
+
+        watchlistTable = new JTable();
+        watchlistTable.setModel(watchlistModel);
+
+        watchlistFrame.add(new JScrollPane(watchlistTable));
+    }
+
+    /***
+     * Shows programs that newly matched the watchlist, added to the ones
+     * already shown.
+     *
+     * @param rows The rows, each containing the channel name, the program
+     *             name, the start time and the matched word.
+     */
+    @Override
+    public void showWatchlistMatches(List<String[]> rows) {
+        for(String[] row : rows) {
+            watchlistModel.addRow(row);
+        }
+
+        if(watchlistFrame == null) {
+            buildWatchlistFrame();
+        }
+
+        watchlistFrame.setTitle("Bevakade program ("
+                + watchlistModel.getRowCount() + ")");
+        watchlistFrame.setLocation(tableFrame.getLocation());
+        watchlistFrame.setVisible(true);
+    }
+
+    /***
+     * Lets the user edit the watched words in a dialog, one word per line.
+     *
+     * @param patterns The current words.
+     * @return The edited words, or null if the dialog was cancelled.
+     */
+    @Override
+    public List<String> editWatchlist(List<String> patterns) {
+        JTextArea area = new JTextArea(String.join("\n", patterns), 10, 30);
+
+        int answer = JOptionPane.showConfirmDialog(tableFrame,
+                new JScrollPane(area), "Bevakningar, ett ord per rad",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if(answer != JOptionPane.OK_OPTION) {
+            return null;
+        }
+
+        return Arrays.asList(area.getText().split("\n"));
+    }
+
+    /***
+     * Gets the text entered in the search field.
+     *
+     * @return The search text.
+     */
+    @Override
+    public String getSearchText() {
+        return searchField.getText();
+    }
+
+    /***
+     * Shows the given search results in the search frame.
+     *
+     * @param rows The rows, each containing the channel name, the program
+     *             name, the start time and the end time.
+     */
+    @Override
+    public void setSearchResults(List<String[]> rows) {
+        searchModel.setRowCount(0);
+
+        for(String[] row : rows) {
+            searchModel.addRow(row);
+        }
+
+        if(searchFrame == null) {
+            buildSearchFrame();
+        }
+
+        searchFrame.setTitle("Sökresultat (" + rows.size() + ")");
+        searchFrame.setLocation(tableFrame.getLocation());
+        searchFrame.setVisible(true);
+    }
+
+    /***
+     * Builds the JFrame that shows the current and next program of
+     * every channel.
+     */
+    private void buildOverviewFrame() {
+        overviewFrame = new JFrame("Nu och sen");
+        overviewFrame.setMinimumSize(new Dimension(500, 300));
+
+        overviewTable = new JTable();
+        overviewTable.setModel(overviewModel);
+
+        overviewFrame.add(new JScrollPane(overviewTable));
+    }
+
+    /***
+     * Replaces the rows of the now and next overview.
+     *
+     * @param rows The rows, each containing the channel name, the current
+     *             program, the next program and its start time.
+     */
+    @Override
+    public void setOverview(List<String[]> rows) {
+        overviewModel.setRowCount(0);
+
+        for(String[] row : rows) {
+            overviewModel.addRow(row);
+        }
+    }
+
+    /***
+     * Replaces the values of one row of the now and next overview.
+     *
+     * @param row The row to update.
+     * @param data The channel name, the current program, the next program
+     *             and its start time.
+     */
+    @Override
+    public void updateOverviewRow(int row, String[] data) {
+        for(int column = 0; column < data.length; column++) {
+            overviewModel.setValueAt(data[column], row, column);
+        }
+    }
+
+    /***
+     * Displays the now and next overview frame.
+     */
+    @Override
+    public void openOverview() {
+        if(overviewFrame == null) {
+            buildOverviewFrame();
+        }
+
+        overviewFrame.setLocation(tableFrame.getLocation());
+        overviewFrame.setVisible(true);
+    }
+
+    /***
+     * Initializes the list of channels and adds it to a scrollpane.
+     */
+    private void buildList() {
+        list = new JList<>();
+        DefaultListModel<Channel> listModel = new DefaultListModel<>();
+
+        list.setModel(listModel);
+        listPane = new JScrollPane(list);
+    }
+
+    /***
+     * Adds the given channel to the jlist of channels.
+     *
+     * @param channel The channel to be added to the list.
+     */
+    @Override
+    public void addChannelToList(Channel channel) {
+        DefaultListModel<Channel> model =
+                (DefaultListModel<Channel>) list.getModel();
+
+        model.addElement(channel);
+    }
+
+    /***
+     * Replaces the channels in the jlist of channels. Only the entries
+     * that changed are replaced, so the list is not emptied and the
+     * selected channel stays selected.
+     *
+     * @param channels The channels to list.
+     */
+    @Override
+    public void setChannels(List<Channel> channels) {
+        DefaultListModel<Channel> model =
+                (DefaultListModel<Channel>) list.getModel();
+        Channel selected = list.getSelectedValue();
+
+        int shared = Math.min(model.size(), channels.size());
+        for(int i = 0; i < shared; i++) {
+            if(model.get(i) != channels.get(i)) {
+                model.set(i, channels.get(i));
+            }
+        }
+
+        if(model.size() > channels.size()) {
+            model.removeRange(channels.size(), model.size() - 1);
+        }
+        for(int i = shared; i < channels.size(); i++) {
+            model.addElement(channels.get(i));
+        }
+
+        //The selection follows its channel if the channels moved.
+        if(selected != null) {
+            int found = TableController.indexOfChannel(channels,
+                    selected.getId());
+
+            if(found == -1) {
+                list.clearSelection();
+            }
+            else if(found != list.getSelectedIndex()) {
+                list.setSelectedIndex(found);
+            }
+        }
+    }
+
+    /***
+     * Gets the highlighted channel in the jlist of channels.
+     *
+     * @return The selected channel.
+     */
+    @Override
+    public Channel getSelectedChannel() {
+        return list.getSelectedValue();
+    }
+
+    /***
+     * Gets the selected program in the table of programs. The row of the
+     * sorted and filtered table is converted to the row of the model, so
+     * that programs with the same name are told apart.
+     *
+     * @return The selected program in the table, or null if no row is
+     * selected.
+     */
+    @Override
+    public Program getSelectedProgram() {
+        int row = table.getSelectedRow();
+
+        if(row < 0) {
+            return null;
+        }
+
+        return tableModel.getProgram(table.convertRowIndexToModel(row));
+    }
+
+    /***
+     * Removes all entries from the table of programs.
+     */
+    @Override
+    public void clearTable() {
+        tableModel.setPrograms(List.of());
+    }
+
+    /***
+     * Removes all elements from the list of channels.
+     */
+    @Override
+    public void clearList() {
+        DefaultListModel listModel = (DefaultListModel) list.getModel();
+
+        listModel.removeAllElements();
+    }
+
+    /***
+     * Replaces the programs in the table of programs. Only the rows that
+     * differ from the programs already shown are updated, so the
+     * selection and scroll position of the table are kept.
+     *
+     * @param programs The programs to show, sorted by start time.
+     */
+    @Override
+    public void setPrograms(List<Program> programs) {
+        tableModel.setPrograms(programs);
+    }
+
+    /***
+     * Creates the jtable to hold the programs and adds it to a scrollpane.
+     */
+    private void buildTable () {
+
+        //The first paint of the table is the first paint of the window.
+        panel = new JPanel() {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                StartupTimeline.mark("firstPaint");
+            }
+        };
+        panel.setLayout(new BorderLayout());
+
+        tableModel = new ProgramTableModel();
+        tableSorter = new ProgramTableSorter(tableModel);
+
+        table = new JTable();
+        table.setModel(tableModel);
+        table.setRowSorter(tableSorter);
+
+        scrollPane = new JScrollPane(table);
+
+        panel.add(buildFilter(), BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createEtchedBorder(), "P1",
+                TitledBorder.CENTER, TitledBorder.TOP));
+
+    }
+
+    /***
+     * Creates the fields that filter the table of programs as the user
+     * types, by a text in the name and by the time of day the programs
+     * start.
+     *
+     * @return The panel containing the filter.
+     */
+    private JPanel buildFilter() {
+        JPanel filterPanel = new JPanel(new BorderLayout());
+
+        filterField = new JTextField();
+        filterField.getDocument().addDocumentListener(
+                new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+        });
+
+        timeFilter = new JComboBox<>(new String[] { "Hela dygnet",
+                "Natt 00-06", "Morgon 06-12", "Eftermiddag 12-18",
+                "Kväll 18-24" });
+        timeFilter.addActionListener(e -> applyFilter());
+
+        filterPanel.add(new JLabel("Filtrera: "), BorderLayout.WEST);
+        filterPanel.add(filterField, BorderLayout.CENTER);
+        filterPanel.add(timeFilter, BorderLayout.EAST);
+
+        return filterPanel;
+    }
+
+    /***
+     * Filters the table of programs by the text and time of day chosen.
+     * The choices after the whole day are spans of six hours.
+     */
+    private void applyFilter() {
+        int span = timeFilter.getSelectedIndex();
+
+        if(span <= 0) {
+            tableSorter.setFilter(filterField.getText(), 0, 24 * 60);
+        }
+        else {
+            tableSorter.setFilter(filterField.getText(),
+                    (span - 1) * 6 * 60, span * 6 * 60);
+        }
+    }
+
+    /***
+     * Initializes the label to hold the program icon.
+     *
+     * @return The label to hold an image.
+     */
+    public JLabel buildImage() {
+        labelImage = new JLabel();
+
+        return labelImage;
+    }
+
+    /***
+     * Adds menus to the menubar.
+     *
+     * @return The jmenubar that contains the menus that have been added.
+     */
+    private JMenuBar buildMenu() {
+        JMenuBar menuBar = new JMenuBar();
+
+        menuBar.add(buildAboutMenu());
+        menuBar.add(buildChannelMenu());
+        menuBar.add(buildOptionsMenu());
+
+        return menuBar;
+    }
+
+    /***
+     * Create the menu that contains the "select" menu button.
+     *
+     * @return The menu containing the relevant buttons.
+     */
+    private JMenu buildChannelMenu() {
+        JMenu kanaler = new JMenu("Kanaler");
+
+        JMenuItem pickChannels = new JMenuItem("Välj Kanal");
+
+        pickChannels.addActionListener(e -> {
+            openChannelSelect();
+        });
+
+        nowNext = new JMenuItem("Nu och sen");
+
+        kanaler.add(pickChannels);
+        kanaler.add(nowNext);
+
+        return kanaler;
+    }
+
+    /***
+     * Puts together the options menu.
+     *
+     * @return the options menu.
+     */
+    private JMenu buildOptionsMenu() {
+        JMenu alternativ = new JMenu("Alternativ");
+
+        uppdatera = new JMenuItem("Uppdatera");
+
+        exportera = new JMenuItem("Exportera...");
+        bevakningar = new JMenuItem("Bevakningar...");
+
+        alternativ.add(uppdatera);
+        alternativ.add(exportera);
+        alternativ.add(bevakningar);
+
+        return alternativ;
+    }
+
+    /***
+     * Puts together the about menu.
+     *
+     * @return the about menu.
+     */
+    private JMenu buildAboutMenu() {
+        JMenu om = new JMenu("Om");
+
+        JMenuItem info = new JMenuItem("Info");
+
+        info.addActionListener(e -> {
+            JOptionPane.showMessageDialog(tableFrame, infoMessage, "Om",
+                    JOptionPane.PLAIN_MESSAGE);
+        });
+
+        JMenuItem help = new JMenuItem("Hjälp");
+
+        help.addActionListener(e -> {
+            JOptionPane.showMessageDialog(tableFrame, helpMessage, "Hjälp",
+                    JOptionPane.PLAIN_MESSAGE);
+        });
+
+        om.add(info);
+        om.add(help);
+
+        return om;
+    }
+
+    /***
+     * Puts together the panel that contains information about a
+     * selected program.
+     *
+     * @return The jpanel with program information.
+     */
+    private JPanel buildProgramPanel() {
+        programPanel = new JPanel();
+
+        programInfo = new JTextArea();
+        programName = new JLabel();
+
+        programInfo.setLineWrap(true);
+        programInfo.setWrapStyleWord(true);
+        programInfo.setEditable(false);
+
+        programPanel.setLayout(new BorderLayout());
+
+        programPanel.add(programName, BorderLayout.NORTH);
+        programPanel.add(buildImage(), BorderLayout.CENTER);
+        programPanel.add(programInfo, BorderLayout.SOUTH);
+
+        programPanel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createEtchedBorder(), "Program",
+                TitledBorder.CENTER, TitledBorder.TOP));
+
+        return programPanel;
+    }
+
+    /***
+     * Displays the information about the program in the appropriate
+     * swing elements.
+     *
+     * @param info The description of the program displayed.
+     * @param startTime The start time of the program to be displayed.
+     * @param endTime The end time of the program to be displayed.
+     */
+    @Override
+    public void setProgramInfo(String info, String startTime,
+                               String endTime) {
+        buildProgramFrame();
+
+        programName.setText(startTime + " -- " + endTime);
+        programInfo.setText(info);
+    }
+
+    /***
+     * Sets the the title of the jpanel that contains information about
+     * the program.
+     *
+     * @param name The string to set the title to.
+     */
+    @Override
+    public void setProgramName(String name) {
+        buildProgramFrame();
+
+        programPanel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createEtchedBorder(), name,
+                TitledBorder.CENTER, TitledBorder.TOP));
+    }
+
+    /***
+     * Displays the channel select frame.
+     */
+    public void openChannelSelect() {
+        if(channelFrame == null) {
+            buildChannelFrame();
+        }
+
+        channelFrame.setLocation(tableFrame.getLocation());
+        channelFrame.setVisible(true);
+    }
+
+    /***
+     * Removes the channel select frame.
+     */
+    @Override
+    public void closeChannelSelect() {
+        if(channelFrame != null) {
+            channelFrame.setVisible(false);
+        }
+    }
+
+    /***
+     * Opens the program frame with information about the selected program.
+     * @param channel The channel containing the selected program.
+     */
+    @Override
+    public void openSelectedProgram(String channel) {
+        buildProgramFrame();
+
+        programFrame.setTitle(channel);
+        programFrame.setLocation(tableFrame.getLocation());
+        programFrame.setVisible(true);
+    }
+
+    /***
+     * Sets the image icon to be displayed in the program frame.
+     *
+     * @param bufImage The image to display.
+     */
+    @Override
+    public void setImage(BufferedImage bufImage) {
+        buildProgramFrame();
+
+        //The default image may still be loading.
+        if(bufImage == null) {
+            labelImage.setIcon(null);
+            return;
+        }
+
+        Image image = bufImage.getScaledInstance(100, 100,
+                Image.SCALE_SMOOTH);
+
+        labelImage.setIcon(new ImageIcon(image));
+    }
+
+    /***
+     * Sets the title of the jpanel containing the table of programs.
+     *
+     * @param channel The string to be set as a title preferably the
+     *                name of the current channel.
+     */
+    @Override
+    public void setTitle(String channel) {
+        panel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createEtchedBorder(), channel,
+                TitledBorder.CENTER, TitledBorder.TOP));
+    }
+
+
+    /***
+     * Displays an error message.
+     *
+     * @param error The message to be displayed.
+     */
+    @Override
+    public void displayError(String error) {
+        JOptionPane.showMessageDialog(tableFrame, error);
+    }
+
+    /***
+     * Adds an action listener to the update menu item.
+     *
+     * @param actionListener The action listener to be added.
+     */
+    @Override
+    public void addUpdateListener(ActionListener actionListener) {
+        uppdatera.addActionListener(actionListener);
+    }
+
+    /***
+     * Adds an action listener to the export menu item.
+     *
+     * @param actionListener The action listener to be added.
+     */
+    @Override
+    public void addExportListener(ActionListener actionListener) {
+        exportera.addActionListener(actionListener);
+    }
+
+    /***
+     * Asks for the channels and the utc days to export, all channels and
+     * today by default.
+     *
+     * @param channels The channels that can be exported.
+     * @return The chosen channels and days, or null if the dialog was
+     * cancelled or a day could not be read.
+     */
+    @Override
+    public ScheduleExport.Selection chooseExport(List<Channel> channels) {
+        JList<Channel> list = new JList<>(channels.toArray(new Channel[0]));
+        list.setSelectionInterval(0, channels.size() - 1);
+        list.setVisibleRowCount(12);
+
+        String today = LocalDate.now(ZoneOffset.UTC).toString();
+        JTextField from = new JTextField(today, 10);
+        JTextField to = new JTextField(today, 10);
+
+        JPanel days = new JPanel(new GridLayout(2, 2, 5, 5));
+        days.add(new JLabel("Från dag (åååå-mm-dd)"));
+        days.add(from);
+        days.add(new JLabel("Till och med dag"));
+        days.add(to);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.add(new JScrollPane(list), BorderLayout.CENTER);
+        panel.add(days, BorderLayout.SOUTH);
+
+        int answer = JOptionPane.showConfirmDialog(tableFrame, panel,
+                "Exportera kanaler och dagar", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if(answer != JOptionPane.OK_OPTION || list.isSelectionEmpty()) {
+            return null;
+        }
+
+        try {
+            return new ScheduleExport.Selection(list.getSelectedValuesList(),
+                    from.getText().trim(), to.getText().trim());
+        } catch (DateTimeParseException e) {
+            displayError("Felaktig dag: " + e.getParsedString());
+            return null;
+        }
+    }
+
+    /***
+     * Asks for the file to export to. The format is chosen by the
+     * extension of the file, .ics, .csv or .json.
+     *
+     * @return The chosen file, or null if the dialog was cancelled.
+     */
+    @Override
+    public File chooseExportFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Exportera tablå");
+        chooser.setSelectedFile(new File("tabla.ics"));
+
+        if(chooser.showSaveDialog(tableFrame)
+                != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+
+        return chooser.getSelectedFile();
+    }
+
+    /***
+     * Adds an action listener to the watchlist menu item.
+     *
+     * @param actionListener The action listener to be added.
+     */
+    @Override
+    public void addWatchlistListener(ActionListener actionListener) {
+        bevakningar.addActionListener(actionListener);
+    }
+
+    /***
+     * Adds an action listener to the now and next menu item.
+     *
+     * @param actionListener The action listener to be added.
+     */
+    @Override
+    public void addOverviewListener(ActionListener actionListener) {
+        nowNext.addActionListener(actionListener);
+    }
+
+    /***
+     * Adds an action listener to the search field, called when enter is
+     * pressed.
+     *
+     * @param actionListener The action listener to be added.
+     */
+    @Override
+    public void addSearchListener(ActionListener actionListener) {
+        searchField.addActionListener(actionListener);
+    }
+
+    /***
+     * Adds a mouse listener to the list of channels.
+     *
+     * @param mouseListener the mouse listener to be added.
+     */
+    @Override
+    public void addChannelSelectListener(MouseListener mouseListener) {
+        list.addMouseListener(mouseListener);
+    }
+
+    /***
+     * Adds a mouse listener to the table of programs.
+     *
+     * @param mouseListener The mouse listener to be added.
+     */
+    @Override
+    public void addProgramSelectListener(MouseListener mouseListener) {
+        table.addMouseListener(mouseListener);
+    }
+}
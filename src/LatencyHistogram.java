@@ -0,0 +1,121 @@
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/***
+ * Histogram of durations that can be recorded from several threads without
+ * locking. Durations are counted in buckets that double in size from one
+ * microsecond, so percentiles are given as the upper bound of the bucket
+ * they fall in.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    //Bucket i holds durations below 2^i microseconds, the last bucket
+    //holds everything longer than about 18 minutes.
+    private static final int BUCKETS = 31;
+
+    private AtomicLongArray buckets;
+    private AtomicLong count;
+    private AtomicLong totalNanos;
+    private AtomicLong maxNanos;
+
+    /***
+     * Constructor, creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        buckets = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        totalNanos = new AtomicLong();
+        maxNanos = new AtomicLong();
+    }
+
+    /***
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(
+                micros));
+
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /***
+     * Get the number of recorded durations.
+     *
+     * @return The number of durations.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /***
+     * Get the mean of the recorded durations.
+     *
+     * @return The mean in milliseconds, or 0 if nothing is recorded.
+     */
+    public double getMeanMillis() {
+        long n = count.get();
+
+        return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+    }
+
+    /***
+     * Get the longest recorded duration.
+     *
+     * @return The longest duration in milliseconds.
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /***
+     * Gets the duration that the given share of the recorded durations
+     * are shorter than.
+     *
+     * @param quantile The share between 0 and 1, for example 0.99.
+     * @return The upper bound of the bucket of the quantile in
+     * milliseconds, or 0 if nothing is recorded.
+     */
+    public double getPercentileMillis(double quantile) {
+        long n = count.get();
+        if(n == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+
+            if(seen >= rank) {
+                //The last bucket has no upper bound.
+                return i == BUCKETS - 1 ? getMaxMillis()
+                        : Math.min((1L << i) / 1e3, getMaxMillis());
+            }
+        }
+
+        return getMaxMillis();
+    }
+
+    /***
+     * Summarizes the histogram on one line.
+     *
+     * @return The count, mean, median, 99th percentile and max.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count=%d mean=%.2fms p50=%.2fms "
+                + "p99=%.2fms max=%.2fms", getCount(), getMeanMillis(),
+                getPercentileMillis(0.5), getPercentileMillis(0.99),
+                getMaxMillis());
+    }
+}
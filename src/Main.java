@@ -1,20 +1,68 @@
-import javax.swing.*;
-import java.net.MalformedURLException;
-
-/***
- * Main class that starts the EDT that handles the gui of the program.
- *
- * @author Leo Juneblad (c19lsd)
- * @version 1.0
- */
-public class Main {
-    public static void main(String args[]) {
-        SwingUtilities.invokeLater(() -> {
-            GUI gui = new GUI();
-
-            TableController controller = new TableController(gui);
-
-            gui.setVisible();
-        });
-    }
-}
+import javax.swing.*;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.Arrays;
+
+/***
+ * Main class that starts the EDT that handles the gui of the program.
+ * Started with --daemon [port] it instead runs without gui and serves the
+ * schedules over http, and with --export it writes the schedules to a
+ * file, see ScheduleExport.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class Main {
+    public static void main(String args[]) {
+        StartupTimeline.mark("main");
+
+        //Run without gui and serve the schedules to other clients.
+        if(args.length > 0 && args[0].equals("--daemon")) {
+            int port = ScheduleDaemon.DEFAULT_PORT;
+            if(args.length > 1) {
+                try {
+                    port = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+
+                if(port < 0 || port > 65535) {
+                    System.err.println("Ogiltig port: " + args[1]);
+                    System.exit(2);
+                }
+            }
+
+            try {
+                new ScheduleDaemon(port).start(true);
+            } catch (IOException e) {
+                System.err.println("Kunde ej starta servern: "
+                        + e.getMessage());
+                System.exit(1);
+            }
+
+            return;
+        }
+
+        //Write the schedules to a file and exit.
+        if(args.length > 0 && args[0].equals("--export")) {
+            System.exit(ScheduleExport.command(
+                    Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            GUI gui = new GUI();
+
+            //The window is shown before the controller is created, and
+            //the controller loads everything in the background.
+            gui.setVisible();
+
+            TableController controller = new TableController(gui);
+
+            //Downloads still running when the window is closed are
+            //stopped instead of being read to the end, and so is the
+            //ticker of the overview.
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(controller::shutdown));
+        });
+    }
+}
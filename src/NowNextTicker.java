@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/***
+ * Keeps the now and next overview in the gui current. Instead of checking
+ * every schedule on a timer, the ticker keeps a priority queue with the
+ * time of the next program change of every channel and sleeps until the
+ * earliest one. When it wakes up only the rows of the channels that
+ * changed are sent to the gui.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class NowNextTicker implements Runnable {
+
+    private RadioInfoView gui;
+    private EdtDispatcher dispatcher;
+    private Thread thread;
+
+    private ScheduleIndex index;
+    private boolean indexChanged;
+    private PriorityQueue<Boundary> boundaries;
+
+    /***
+     * Constructor, starts the ticker thread. The ticker is idle until an
+     * index is set.
+     *
+     * @param gui The gui to show the overview in.
+     * @param dispatcher The dispatcher that sends the rows to the gui.
+     */
+    public NowNextTicker(RadioInfoView gui, EdtDispatcher dispatcher) {
+        this.gui = gui;
+        this.dispatcher = dispatcher;
+        boundaries = new PriorityQueue<>();
+
+        thread = new Thread(this, "NowNextTicker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /***
+     * Sets the schedules to follow, replacing the earlier ones. The whole
+     * overview is redrawn from the new index.
+     *
+     * @param index The index of the loaded channels.
+     */
+    public synchronized void setIndex(ScheduleIndex index) {
+        this.index = index;
+        indexChanged = true;
+
+        notifyAll();
+    }
+
+    /***
+     * Stops the ticker thread.
+     */
+    public void stop() {
+        thread.interrupt();
+    }
+
+    /***
+     * Waits for the next program change and updates the rows of the
+     * channels that changed, until the ticker is stopped.
+     */
+    @Override
+    public void run() {
+        try {
+            while(true) {
+                tick();
+            }
+        } catch (InterruptedException e) {
+            //The ticker was stopped.
+        }
+    }
+
+    /***
+     * Sleeps until the index is replaced or the earliest boundary has
+     * passed and then sends the changed rows to the gui.
+     *
+     * @throws InterruptedException If the ticker is stopped.
+     */
+    private synchronized void tick() throws InterruptedException {
+        long now = System.currentTimeMillis();
+
+        while(!indexChanged && (boundaries.isEmpty()
+                || boundaries.peek().time > now)) {
+            //wait(0) waits until notified.
+            wait(boundaries.isEmpty() ? 0 : boundaries.peek().time - now);
+            now = System.currentTimeMillis();
+        }
+
+        if(indexChanged) {
+            indexChanged = false;
+            boundaries.clear();
+
+            ArrayList<String[]> rows = new ArrayList<>();
+            for(int i = 0; i < index.getChannelCount(); i++) {
+                rows.add(toRow(i, now));
+                schedule(i, now);
+            }
+
+            dispatcher.post("overview", () -> gui.setOverview(rows));
+            return;
+        }
+
+        //A row that has not been drawn yet is replaced by its newer
+        //state.
+        while(!boundaries.isEmpty() && boundaries.peek().time <= now) {
+            int channel = boundaries.poll().channel;
+
+            String[] row = toRow(channel, now);
+            dispatcher.post("overview " + channel,
+                    () -> gui.updateOverviewRow(channel, row));
+            schedule(channel, now);
+        }
+    }
+
+    /***
+     * Adds the next time the current or next program of a channel changes
+     * to the queue, if there is one.
+     *
+     * @param channel The position of the channel in the index.
+     * @param now The current time in milliseconds since the epoch.
+     */
+    private void schedule(int channel, long now) {
+        Program current = index.programAt(channel, now);
+        if(current != null) {
+            boundaries.add(new Boundary(current.getEndMillis(), channel));
+            return;
+        }
+
+        Program next = index.programAfter(channel, now);
+        if(next != null) {
+            boundaries.add(new Boundary(next.getStartMillis(), channel));
+        }
+    }
+
+    /***
+     * Creates the overview row of a channel.
+     *
+     * @param channel The position of the channel in the index.
+     * @param now The current time in milliseconds since the epoch.
+     * @return The channel name, the current program, the next program and
+     * the start time of the next program.
+     */
+    private String[] toRow(int channel, long now) {
+        Program current = index.programAt(channel, now);
+        Program next = index.programAfter(channel, now);
+
+        return new String[] { index.getChannel(channel).getName(),
+                current == null ? "-" : current.getName(),
+                next == null ? "-" : next.getName(),
+                next == null ? "-" : next.getStartTime() };
+    }
+
+    /***
+     * The time when the programs of a channel change.
+     */
+    private static class Boundary implements Comparable<Boundary> {
+        private final long time;
+        private final int channel;
+
+        private Boundary(long time, int channel) {
+            this.time = time;
+            this.channel = channel;
+        }
+
+        @Override
+        public int compareTo(Boundary other) {
+            return Long.compare(time, other.time);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/***
+ * Implemented by the xml handlers that can parse one page of a paginated
+ * response from the SverigesRadio api.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public interface PagedHandler {
+
+    /***
+     * Get the total number of pages read from the pagination element of
+     * the last parsed xml file.
+     *
+     * @return The total number of pages, 1 if the file was not paginated.
+     */
+    int getTotalPages();
+}
@@ -0,0 +1,165 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * Cache of the details of the programs opened by the user: the
+ * description and the decoded image. The details are loaded the first
+ * time a program is opened, from the api if the schedules were loaded
+ * lean, and the most recently opened programs are kept so that they open
+ * again at once.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ProgramDetails {
+
+    private LinkedHashMap<Long, Detail> details;
+
+    /***
+     * Constructor.
+     *
+     * @param capacity The number of programs to keep the details of.
+     */
+    public ProgramDetails(int capacity) {
+        details = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Detail> e) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /***
+     * Creates a cache with the capacity given by the system property
+     * radioinfo.details, or 64 programs by default.
+     *
+     * @return The cache.
+     */
+    public static ProgramDetails fromProperties() {
+        return new ProgramDetails(Integer.getInteger("radioinfo.details",
+                64));
+    }
+
+    /***
+     * Gets the details of a program if they have been loaded. Programs
+     * without an episode id are never cached.
+     *
+     * @param p The program.
+     * @return The details, or null if they must be loaded.
+     */
+    public synchronized Detail getCached(Program p) {
+        if(p.getEpisodeId() == 0) {
+            return null;
+        }
+
+        return details.get(p.getEpisodeId());
+    }
+
+    /***
+     * Loads the details of a program and keeps them. The description and
+     * image url are taken from the program, or from the api if the
+     * program has neither. Called off the EDT since it downloads.
+     *
+     * @param p The program.
+     * @param loader The loader to get the details from the api with.
+     * @return The details.
+     * @throws Exception If the details could not be loaded from the api.
+     */
+    public Detail load(Program p, TableLoader loader) throws Exception {
+        Detail cached = getCached(p);
+        if(cached != null) {
+            return cached;
+        }
+
+        String description = p.getDescription();
+        String image = p.getImage();
+
+        //Lean schedules keep neither.
+        if(description == null && image == null && p.getEpisodeId() != 0) {
+            Program episode = loader.fetchDetail(p.getEpisodeId());
+
+            if(episode != null) {
+                description = episode.getDescription();
+                image = episode.getImage();
+            }
+        }
+
+        Detail detail = new Detail(description, decode(image));
+
+        if(p.getEpisodeId() != 0) {
+            synchronized(this) {
+                details.put(p.getEpisodeId(), detail);
+            }
+        }
+
+        return detail;
+    }
+
+    /***
+     * Get the number of programs whose details are kept.
+     *
+     * @return The number of programs.
+     */
+    public synchronized int size() {
+        return details.size();
+    }
+
+    /***
+     * Downloads and decodes an image.
+     *
+     * @param url The url of the image, may be null.
+     * @return The image, or null if there is none or it could not be read.
+     */
+    private static BufferedImage decode(String url) {
+        if(url == null) {
+            return null;
+        }
+
+        try {
+            return ImageIO.read(new URL(url));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /***
+     * The description and image of a program.
+     */
+    public static class Detail {
+        private final String description;
+        private final BufferedImage image;
+
+        /***
+         * Constructor.
+         *
+         * @param description The description, may be null.
+         * @param image The decoded image, may be null.
+         */
+        public Detail(String description, BufferedImage image) {
+            this.description = description;
+            this.image = image;
+        }
+
+        /***
+         * Get the description of the program.
+         *
+         * @return The description, or null if there is none.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /***
+         * Get the image of the program.
+         *
+         * @return The image, or null if there is none.
+         */
+        public BufferedImage getImage() {
+            return image;
+        }
+    }
+}
@@ -0,0 +1,469 @@
+import javax.swing.table.AbstractTableModel;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/***
+ * Table model for the table of programs. When the programs are replaced
+ * the old and new lists are compared by episode and start time, and only
+ * the rows that were added, removed or changed are reported to the table.
+ * This keeps the selection and scroll position of the table and only
+ * repaints the changed rows.
+ *
+ * The keys the table is sorted and filtered by are computed when a
+ * program is first shown and kept in a list next to the programs, so that
+ * sorting and filtering compare numbers and collation keys instead of
+ * parsing the shown strings. A program that is unchanged since the last
+ * refresh keeps the keys of its earlier version, so they are computed once
+ * per changed program instead of on every refresh and sort. The programs
+ * themselves are shared with the rest of RadioInfo and are not changed.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ProgramTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] NAMES =
+            { "Program", "Starttid", "Sluttid", "Längd" };
+
+    //The zone of the shown times, see ProgramHandler.formatDateTime.
+    private static final ZoneId ZONE = ZoneId.of("Europe/Stockholm");
+
+    //No change, rows inserted, deleted or updated.
+    private static final int NONE = 0;
+    private static final int INSERTED = 1;
+    private static final int DELETED = 2;
+    private static final int UPDATED = 3;
+
+    //Never changed, the old rows when no programs are being replaced.
+    private static final ArrayList<Program> NO_ROWS = new ArrayList<>(0);
+    private static final ArrayList<Keys> NO_KEYS = new ArrayList<>(0);
+
+    //The shown programs and the keys of each of them.
+    private ArrayList<Program> programs;
+    private ArrayList<Keys> keys;
+
+    //While the programs are replaced, the first merged rows are followed
+    //by the old rows from oldStart. Until a row is inserted or deleted the
+    //rows are replaced in the old lists themselves.
+    private ArrayList<Program> oldRows;
+    private ArrayList<Keys> oldKeys;
+    private int oldStart;
+    private int merged;
+
+    //The changed rows that have not yet been reported.
+    private int change;
+    private int changeStart;
+    private int changeLength;
+
+    /***
+     * Constructor, creates an empty model.
+     */
+    public ProgramTableModel() {
+        programs = new ArrayList<>();
+        keys = new ArrayList<>();
+        oldRows = NO_ROWS;
+        oldKeys = NO_KEYS;
+    }
+
+    /***
+     * Replaces the programs of the table. Both lists are expected to be
+     * sorted by start time, as loaded by the TableLoader.
+     *
+     * The new rows are merged in one pass. Consecutive changes of the
+     * same kind are reported as one event, and when an event is reported
+     * the table sees the merged rows followed by the old rows not yet
+     * merged.
+     *
+     * @param newPrograms The new programs to show.
+     */
+    public void setPrograms(List<Program> newPrograms) {
+        //Unchanged rows at the start, usually most of them, are replaced
+        //without any change to report.
+        int same = 0;
+        int common = Math.min(programs.size(), newPrograms.size());
+        while(same < common) {
+            Program old = programs.get(same);
+            Program p = newPrograms.get(same);
+
+            if(old != p) {
+                if(compare(old, p) != 0 || !sameContent(old, p)) {
+                    break;
+                }
+                programs.set(same, p);
+            }
+            same++;
+        }
+
+        oldRows = programs;
+        oldKeys = keys;
+        oldStart = same;
+        merged = same;
+
+        int next = same;
+        while(oldStart < oldRows.size() || next < newPrograms.size()) {
+            if(next == newPrograms.size()) {
+                change(DELETED, oldRows.size() - oldStart);
+                delete(oldRows.size() - oldStart, newPrograms.size());
+                continue;
+            }
+
+            //The rest of the new rows, or all of them in an empty table,
+            //are added at once.
+            if(oldStart == oldRows.size()) {
+                change(INSERTED, newPrograms.size() - next);
+                separate(newPrograms.size());
+                for(; next < newPrograms.size(); next++) {
+                    Program p = newPrograms.get(next);
+                    programs.add(p);
+                    keys.add(new Keys(p));
+                }
+                merged = programs.size();
+                continue;
+            }
+
+            Program p = newPrograms.get(next);
+
+            Program old = oldRows.get(oldStart);
+            int order = compare(old, p);
+
+            if(order == 0) {
+                //The keys are only computed again if the row changed.
+                if(!sameContent(old, p)) {
+                    change(UPDATED, 1);
+                    replace(p, new Keys(p));
+                }
+                else {
+                    change(NONE, 0);
+                    replace(p, oldKeys.get(oldStart));
+                }
+                next++;
+            }
+            else if(order < 0) {
+                change(DELETED, 1);
+                delete(1, newPrograms.size());
+            }
+            else {
+                change(INSERTED, 1);
+                insert(p, new Keys(p), newPrograms.size());
+                next++;
+            }
+        }
+
+        change(NONE, 0);
+        oldRows = NO_ROWS;
+        oldKeys = NO_KEYS;
+        oldStart = 0;
+    }
+
+    /***
+     * Merges a program in place of the next old row.
+     *
+     * @param p The program.
+     * @param k The keys of the program.
+     */
+    private void replace(Program p, Keys k) {
+        if(programs == oldRows) {
+            programs.set(oldStart, p);
+            keys.set(oldStart, k);
+        }
+        else {
+            programs.add(p);
+            keys.add(k);
+        }
+
+        merged++;
+        oldStart++;
+    }
+
+    /***
+     * Merges a program before the next old row.
+     *
+     * @param p The program.
+     * @param k The keys of the program.
+     * @param size The number of new programs.
+     */
+    private void insert(Program p, Keys k, int size) {
+        separate(size);
+        programs.add(p);
+        keys.add(k);
+        merged++;
+    }
+
+    /***
+     * Skips old rows that are not merged.
+     *
+     * @param rows The number of old rows.
+     * @param size The number of new programs.
+     */
+    private void delete(int rows, int size) {
+        separate(size);
+        oldStart += rows;
+    }
+
+    /***
+     * Moves the merged rows and their keys to lists of their own, the
+     * first time a row is inserted or deleted.
+     *
+     * @param size The number of new programs.
+     */
+    private void separate(int size) {
+        if(programs == oldRows) {
+            programs = new ArrayList<>(Math.max(size, merged));
+            programs.addAll(oldRows.subList(0, merged));
+            keys = new ArrayList<>(Math.max(size, merged));
+            keys.addAll(oldKeys.subList(0, merged));
+        }
+    }
+
+    /***
+     * Adds rows to the current change, or reports the current change
+     * and starts a new one if they are of another kind. Called before
+     * the rows are merged.
+     *
+     * @param kind The kind of change.
+     * @param rows The number of rows.
+     */
+    private void change(int kind, int rows) {
+        if(kind == change) {
+            changeLength += rows;
+            return;
+        }
+
+        fireChange();
+        change = kind;
+        changeStart = merged;
+        changeLength = rows;
+    }
+
+    /***
+     * Reports the current change to the table.
+     */
+    private void fireChange() {
+        int last = changeStart + changeLength - 1;
+
+        switch (change) {
+            case INSERTED :
+                fireTableRowsInserted(changeStart, last);
+                break;
+            case DELETED :
+                fireTableRowsDeleted(changeStart, last);
+                break;
+            case UPDATED :
+                fireTableRowsUpdated(changeStart, last);
+                break;
+        }
+
+        change = NONE;
+    }
+
+    /***
+     * Gets the program on a row, which while the programs are replaced is
+     * either merged or one of the old rows after them.
+     *
+     * @param row The row of the table model.
+     * @return The program.
+     */
+    private Program rowAt(int row) {
+        if(row < merged) {
+            return programs.get(row);
+        }
+
+        return oldRows.get(oldStart + row - merged);
+    }
+
+    /***
+     * Gets the keys of the program on a row, see rowAt.
+     *
+     * @param row The row of the table model.
+     * @return The keys.
+     */
+    private Keys keysAt(int row) {
+        if(row < merged) {
+            return keys.get(row);
+        }
+
+        return oldKeys.get(oldStart + row - merged);
+    }
+
+    /***
+     * Orders two programs by start time and then by their episode, so
+     * that the same episode at the same time is equal.
+     *
+     * @param a The first program.
+     * @param b The second program.
+     * @return Less than zero if a comes first, zero if a and b are the
+     * same episode and more than zero if b comes first.
+     */
+    private static int compare(Program a, Program b) {
+        int order = Long.compare(a.getStartMillis(), b.getStartMillis());
+
+        if(order != 0) {
+            return order;
+        }
+
+        //Programs without an episode id are told apart by their names.
+        if(a.getEpisodeId() == 0 && b.getEpisodeId() == 0) {
+            return Objects.compare(a.getName(), b.getName(),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+        }
+
+        return Long.compare(a.getEpisodeId(), b.getEpisodeId());
+    }
+
+    /***
+     * Checks if two versions of the same episode are shown the same.
+     *
+     * @param a The old version.
+     * @param b The new version.
+     * @return True if no shown value differs.
+     */
+    private static boolean sameContent(Program a, Program b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getStartTime(), b.getStartTime())
+                && Objects.equals(a.getEndTime(), b.getEndTime());
+    }
+
+    /***
+     * Get the program shown on the given row.
+     *
+     * @param row The row of the table model.
+     * @return The program.
+     */
+    public Program getProgram(int row) {
+        return rowAt(row);
+    }
+
+    /***
+     * Get the key a column is sorted by: the collation key of the name,
+     * the start time, the end time or the length of the program.
+     *
+     * @param row The row of the table model.
+     * @param column The column.
+     * @return The key, which is comparable to the keys of the same column.
+     */
+    public Comparable<?> getSortKey(int row, int column) {
+        Program p = rowAt(row);
+
+        switch (column) {
+            case 0 :
+                return keysAt(row).title(p);
+            case 1 :
+                return p.getStartMillis();
+            case 2 :
+                return p.getEndMillis();
+            default :
+                return p.getEndMillis() - p.getStartMillis();
+        }
+    }
+
+    /***
+     * Checks if a program contains a text in its name and starts within a
+     * time of day. A span that ends before it starts passes midnight.
+     *
+     * @param row The row of the table model.
+     * @param text The text in lower case, or an empty string for any name.
+     * @param fromMinute The first minute of the day.
+     * @param toMinute The minute of the day after the last one.
+     * @return True if the program matches.
+     */
+    public boolean matches(int row, String text, int fromMinute,
+                           int toMinute) {
+        Keys rowKeys = keysAt(row);
+
+        int minute = rowKeys.minute;
+        boolean inSpan = fromMinute <= toMinute
+                ? minute >= fromMinute && minute < toMinute
+                : minute >= fromMinute || minute < toMinute;
+
+        return inSpan && rowKeys.lowerName.contains(text);
+    }
+
+    @Override
+    public int getRowCount() {
+        return merged + oldRows.size() - oldStart;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Program p = rowAt(row);
+
+        switch (column) {
+            case 0 :
+                return p.getName();
+            case 1 :
+                return p.getStartTime();
+            case 2 :
+                return p.getEndTime();
+            default :
+                return keysAt(row).length;
+        }
+    }
+
+    /***
+     * The keys a program is sorted and filtered by, computed from the
+     * program when it is first shown. The collation key of the name costs
+     * more than the rest together, so it is computed when the table is
+     * first sorted by name.
+     */
+    private static class Keys {
+        private CollationKey title;
+        private final String lowerName;
+        private final int minute;
+        private final String length;
+
+        private Keys(Program p) {
+            String name = Objects.toString(p.getName(), "");
+            ZonedDateTime start = Instant.ofEpochMilli(p.getStartMillis())
+                    .atZone(ZONE);
+
+            lowerName = name.toLowerCase(Locale.ROOT);
+            minute = start.getHour() * 60 + start.getMinute();
+            length = (p.getEndMillis() - p.getStartMillis()) / 60000
+                    + " min";
+        }
+
+        /***
+         * Gets the collation key of the name, computed the first time.
+         *
+         * @param p The program the keys were computed from.
+         * @return The collation key.
+         */
+        private CollationKey title(Program p) {
+            if(title == null) {
+                title = Titles.COLLATOR.getCollationKey(
+                        Objects.toString(p.getName(), ""));
+            }
+
+            return title;
+        }
+    }
+
+    /***
+     * Holds the collator of the titles, so that it is created when the
+     * table is first sorted by name instead of when the gui is built.
+     */
+    private static class Titles {
+        private static final Collator COLLATOR =
+                Collator.getInstance(new Locale("sv", "SE"));
+    }
+}
@@ -0,0 +1,116 @@
+import javax.swing.DefaultRowSorter;
+import javax.swing.RowFilter;
+import java.util.Comparator;
+import java.util.Locale;
+
+/***
+ * Sorts and filters the table of programs by the keys computed by the
+ * ProgramTableModel, instead of comparing the shown strings with a
+ * collator as a TableRowSorter does. The table is sorted by name, start
+ * time, end time or length by clicking the column headers, and filtered
+ * by a text in the name and a time of day.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ProgramTableSorter
+        extends DefaultRowSorter<ProgramTableModel, Integer> {
+
+    private static final Comparator<Comparable<Object>> KEY_ORDER =
+            Comparator.naturalOrder();
+
+    /***
+     * Constructor.
+     *
+     * @param model The model of the table of programs.
+     */
+    public ProgramTableSorter(ProgramTableModel model) {
+        setModelWrapper(new Keys(model));
+    }
+
+    /***
+     * Shows only the programs that contain a text in their names and
+     * start within a time of day. A span that ends before it starts
+     * passes midnight, and a span from 0 to 1440 is the whole day.
+     *
+     * @param text The text, the case is ignored.
+     * @param fromMinute The first minute of the day.
+     * @param toMinute The minute of the day after the last one.
+     */
+    public void setFilter(String text, int fromMinute, int toMinute) {
+        String lower = text.trim().toLowerCase(Locale.ROOT);
+
+        if(lower.isEmpty() && fromMinute == 0 && toMinute == 24 * 60) {
+            setRowFilter(null);
+            return;
+        }
+
+        setRowFilter(new RowFilter<ProgramTableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends ProgramTableModel,
+                    ? extends Integer> entry) {
+                return entry.getModel().matches(entry.getIdentifier(),
+                        lower, fromMinute, toMinute);
+            }
+        });
+    }
+
+    /***
+     * The keys are compared in their natural order, so the shown strings
+     * are never used.
+     *
+     * @param column The column.
+     * @return The comparator of the keys.
+     */
+    @Override
+    public Comparator<?> getComparator(int column) {
+        return KEY_ORDER;
+    }
+
+    @Override
+    protected boolean useToString(int column) {
+        return false;
+    }
+
+    /***
+     * Gives the sorter the keys of the rows instead of their values.
+     */
+    private static class Keys extends ModelWrapper<ProgramTableModel,
+            Integer> {
+        private final ProgramTableModel model;
+
+        private Keys(ProgramTableModel model) {
+            this.model = model;
+        }
+
+        @Override
+        public ProgramTableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return model.getColumnCount();
+        }
+
+        @Override
+        public int getRowCount() {
+            return model.getRowCount();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return model.getSortKey(row, column);
+        }
+
+        @Override
+        public String getStringValueAt(int row, int column) {
+            return String.valueOf(model.getValueAt(row, column));
+        }
+
+        @Override
+        public Integer getIdentifier(int row) {
+            return row;
+        }
+    }
+}
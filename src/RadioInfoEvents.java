@@ -0,0 +1,137 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/***
+ * Java Flight Recorder events of a refresh of RadioInfo. Together they
+ * show where the time of a single refresh went: the refresh itself, every
+ * download and parse of an xml file, the publishing of the loaded channels
+ * and every update of the ui on the EDT.
+ *
+ * Record with: java -XX:StartFlightRecording=filename=radioinfo.jfr Main
+ * and open the recording in JDK Mission Control, or print the events with
+ * jfr print --categories RadioInfo radioinfo.jfr. The events are always
+ * created and begun, but they are only filled in and committed when
+ * shouldCommit says that they are recorded, so that no fields are
+ * computed when no recording is running.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class RadioInfoEvents {
+
+    private RadioInfoEvents() {
+    }
+
+    /***
+     * A refresh of all channels and programs, from the start of the
+     * loading until it has been shown, published, cancelled or has failed.
+     */
+    @Name("radioinfo.Refresh")
+    @Label("Refresh")
+    @Category("RadioInfo")
+    public static class Refresh extends Event {
+        @Label("Source")
+        @Description("gui, prefetch for a refresh of the gui loaded ahead "
+                + "of time, or daemon")
+        public String source;
+
+        @Label("Channels")
+        @Description("Channels shown when the refresh ended, or loaded by "
+                + "the daemon")
+        public int channels;
+
+        @Label("Outcome")
+        @Description("loaded, cancelled or failed")
+        public String outcome;
+    }
+
+    /***
+     * The download of one xml file from the api.
+     */
+    @Name("radioinfo.Fetch")
+    @Label("Fetch")
+    @Category("RadioInfo")
+    public static class Fetch extends Event {
+        @Label("Channel Id")
+        @Description("0 for the list of channels and for episodes")
+        public int channelId;
+
+        @Label("Url")
+        public String url;
+
+        @Label("Bytes")
+        @Description("Bytes read, 0 if the download failed")
+        @DataAmount
+        public long bytes;
+
+        @Label("Outcome")
+        @Description("ok, cancelled, or the name of the exception")
+        public String outcome;
+    }
+
+    /***
+     * The parsing of one downloaded xml file, or the reuse of an earlier
+     * result from the response cache.
+     */
+    @Name("radioinfo.Parse")
+    @Label("Parse")
+    @Category("RadioInfo")
+    public static class Parse extends Event {
+        @Label("Channel Id")
+        @Description("0 for the list of channels and for episodes")
+        public int channelId;
+
+        @Label("Bytes")
+        @Description("Size of the xml file")
+        @DataAmount
+        public long bytes;
+
+        @Label("Entries")
+        @Description("Channels or programs parsed or reused, 0 if the "
+                + "parse did not finish")
+        public int entries;
+
+        @Label("Outcome")
+        @Description("parsed, cached, cancelled or failed")
+        public String outcome;
+    }
+
+    /***
+     * Loaded channels being made visible to their readers, the index of
+     * the gui or the responses of the daemon.
+     */
+    @Name("radioinfo.Publish")
+    @Label("Publish")
+    @Category("RadioInfo")
+    public static class Publish extends Event {
+        @Label("Source")
+        @Description("gui or daemon")
+        public String source;
+
+        @Label("Channels")
+        @Description("Channels published, with or without programs")
+        public int channels;
+    }
+
+    /***
+     * An update of the ui that held the EDT.
+     */
+    @Name("radioinfo.EdtUpdate")
+    @Label("EDT Update")
+    @Category("RadioInfo")
+    public static class EdtUpdate extends Event {
+        @Label("Kind")
+        @Description("refresh, channel for a change of channel, or "
+                + "dispatch for a frame of queued updates")
+        public String kind;
+
+        @Label("Rows")
+        @Description("Programs shown in the table, or updates applied by "
+                + "a dispatch")
+        public int rows;
+    }
+}
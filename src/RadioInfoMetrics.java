@@ -0,0 +1,405 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Metrics of the fetch, parse, refresh and render stages of RadioInfo,
+ * shared by every TableLoader and TableController in the process. They
+ * are registered as an MBean under radioinfo:type=Metrics so that they can
+ * be read with jconsole or any other JMX tool.
+ *
+ * Start with -Dradioinfo.metricsFile=path to also write the metrics to a
+ * file every -Dradioinfo.metricsInterval seconds (60 by default).
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class RadioInfoMetrics implements RadioInfoMetricsMBean {
+
+    private static RadioInfoMetrics instance;
+
+    private volatile LatencyHistogram fetches;
+    private volatile LatencyHistogram parses;
+    private volatile LatencyHistogram refreshes;
+    private volatile LatencyHistogram edtUpdates;
+    private ConcurrentHashMap<Integer, LatencyHistogram> channelFetches;
+    private ConcurrentHashMap<String, LatencyHistogram> sources;
+    private ConcurrentHashMap<String, AtomicLong> sourceFailures;
+
+    private AtomicLong bytes;
+    private AtomicLong fetchErrors;
+    private AtomicLong parseErrors;
+    private AtomicLong refreshFailures;
+    private AtomicLong lastRefreshNanos;
+    private AtomicLong skippedParses;
+    private AtomicLong savedParseCpuNanos;
+
+    /***
+     * Constructor, creates empty metrics. Use get for the metrics shared
+     * by the process.
+     */
+    RadioInfoMetrics() {
+        channelFetches = new ConcurrentHashMap<>();
+        sources = new ConcurrentHashMap<>();
+        sourceFailures = new ConcurrentHashMap<>();
+        bytes = new AtomicLong();
+        fetchErrors = new AtomicLong();
+        parseErrors = new AtomicLong();
+        refreshFailures = new AtomicLong();
+        lastRefreshNanos = new AtomicLong();
+        skippedParses = new AtomicLong();
+        savedParseCpuNanos = new AtomicLong();
+
+        reset();
+    }
+
+    /***
+     * Gets the metrics of the process. They are registered with the
+     * platform MBean server, and the periodic dump is started if a file is
+     * set, the first time this is called.
+     *
+     * @return The metrics.
+     */
+    public static synchronized RadioInfoMetrics get() {
+        if(instance == null) {
+            instance = new RadioInfoMetrics();
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        instance, new ObjectName("radioinfo:type=Metrics"));
+            } catch (JMException e) {
+                System.err.println("Kunde ej registrera mätvärden: "
+                        + e.getMessage());
+            }
+
+            String file = System.getProperty("radioinfo.metricsFile");
+            if(file != null) {
+                instance.startDump(Paths.get(file), Long.getLong(
+                        "radioinfo.metricsInterval", 60));
+            }
+        }
+
+        return instance;
+    }
+
+    /***
+     * Writes the metrics to a file at a fixed interval. The file is
+     * replaced in one step so that a reader never sees half of it.
+     *
+     * @param file The file to write to.
+     * @param seconds The interval in seconds.
+     */
+    public void startDump(Path file, long seconds) {
+        ScheduledExecutorService dumper =
+                Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "RadioInfoMetrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (Writer out = Files.newBufferedWriter(temp,
+                        StandardCharsets.UTF_8)) {
+                    out.write(dump());
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("Kunde ej skriva mätvärden: "
+                        + e.getMessage());
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /***
+     * Records a downloaded file.
+     *
+     * @param nanos The time from the request to the last byte.
+     * @param length The number of bytes read.
+     */
+    public void recordFetch(long nanos, long length) {
+        fetches.record(nanos);
+        bytes.addAndGet(length);
+    }
+
+    /***
+     * Records a download that failed.
+     */
+    public void recordFetchError() {
+        fetchErrors.incrementAndGet();
+    }
+
+    /***
+     * Records a parsed file.
+     *
+     * @param nanos The time spent parsing.
+     */
+    public void recordParse(long nanos) {
+        parses.record(nanos);
+    }
+
+    /***
+     * Records a file that could not be parsed.
+     */
+    public void recordParseError() {
+        parseErrors.incrementAndGet();
+    }
+
+    /***
+     * Records a file that was unchanged since it was last read and was
+     * therefore not parsed again.
+     *
+     * @param cpuNanos The cpu time the earlier parse of the file took.
+     */
+    public void recordSkippedParse(long cpuNanos) {
+        skippedParses.incrementAndGet();
+        savedParseCpuNanos.addAndGet(cpuNanos);
+    }
+
+    /***
+     * Records a file of a channel that was downloaded. Days read from the
+     * segment cache are not downloaded and not recorded.
+     *
+     * @param id The id of the channel.
+     * @param nanos The time from the request to the last byte.
+     */
+    public void recordChannelFetch(int id, long nanos) {
+        channelFetches.computeIfAbsent(id, k -> new LatencyHistogram())
+                .record(nanos);
+    }
+
+    /***
+     * Records a request to a schedule source of a ScheduleAggregator.
+     *
+     * @param source The name of the source.
+     * @param nanos The time until the source answered.
+     * @param ok False if the request failed.
+     */
+    public void recordSourceFetch(String source, long nanos, boolean ok) {
+        sources.computeIfAbsent(source, k -> new LatencyHistogram())
+                .record(nanos);
+
+        if(!ok) {
+            sourceFailures.computeIfAbsent(source, k -> new AtomicLong())
+                    .incrementAndGet();
+        }
+    }
+
+    /***
+     * Records a finished update of all channels.
+     *
+     * @param nanos The time from the start of the update to its end.
+     * @param loaded True if the channels were loaded.
+     */
+    public void recordRefresh(long nanos, boolean loaded) {
+        refreshes.record(nanos);
+        lastRefreshNanos.set(nanos);
+
+        if(!loaded) {
+            refreshFailures.incrementAndGet();
+        }
+    }
+
+    /***
+     * Records the time an update of the ui held the EDT.
+     *
+     * @param nanos The time spent on the EDT.
+     */
+    public void recordEdtUpdate(long nanos) {
+        edtUpdates.record(nanos);
+    }
+
+    @Override
+    public long getFetchCount() {
+        return fetches.getCount();
+    }
+
+    @Override
+    public long getFetchErrors() {
+        return fetchErrors.get();
+    }
+
+    @Override
+    public long getBytesFetched() {
+        return bytes.get();
+    }
+
+    @Override
+    public double getFetchP50Millis() {
+        return fetches.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getFetchP99Millis() {
+        return fetches.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public long getParseCount() {
+        return parses.getCount();
+    }
+
+    @Override
+    public long getParseErrors() {
+        return parseErrors.get();
+    }
+
+    @Override
+    public double getParseMeanMillis() {
+        return parses.getMeanMillis();
+    }
+
+    @Override
+    public double getParseP99Millis() {
+        return parses.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public long getSkippedParses() {
+        return skippedParses.get();
+    }
+
+    @Override
+    public double getSavedParseCpuMillis() {
+        return savedParseCpuNanos.get() / 1e6;
+    }
+
+    @Override
+    public long getRefreshCount() {
+        return refreshes.getCount();
+    }
+
+    @Override
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    @Override
+    public double getLastRefreshMillis() {
+        return lastRefreshNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getRefreshP99Millis() {
+        return refreshes.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public long getEdtUpdateCount() {
+        return edtUpdates.getCount();
+    }
+
+    @Override
+    public double getEdtP99Millis() {
+        return edtUpdates.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getEdtMaxMillis() {
+        return edtUpdates.getMaxMillis();
+    }
+
+    @Override
+    public String[] getChannelFetchTimes() {
+        TreeMap<Integer, LatencyHistogram> sorted =
+                new TreeMap<>(channelFetches);
+
+        String[] lines = new String[sorted.size()];
+        int i = 0;
+        for(Map.Entry<Integer, LatencyHistogram> entry : sorted.entrySet()) {
+            lines[i++] = entry.getKey() + ": " + entry.getValue();
+        }
+
+        return lines;
+    }
+
+    @Override
+    public String[] getSourceTimes() {
+        TreeMap<String, LatencyHistogram> sorted = new TreeMap<>(sources);
+
+        String[] lines = new String[sorted.size()];
+        int i = 0;
+        for(Map.Entry<String, LatencyHistogram> entry : sorted.entrySet()) {
+            AtomicLong failures = sourceFailures.get(entry.getKey());
+
+            lines[i++] = entry.getKey() + ": " + entry.getValue()
+                    + " failures=" + (failures == null ? 0 : failures.get());
+        }
+
+        return lines;
+    }
+
+    @Override
+    public String[] getStartupTimeline() {
+        return StartupTimeline.getLines();
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+
+        text.append("time ").append(Instant.now()).append('\n');
+        text.append("fetch ").append(fetches).append(" errors=")
+                .append(fetchErrors.get()).append(" bytes=")
+                .append(bytes.get()).append('\n');
+        text.append("parse ").append(parses).append(" errors=")
+                .append(parseErrors.get()).append(" skipped=")
+                .append(skippedParses.get()).append(" savedCpuMs=")
+                .append(String.format(Locale.ROOT, "%.1f",
+                        getSavedParseCpuMillis())).append('\n');
+        text.append("refresh ").append(refreshes).append(" failures=")
+                .append(refreshFailures.get()).append('\n');
+        text.append("edt ").append(edtUpdates).append('\n');
+
+        for(String line : getChannelFetchTimes()) {
+            text.append("channel ").append(line).append('\n');
+        }
+
+        for(String line : getSourceTimes()) {
+            text.append("source ").append(line).append('\n');
+        }
+
+        for(String line : getStartupTimeline()) {
+            text.append("startup ").append(line).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        fetches = new LatencyHistogram();
+        parses = new LatencyHistogram();
+        refreshes = new LatencyHistogram();
+        edtUpdates = new LatencyHistogram();
+        channelFetches.clear();
+        sources.clear();
+        sourceFailures.clear();
+
+        bytes.set(0);
+        fetchErrors.set(0);
+        parseErrors.set(0);
+        refreshFailures.set(0);
+        lastRefreshNanos.set(0);
+        skippedParses.set(0);
+        savedParseCpuNanos.set(0);
+    }
+}
@@ -0,0 +1,79 @@
+/***
+ * Management interface of the RadioInfoMetrics, shown by JMX tools such as
+ * jconsole under radioinfo:type=Metrics. Durations are in milliseconds.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public interface RadioInfoMetricsMBean {
+
+    long getFetchCount();
+
+    long getFetchErrors();
+
+    long getBytesFetched();
+
+    double getFetchP50Millis();
+
+    double getFetchP99Millis();
+
+    long getParseCount();
+
+    long getParseErrors();
+
+    double getParseMeanMillis();
+
+    double getParseP99Millis();
+
+    long getSkippedParses();
+
+    double getSavedParseCpuMillis();
+
+    long getRefreshCount();
+
+    long getRefreshFailures();
+
+    double getLastRefreshMillis();
+
+    double getRefreshP99Millis();
+
+    long getEdtUpdateCount();
+
+    double getEdtP99Millis();
+
+    double getEdtMaxMillis();
+
+    /***
+     * Gets the time it takes to download the files of each channel.
+     *
+     * @return One line per channel id with its histogram.
+     */
+    String[] getChannelFetchTimes();
+
+    /***
+     * Gets the time each schedule source takes to answer, and how often
+     * it fails.
+     *
+     * @return One line per source with its histogram and failures.
+     */
+    String[] getSourceTimes();
+
+    /***
+     * Gets the milestones of the start of the application.
+     *
+     * @return One line per milestone with the time since the jvm started.
+     */
+    String[] getStartupTimeline();
+
+    /***
+     * Gets every metric as text, in the same format as the dump file.
+     *
+     * @return The metrics.
+     */
+    String dump();
+
+    /***
+     * Sets every metric back to zero.
+     */
+    void reset();
+}
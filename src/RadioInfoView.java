@@ -0,0 +1,225 @@
+import java.awt.event.ActionListener;
+import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+
+/***
+ * The view used by the TableController to show channels and programs.
+ * Implemented by the GUI, and by views without windows when the
+ * controller is run headless.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public interface RadioInfoView {
+
+    /***
+     * Adds the given channel to the list of channels.
+     *
+     * @param channel The channel to be added to the list.
+     */
+    void addChannelToList(Channel channel);
+
+    /***
+     * Removes all channels from the list of channels.
+     */
+    void clearList();
+
+    /***
+     * Replaces the channels in the list of channels. The selected channel
+     * stays selected if it is still in the list.
+     *
+     * @param channels The channels to list.
+     */
+    void setChannels(List<Channel> channels);
+
+    /***
+     * Gets the selected channel in the list of channels.
+     *
+     * @return The selected channel.
+     */
+    Channel getSelectedChannel();
+
+    /***
+     * Replaces the programs in the table of programs.
+     *
+     * @param programs The programs to show, sorted by start time.
+     */
+    void setPrograms(List<Program> programs);
+
+    /***
+     * Removes all programs from the table of programs.
+     */
+    void clearTable();
+
+    /***
+     * Gets the selected program in the table of programs.
+     *
+     * @return The selected program, or null if no row is selected.
+     */
+    Program getSelectedProgram();
+
+    /***
+     * Sets the title of the table of programs.
+     *
+     * @param channel The name of the current channel.
+     */
+    void setTitle(String channel);
+
+    /***
+     * Hides the channel select window.
+     */
+    void closeChannelSelect();
+
+    /***
+     * Shows information about a program.
+     *
+     * @param info The description of the program.
+     * @param startTime The start time of the program.
+     * @param endTime The end time of the program.
+     */
+    void setProgramInfo(String info, String startTime, String endTime);
+
+    /***
+     * Sets the name of the shown program.
+     *
+     * @param name The name of the program.
+     */
+    void setProgramName(String name);
+
+    /***
+     * Sets the image of the shown program.
+     *
+     * @param image The image to show.
+     */
+    void setImage(BufferedImage image);
+
+    /***
+     * Opens the window with information about the selected program.
+     *
+     * @param channel The channel of the program.
+     */
+    void openSelectedProgram(String channel);
+
+    /***
+     * Replaces the rows of the now and next overview.
+     *
+     * @param rows The rows of the overview.
+     */
+    void setOverview(List<String[]> rows);
+
+    /***
+     * Replaces one row of the now and next overview.
+     *
+     * @param row The row to update.
+     * @param data The new values of the row.
+     */
+    void updateOverviewRow(int row, String[] data);
+
+    /***
+     * Opens the now and next overview.
+     */
+    void openOverview();
+
+    /***
+     * Gets the entered search text.
+     *
+     * @return The search text.
+     */
+    String getSearchText();
+
+    /***
+     * Shows the results of a search.
+     *
+     * @param rows The rows of the results.
+     */
+    void setSearchResults(List<String[]> rows);
+
+    /***
+     * Displays an error message.
+     *
+     * @param error The message to be displayed.
+     */
+    void displayError(String error);
+
+    /***
+     * Adds a listener for the update menu item.
+     *
+     * @param actionListener The listener to be added.
+     */
+    void addUpdateListener(ActionListener actionListener);
+
+    /***
+     * Adds a listener for the export menu item.
+     *
+     * @param actionListener The listener to be added.
+     */
+    void addExportListener(ActionListener actionListener);
+
+    /***
+     * Asks for the channels and days to export.
+     *
+     * @param channels The channels that can be exported.
+     * @return The chosen channels and days, or null if none were chosen.
+     */
+    ScheduleExport.Selection chooseExport(List<Channel> channels);
+
+    /***
+     * Asks for the file to export the schedules to.
+     *
+     * @return The chosen file, or null if none was chosen.
+     */
+    File chooseExportFile();
+
+    /***
+     * Adds a listener for the watchlist menu item.
+     *
+     * @param actionListener The listener to be added.
+     */
+    void addWatchlistListener(ActionListener actionListener);
+
+    /***
+     * Lets the user edit the watched words.
+     *
+     * @param patterns The current words.
+     * @return The edited words, or null if the edit was cancelled.
+     */
+    List<String> editWatchlist(List<String> patterns);
+
+    /***
+     * Shows programs that newly matched the watchlist.
+     *
+     * @param rows The rows of matches, the channel, the name of the
+     *             program, its start time and the matched word.
+     */
+    void showWatchlistMatches(List<String[]> rows);
+
+    /***
+     * Adds a listener for the now and next menu item.
+     *
+     * @param actionListener The listener to be added.
+     */
+    void addOverviewListener(ActionListener actionListener);
+
+    /***
+     * Adds a listener for the search field.
+     *
+     * @param actionListener The listener to be added.
+     */
+    void addSearchListener(ActionListener actionListener);
+
+    /***
+     * Adds a mouse listener to the list of channels.
+     *
+     * @param mouseListener The listener to be added.
+     */
+    void addChannelSelectListener(MouseListener mouseListener);
+
+    /***
+     * Adds a mouse listener to the table of programs.
+     *
+     * @param mouseListener The listener to be added.
+     */
+    void addProgramSelectListener(MouseListener mouseListener);
+}
@@ -0,0 +1,229 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/***
+ * Remembers a hash of the last response body of every url read by the
+ * TableLoader together with what was parsed from it. Most responses are
+ * identical from one hourly update to the next, so an unchanged body can
+ * be answered with the earlier result without being parsed again.
+ *
+ * The urls name days and episodes, so new ones are read for as long as
+ * the program runs. Only the most recently used are kept, 1024 by default
+ * or as many as set with -Dradioinfo.responses.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ResponseCache {
+
+    private LinkedHashMap<String, Entry> entries;
+
+    private AtomicLong parses;
+    private AtomicLong skippedParses;
+    private AtomicLong savedCpuNanos;
+
+    /***
+     * Constructor, creates an empty cache of the size set with
+     * radioinfo.responses.
+     */
+    public ResponseCache() {
+        this(Integer.getInteger("radioinfo.responses", 1024));
+    }
+
+    /***
+     * Constructor, creates an empty cache.
+     *
+     * @param capacity The maximum number of urls to keep the response of.
+     */
+    public ResponseCache(int capacity) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> e) {
+                return size() > capacity;
+            }
+        };
+
+        parses = new AtomicLong();
+        skippedParses = new AtomicLong();
+        savedCpuNanos = new AtomicLong();
+    }
+
+    /***
+     * Calculates the hash of a response body.
+     *
+     * @param body The bytes of the response body.
+     * @return The hash of the body.
+     */
+    public static long hash(byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body, 0, body.length);
+
+        //Include the length so that equal checksums of different sized
+        //bodies never match.
+        return ((long) body.length << 32) ^ crc.getValue();
+    }
+
+    /***
+     * Gets the parsed result of the given url if the body is unchanged
+     * since it was last stored.
+     *
+     * @param url The url the body was read from.
+     * @param hash The hash of the new body.
+     * @return The previously parsed page or null if the body has changed.
+     */
+    public ParsedPage<?> get(String url, long hash) {
+        Entry entry;
+        synchronized(this) {
+            entry = entries.get(url);
+        }
+
+        if(entry == null || entry.hash != hash) {
+            return null;
+        }
+
+        skippedParses.incrementAndGet();
+        savedCpuNanos.addAndGet(entry.parseCpuNanos);
+        RadioInfoMetrics.get().recordSkippedParse(entry.parseCpuNanos);
+
+        return entry.page;
+    }
+
+    /***
+     * Stores the parsed result of a new body read from the given url.
+     *
+     * @param url The url the body was read from.
+     * @param hash The hash of the body.
+     * @param page The result of parsing the body.
+     * @param parseCpuNanos The cpu time spent parsing the body.
+     */
+    public void put(String url, long hash, ParsedPage<?> page,
+                    long parseCpuNanos) {
+        parses.incrementAndGet();
+
+        synchronized(this) {
+            entries.put(url, new Entry(hash, page, parseCpuNanos));
+        }
+    }
+
+    /***
+     * Get the number of urls whose response is kept.
+     *
+     * @return The number of urls.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /***
+     * Get the cpu time used by the current thread, or the wall clock time
+     * if the jvm does not support measuring thread cpu time.
+     *
+     * @return The time in nanoseconds.
+     */
+    public static long cpuTime() {
+        ThreadMXBean threads = Threads.BEAN;
+
+        if(threads.isCurrentThreadCpuTimeSupported()) {
+            return threads.getCurrentThreadCpuTime();
+        }
+
+        return System.nanoTime();
+    }
+
+    /***
+     * Get the number of bodies that had to be parsed.
+     *
+     * @return The number of parsed bodies.
+     */
+    public long getParses() {
+        return parses.get();
+    }
+
+    /***
+     * Get the number of bodies that were unchanged and therefore
+     * not parsed.
+     *
+     * @return The number of skipped parses.
+     */
+    public long getSkippedParses() {
+        return skippedParses.get();
+    }
+
+    /***
+     * Get the cpu time that the skipped parses took the first time.
+     *
+     * @return The saved cpu time in nanoseconds.
+     */
+    public long getSavedCpuNanos() {
+        return savedCpuNanos.get();
+    }
+
+    /***
+     * Holds the thread bean, so that the management classes are loaded
+     * on the first parse instead of when a cache is created at startup.
+     */
+    private static class Threads {
+        private static final ThreadMXBean BEAN =
+                ManagementFactory.getThreadMXBean();
+    }
+
+    /***
+     * The stored hash and parse result of a url.
+     */
+    private static class Entry {
+        private final long hash;
+        private final ParsedPage<?> page;
+        private final long parseCpuNanos;
+
+        private Entry(long hash, ParsedPage<?> page, long parseCpuNanos) {
+            this.hash = hash;
+            this.page = page;
+            this.parseCpuNanos = parseCpuNanos;
+        }
+    }
+
+    /***
+     * The entries parsed from one response body together with the
+     * total number of pages the response belongs to.
+     *
+     * @param <T> The type of the parsed entries.
+     */
+    public static class ParsedPage<T> {
+        private final List<T> entries;
+        private final int totalPages;
+
+        /***
+         * Constructor.
+         *
+         * @param entries The parsed entries.
+         * @param totalPages The total number of pages.
+         */
+        public ParsedPage(List<T> entries, int totalPages) {
+            this.entries = entries;
+            this.totalPages = totalPages;
+        }
+
+        /***
+         * Get the parsed entries.
+         *
+         * @return The list of entries.
+         */
+        public List<T> getEntries() {
+            return entries;
+        }
+
+        /***
+         * Get the total number of pages.
+         *
+         * @return The total number of pages.
+         */
+        public int getTotalPages() {
+            return totalPages;
+        }
+    }
+}
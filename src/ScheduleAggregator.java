@@ -0,0 +1,393 @@
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * Combines several schedule sources into one. Every source is asked at
+ * the same time, and the answers are merged by a policy:
+ *
+ * FIRST_RESPONSE uses the first source to answer with a schedule, so the
+ * fastest source decides how long a load takes. FALLBACK prefers the
+ * sources in the order they were given, and only uses the answer of a
+ * later source if the earlier ones failed or had no schedule. The later
+ * sources are still asked at once, so a fallback costs no extra time.
+ *
+ * The channels of all sources that answered are merged into one set, and
+ * the programs of a channel are only asked from the sources that have the
+ * channel. The time every source takes to answer is recorded in the
+ * RadioInfoMetrics.
+ *
+ * Start with -Dradioinfo.sources=sr,file:directory to load from several
+ * sources, and -Dradioinfo.sourcePolicy=first or fallback (the default)
+ * to choose the policy.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleAggregator implements ScheduleSource {
+
+    //Shared between aggregators since a new one is created every update.
+    private static final ExecutorService POOL =
+            Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "ScheduleAggregator");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /***
+     * How the answers of the sources are merged.
+     */
+    public enum Policy {
+        FIRST_RESPONSE, FALLBACK
+    }
+
+    private List<ScheduleSource> sources;
+    private Policy policy;
+    private RadioInfoMetrics metrics;
+
+    //The sources that have each channel, in the order of the policy.
+    private ConcurrentHashMap<Integer, List<ScheduleSource>> owners;
+    private volatile boolean cancelled;
+    private List<Future<?>> running;
+
+    /***
+     * Constructor.
+     *
+     * @param sources The sources, in the order they are preferred.
+     * @param policy How the answers of the sources are merged.
+     */
+    public ScheduleAggregator(List<ScheduleSource> sources, Policy policy) {
+        this.sources = new ArrayList<>(sources);
+        this.policy = policy;
+
+        metrics = RadioInfoMetrics.get();
+        owners = new ConcurrentHashMap<>();
+        running = new ArrayList<>();
+    }
+
+    /***
+     * Creates the source set with the property radioinfo.sources, a comma
+     * separated list of sr for the api and file:directory for xml files.
+     *
+     * @param api The loader of the api, used for sr.
+     * @param window The window of programs to load.
+     * @return The api loader itself if no sources are set, otherwise an
+     * aggregator of the sources.
+     */
+    public static ScheduleSource fromProperties(TableLoader api,
+                                                ScheduleWindow window) {
+        String names = System.getProperty("radioinfo.sources");
+        if(names == null) {
+            return api;
+        }
+
+        ArrayList<ScheduleSource> sources = new ArrayList<>();
+        for(String name : names.split(",")) {
+            name = name.trim();
+
+            if(name.equals("sr")) {
+                sources.add(api);
+            }
+            else if(name.startsWith("file:")) {
+                sources.add(new FileScheduleSource(
+                        Paths.get(name.substring(5)), window));
+            }
+            else {
+                System.err.println("Okänd källa: " + name);
+            }
+        }
+
+        String policy = System.getProperty("radioinfo.sourcePolicy",
+                "fallback").toLowerCase(Locale.ROOT);
+
+        return new ScheduleAggregator(sources, policy.equals("first")
+                ? Policy.FIRST_RESPONSE : Policy.FALLBACK);
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder();
+
+        for(ScheduleSource source : sources) {
+            name.append(name.length() == 0 ? "" : ",")
+                    .append(source.getName());
+        }
+
+        return name.toString();
+    }
+
+    /***
+     * Loads the channels of every source and merges them by id. A channel
+     * found in several sources is taken from the source preferred by the
+     * policy.
+     *
+     * @return The merged channels.
+     * @throws ParserConfigurationException If every source failed.
+     * @throws SAXException If every source failed.
+     * @throws IOException If every source failed.
+     */
+    @Override
+    public List<Channel> fetchChannels()
+            throws ParserConfigurationException, SAXException, IOException {
+        List<Answer<List<Channel>>> answers = askAll(sources,
+                ScheduleSource::fetchChannels, false);
+
+        LinkedHashMap<Integer, Channel> merged = new LinkedHashMap<>();
+        owners.clear();
+        Throwable failure = null;
+
+        for(Answer<List<Channel>> answer : answers) {
+            if(answer.failure != null) {
+                failure = failure == null ? answer.failure : failure;
+                continue;
+            }
+
+            for(Channel channel : answer.value) {
+                merged.putIfAbsent(channel.getId(), channel);
+                owners.computeIfAbsent(channel.getId(),
+                        k -> new ArrayList<>()).add(answer.source);
+            }
+        }
+
+        if(merged.isEmpty() && failure != null) {
+            rethrow(failure);
+        }
+
+        return new ArrayList<>(merged.values());
+    }
+
+    /***
+     * Loads the programs of a channel from the sources that have it.
+     *
+     * @param channelId The id of the channel.
+     * @param now The time in milliseconds since the epoch that the window
+     *            is placed around.
+     * @return The programs of the source chosen by the policy, or null if
+     * no source has a schedule for the channel.
+     * @throws ParserConfigurationException If every source failed.
+     * @throws SAXException If every source failed.
+     * @throws IOException If every source failed.
+     */
+    @Override
+    public List<Program> fetchPrograms(int channelId, long now)
+            throws ParserConfigurationException, SAXException, IOException {
+        List<ScheduleSource> asked = owners.getOrDefault(channelId, sources);
+
+        List<Answer<List<Program>>> answers = askAll(asked,
+                source -> source.fetchPrograms(channelId, now), true);
+
+        Throwable failure = null;
+        for(Answer<List<Program>> answer : answers) {
+            if(answer.failure == null && answer.value != null) {
+                return answer.value;
+            }
+            if(failure == null) {
+                failure = answer.failure;
+            }
+        }
+
+        if(failure != null) {
+            rethrow(failure);
+        }
+
+        return null;
+    }
+
+    /***
+     * Cancels every source and every request still running.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+
+        for(ScheduleSource source : sources) {
+            source.cancel();
+        }
+
+        synchronized(running) {
+            running.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /***
+     * Asks every source at the same time and gives their answers in the
+     * order of the policy, the order of the sources for FALLBACK and the
+     * order they answered in for FIRST_RESPONSE.
+     *
+     * @param asked The sources to ask.
+     * @param request The request to send to each source.
+     * @param untilFound True to stop at the first answer with a value,
+     *                   when the answers of the remaining sources are
+     *                   cancelled and left out.
+     * @param <T> The type of the answer.
+     * @return The answers.
+     * @throws InterruptedIOException If loading has been cancelled.
+     */
+    private <T> List<Answer<T>> askAll(List<ScheduleSource> asked,
+                                       Request<T> request,
+                                       boolean untilFound)
+            throws InterruptedIOException {
+        if(cancelled || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Hämtningen avbröts");
+        }
+
+        CompletionService<Answer<T>> completion =
+                new ExecutorCompletionService<>(POOL);
+        ArrayList<Future<Answer<T>>> futures = new ArrayList<>();
+
+        synchronized(running) {
+            for(ScheduleSource source : asked) {
+                Future<Answer<T>> future = completion.submit(
+                        timed(source, request));
+                futures.add(future);
+                running.add(future);
+            }
+        }
+
+        ArrayList<Answer<T>> answers = new ArrayList<>();
+        try {
+            if(policy == Policy.FIRST_RESPONSE) {
+                for(int i = 0; i < futures.size(); i++) {
+                    Answer<T> answer = completion.take().get();
+                    answers.add(answer);
+
+                    if(untilFound && answer.isFound()) {
+                        break;
+                    }
+                }
+            }
+            else {
+                for(Future<Answer<T>> future : futures) {
+                    Answer<T> answer = future.get();
+                    answers.add(answer);
+
+                    if(untilFound && answer.isFound()) {
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Hämtningen avbröts");
+        } catch (ExecutionException e) {
+            //Failures are caught in the answers, so this is a bug.
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            synchronized(running) {
+                for(Future<Answer<T>> future : futures) {
+                    future.cancel(true);
+                    running.remove(future);
+                }
+            }
+        }
+
+        if(cancelled) {
+            throw new InterruptedIOException("Hämtningen avbröts");
+        }
+
+        return answers;
+    }
+
+    /***
+     * Wraps a request to a source so that its time is recorded and its
+     * failure is returned as part of the answer.
+     *
+     * @param source The source to ask.
+     * @param request The request.
+     * @param <T> The type of the answer.
+     * @return The wrapped request.
+     */
+    private <T> Callable<Answer<T>> timed(ScheduleSource source,
+                                          Request<T> request) {
+        return () -> {
+            long start = System.nanoTime();
+
+            try {
+                T value = request.send(source);
+                metrics.recordSourceFetch(source.getName(),
+                        System.nanoTime() - start, true);
+
+                return new Answer<>(source, value, null);
+            } catch (Exception e) {
+                //Requests cancelled since another source answered first
+                //are not failures of their source.
+                if(!(e instanceof InterruptedIOException) || !(cancelled
+                        || Thread.currentThread().isInterrupted())) {
+                    metrics.recordSourceFetch(source.getName(),
+                            System.nanoTime() - start, false);
+                }
+
+                return new Answer<>(source, null, e);
+            }
+        };
+    }
+
+    /***
+     * Throws the failure of a source with its original type.
+     *
+     * @param cause The exception thrown by the source.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    private static void rethrow(Throwable cause)
+            throws ParserConfigurationException, SAXException, IOException {
+        if(cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if(cause instanceof SAXException) {
+            throw (SAXException) cause;
+        }
+        if(cause instanceof ParserConfigurationException) {
+            throw (ParserConfigurationException) cause;
+        }
+        if(cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        throw new RuntimeException(cause);
+    }
+
+    /***
+     * A request to a source.
+     */
+    private interface Request<T> {
+        T send(ScheduleSource source)
+                throws ParserConfigurationException, SAXException,
+                IOException;
+    }
+
+    /***
+     * The answer of a source, either a value or the reason it failed.
+     */
+    private static class Answer<T> {
+        private ScheduleSource source;
+        private T value;
+        private Exception failure;
+
+        Answer(ScheduleSource source, T value, Exception failure) {
+            this.source = source;
+            this.value = value;
+            this.failure = failure;
+        }
+
+        boolean isFound() {
+            return failure == null && value != null;
+        }
+    }
+}
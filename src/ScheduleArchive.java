@@ -0,0 +1,689 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/***
+ * Local archive of every schedule that has been loaded, so that programs
+ * that have left the schedule window can still be read without asking
+ * the api. The archive only grows at the end of its files: every append
+ * of a channel is written as a compressed block to the segment of the
+ * channel and utc month it starts in.
+ *
+ * A sparse index of the first and last start time of every block is kept
+ * in memory, so a range read only inflates the blocks that overlap the
+ * range, read from memory mapped segments. The same episodes are appended
+ * again on every refresh, so a segment with many blocks is compacted into
+ * a new generation that keeps only the latest version of every episode.
+ * A version loaded without description or image, as in the lean mode of
+ * the TableController, keeps those of the earlier versions. The name of
+ * every channel is kept next to its segments, so that the archived
+ * channels can be listed without asking the api.
+ *
+ * Start with -Dradioinfo.archive=directory to archive the schedules.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleArchive {
+
+    //Block header: compressed length, count, first start, last start.
+    private static final int HEADER = 4 + 4 + 8 + 8;
+
+    //A segment is compacted when an append gives it more blocks.
+    private static final int COMPACT_BLOCKS = 48;
+
+    //Programs per block when a segment is compacted.
+    private static final int BLOCK_PROGRAMS = 256;
+
+    //The file in the directory of a channel holding its name.
+    private static final String NAME_FILE = "name";
+
+    private Path directory;
+    private HashMap<Integer, TreeMap<YearMonth, Segment>> index;
+    private HashMap<Integer, String> names;
+
+    /***
+     * Constructor, the archive is created in the directory if it does not
+     * exist.
+     *
+     * @param directory The directory of the archive.
+     */
+    public ScheduleArchive(Path directory) {
+        this.directory = directory;
+        index = new HashMap<>();
+        names = new HashMap<>();
+    }
+
+    /***
+     * Creates the archive set with the property radioinfo.archive.
+     *
+     * @return The archive, or null if no directory is set.
+     */
+    public static ScheduleArchive fromProperties() {
+        String directory = System.getProperty("radioinfo.archive");
+
+        return directory == null ? null
+                : new ScheduleArchive(Paths.get(directory));
+    }
+
+    /***
+     * Appends the programs of a channel to the archive. Programs already
+     * in the archive are kept until the segment is compacted, after which
+     * only the latest version of each episode is kept.
+     *
+     * @param channelId The id of the channel.
+     * @param programs The programs of the channel.
+     * @throws IOException If the archive could not be written.
+     */
+    public synchronized void append(int channelId, List<Program> programs)
+            throws IOException {
+        TreeMap<YearMonth, List<Program>> months = new TreeMap<>();
+        for(Program p : programs) {
+            months.computeIfAbsent(monthOf(p.getStartMillis()),
+                    k -> new ArrayList<>()).add(p);
+        }
+
+        TreeMap<YearMonth, Segment> segments = segmentsOf(channelId);
+        for(Map.Entry<YearMonth, List<Program>> month : months.entrySet()) {
+            Segment segment = segments.get(month.getKey());
+
+            if(segment == null) {
+                segment = new Segment(segmentFile(channelId, month.getKey(),
+                        0), 0);
+                Files.createDirectories(segment.file.getParent());
+                segments.put(month.getKey(), segment);
+            }
+
+            List<Program> sorted = new ArrayList<>(month.getValue());
+            sorted.sort(Comparator.comparingLong(Program::getStartMillis));
+            segment.append(sorted);
+
+            if(segment.blocks.size() > COMPACT_BLOCKS) {
+                segments.put(month.getKey(), compact(channelId,
+                        month.getKey(), segment));
+            }
+        }
+    }
+
+    /***
+     * Stores the name of a channel, unless it is already stored.
+     *
+     * @param channelId The id of the channel.
+     * @param name The name of the channel, may be null.
+     * @throws IOException If the name could not be written.
+     */
+    public synchronized void setName(int channelId, String name)
+            throws IOException {
+        if(name == null || name.equals(names.get(channelId))) {
+            return;
+        }
+
+        Path file = directory.resolve(Integer.toString(channelId))
+                .resolve(NAME_FILE);
+        if(!name.equals(readName(file))) {
+            Files.createDirectories(file.getParent());
+            Files.write(file, name.getBytes(StandardCharsets.UTF_8));
+        }
+
+        names.put(channelId, name);
+    }
+
+    /***
+     * Gets the channels in the archive, with the names they were last
+     * archived with. Channels archived without a name get their id as
+     * name.
+     *
+     * @return The channels in order of id.
+     * @throws IOException If the archive could not be read.
+     */
+    public synchronized List<Channel> getChannels() throws IOException {
+        ArrayList<Channel> channels = new ArrayList<>();
+
+        if(!Files.isDirectory(directory)) {
+            return channels;
+        }
+
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(directory)) {
+            for(Path file : files) {
+                int id;
+                try {
+                    id = Integer.parseInt(file.getFileName().toString());
+                } catch (NumberFormatException e) {
+                    //Not the directory of a channel.
+                    continue;
+                }
+
+                String name = readName(file.resolve(NAME_FILE));
+
+                Channel channel = new Channel();
+                channel.setId(id);
+                channel.setName(name != null ? name : Integer.toString(id));
+                channels.add(channel);
+            }
+        }
+
+        channels.sort(Comparator.comparingInt(Channel::getId));
+
+        return channels;
+    }
+
+    /***
+     * Reads the stored name of a channel.
+     *
+     * @param file The name file of the channel.
+     * @return The name, or null if none is stored.
+     * @throws IOException If the file could not be read.
+     */
+    private static String readName(Path file) throws IOException {
+        if(!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /***
+     * Reads the programs of a channel starting within a range of time.
+     *
+     * @param channelId The id of the channel.
+     * @param from The start of the range in milliseconds since the epoch.
+     * @param to The end of the range, not included.
+     * @return The latest version of every program in the range, sorted
+     * by start time.
+     * @throws IOException If the archive could not be read.
+     */
+    public synchronized List<Program> read(int channelId, long from,
+                                           long to) throws IOException {
+        if(from >= to) {
+            return new ArrayList<>();
+        }
+
+        LinkedHashMap<String, Program> found = new LinkedHashMap<>();
+        TreeMap<YearMonth, Segment> segments = segmentsOf(channelId);
+        for(Segment segment : segments.subMap(monthOf(from), true,
+                monthOf(to - 1), true).values()) {
+            for(Program p : segment.read(from, to)) {
+                found.merge(key(p), p, ScheduleArchive::latest);
+            }
+        }
+
+        ArrayList<Program> programs = new ArrayList<>(found.values());
+        programs.sort(Comparator.comparingLong(Program::getStartMillis));
+
+        return programs;
+    }
+
+    /***
+     * Compacts every segment of every channel in the archive.
+     *
+     * @throws IOException If the archive could not be read or written.
+     */
+    public synchronized void compact() throws IOException {
+        if(!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> channels =
+                     Files.newDirectoryStream(directory)) {
+            for(Path channel : channels) {
+                int id;
+                try {
+                    id = Integer.parseInt(channel.getFileName().toString());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+
+                TreeMap<YearMonth, Segment> segments = segmentsOf(id);
+                for(YearMonth month : new ArrayList<>(segments.keySet())) {
+                    segments.put(month, compact(id, month,
+                            segments.get(month)));
+                }
+            }
+        }
+    }
+
+    /***
+     * Writes the latest version of every episode of a segment to the
+     * next generation of the segment and removes the old one.
+     *
+     * @param channelId The id of the channel.
+     * @param month The month of the segment.
+     * @param segment The segment to compact.
+     * @return The compacted segment.
+     * @throws IOException If the segment could not be read or written.
+     */
+    private Segment compact(int channelId, YearMonth month, Segment segment)
+            throws IOException {
+        LinkedHashMap<String, Program> latest = new LinkedHashMap<>();
+        for(Program p : segment.read(Long.MIN_VALUE, Long.MAX_VALUE)) {
+            latest.merge(key(p), p, ScheduleArchive::latest);
+        }
+
+        ArrayList<Program> programs = new ArrayList<>(latest.values());
+        programs.sort(Comparator.comparingLong(Program::getStartMillis));
+
+        //The new generation is written under a temporary name, so that a
+        //partly written generation never replaces the old one.
+        int generation = segment.generation + 1;
+        Path file = segmentFile(channelId, month, generation);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        Files.createFile(temp);
+
+        Segment written = new Segment(temp, generation);
+        for(int i = 0; i < programs.size(); i += BLOCK_PROGRAMS) {
+            written.append(programs.subList(i,
+                    Math.min(programs.size(), i + BLOCK_PROGRAMS)));
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+
+        Segment compacted = new Segment(file, generation);
+        compacted.blocks.addAll(written.blocks);
+        compacted.size = written.size;
+
+        //A mapped file can not be removed on every system, it is then
+        //removed when the archive is opened again.
+        segment.map = null;
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            segment.file.toFile().deleteOnExit();
+        }
+
+        return compacted;
+    }
+
+    /***
+     * Gets the segments of a channel, reading their block headers the
+     * first time the channel is used.
+     *
+     * @param channelId The id of the channel.
+     * @return The segments by month.
+     * @throws IOException If the segments could not be read.
+     */
+    private TreeMap<YearMonth, Segment> segmentsOf(int channelId)
+            throws IOException {
+        TreeMap<YearMonth, Segment> segments = index.get(channelId);
+        if(segments != null) {
+            return segments;
+        }
+
+        segments = new TreeMap<>();
+        Path channel = directory.resolve(Integer.toString(channelId));
+
+        if(Files.isDirectory(channel)) {
+            ArrayList<Path> old = new ArrayList<>();
+
+            try (DirectoryStream<Path> files =
+                         Files.newDirectoryStream(channel, "*.seg")) {
+                for(Path file : files) {
+                    //Files are named month.generation.seg
+                    String[] name = file.getFileName().toString()
+                            .split("\\.");
+                    YearMonth month = YearMonth.parse(name[0]);
+                    int generation = Integer.parseInt(name[1]);
+
+                    Segment current = segments.get(month);
+                    if(current == null || current.generation < generation) {
+                        if(current != null) {
+                            old.add(current.file);
+                        }
+                        segments.put(month, new Segment(file, generation));
+                    }
+                    else {
+                        old.add(file);
+                    }
+                }
+            }
+
+            for(Path file : old) {
+                Files.deleteIfExists(file);
+            }
+            for(Segment segment : segments.values()) {
+                segment.scan();
+            }
+        }
+
+        index.put(channelId, segments);
+
+        return segments;
+    }
+
+    private Path segmentFile(int channelId, YearMonth month,
+                             int generation) {
+        return directory.resolve(Integer.toString(channelId))
+                .resolve(month + "." + generation + ".seg");
+    }
+
+    private static YearMonth monthOf(long millis) {
+        return YearMonth.from(Instant.ofEpochMilli(millis)
+                .atZone(ZoneOffset.UTC));
+    }
+
+    /***
+     * Merges two versions of an episode. The later version is kept, with
+     * the description and image of the earlier one if it has none, as
+     * when it was loaded lean.
+     *
+     * @param earlier The earlier version, read from the archive.
+     * @param later The later version, read from the archive.
+     * @return The later version.
+     */
+    private static Program latest(Program earlier, Program later) {
+        if(later.getDescription() == null) {
+            later.setDescription(earlier.getDescription());
+        }
+        if(later.getImage() == null) {
+            later.setImage(earlier.getImage());
+        }
+
+        return later;
+    }
+
+    /***
+     * Gets the key of an episode. Programs without an episode id are told
+     * apart by their names.
+     *
+     * @param p The program.
+     * @return The start time and episode of the program.
+     */
+    private static String key(Program p) {
+        return p.getStartMillis() + "/" + (p.getEpisodeId() != 0
+                ? Long.toString(p.getEpisodeId()) : "n" + p.getName());
+    }
+
+    /***
+     * One file of compressed blocks, and the sparse index of its blocks.
+     */
+    private static class Segment {
+        private final Path file;
+        private final int generation;
+        private final ArrayList<Block> blocks;
+        private long size;
+        private MappedByteBuffer map;
+
+        private Segment(Path file, int generation) {
+            this.file = file;
+            this.generation = generation;
+            blocks = new ArrayList<>();
+        }
+
+        /***
+         * Reads the headers of the blocks in the file. A block that was
+         * not written to the end, for example when the program was
+         * stopped, is left out and written over by the next append.
+         *
+         * @throws IOException If the file could not be read.
+         */
+        private void scan() throws IOException {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.READ)) {
+                long length = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                long offset = 0;
+
+                while(offset + HEADER <= length) {
+                    header.clear();
+                    channel.read(header, offset);
+                    header.flip();
+
+                    int compressed = header.getInt();
+                    int count = header.getInt();
+                    long first = header.getLong();
+                    long last = header.getLong();
+
+                    if(compressed < 0
+                            || offset + HEADER + compressed > length) {
+                        break;
+                    }
+
+                    blocks.add(new Block(offset, compressed, count, first,
+                            last));
+                    offset += HEADER + compressed;
+                }
+
+                size = offset;
+            }
+        }
+
+        /***
+         * Compresses the programs into a block at the end of the file.
+         *
+         * @param programs The programs, sorted by start time.
+         * @throws IOException If the file could not be written.
+         */
+        private void append(List<Program> programs) throws IOException {
+            if(programs.isEmpty()) {
+                return;
+            }
+
+            byte[] data = encode(programs);
+            long first = programs.get(0).getStartMillis();
+            long last = programs.get(programs.size() - 1).getStartMillis();
+
+            ByteBuffer block = ByteBuffer.allocate(HEADER + data.length);
+            block.putInt(data.length).putInt(programs.size())
+                    .putLong(first).putLong(last).put(data).flip();
+
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                //A torn tail dropped by scan, or the rest of a failed
+                //write, must not be left after the new block.
+                channel.truncate(size);
+
+                long offset = size;
+                while(block.hasRemaining()) {
+                    offset += channel.write(block, offset);
+                }
+            }
+
+            blocks.add(new Block(size, data.length, programs.size(), first,
+                    last));
+            size += HEADER + data.length;
+        }
+
+        /***
+         * Reads the programs starting within a range from the blocks
+         * that overlap it.
+         *
+         * @param from The start of the range.
+         * @param to The end of the range, not included.
+         * @return The programs in the order they were appended.
+         * @throws IOException If the file could not be read.
+         */
+        private List<Program> read(long from, long to) throws IOException {
+            ArrayList<Program> programs = new ArrayList<>();
+
+            for(Block block : blocks) {
+                if(block.last < from || block.first >= to) {
+                    continue;
+                }
+
+                if(map == null || map.capacity() < size) {
+                    try (FileChannel channel = FileChannel.open(file,
+                            StandardOpenOption.READ)) {
+                        map = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                size);
+                    }
+                }
+
+                for(Program p : decode(map, block)) {
+                    if(p.getStartMillis() >= from
+                            && p.getStartMillis() < to) {
+                        programs.add(p);
+                    }
+                }
+            }
+
+            return programs;
+        }
+    }
+
+    /***
+     * The position and time range of a block in a segment.
+     */
+    private static class Block {
+        private final long offset;
+        private final int compressed;
+        private final int count;
+        private final long first;
+        private final long last;
+
+        private Block(long offset, int compressed, int count, long first,
+                      long last) {
+            this.offset = offset;
+            this.compressed = compressed;
+            this.count = count;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    /***
+     * Compresses programs into the data of a block.
+     *
+     * @param programs The programs.
+     * @return The compressed data.
+     * @throws IOException If the programs could not be written.
+     */
+    private static byte[] encode(List<Program> programs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (DataOutputStream out = new DataOutputStream(
+                new DeflaterOutputStream(bytes, deflater))) {
+            for(Program p : programs) {
+                out.writeLong(p.getStartMillis());
+                out.writeLong(p.getEndMillis());
+                out.writeLong(p.getEpisodeId());
+                writeString(out, p.getName());
+                writeString(out, p.getDescription());
+                writeString(out, p.getImage());
+            }
+        } finally {
+            deflater.end();
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /***
+     * Inflates the programs of a block.
+     *
+     * @param map The mapped segment.
+     * @param block The block to read.
+     * @return The programs of the block.
+     * @throws IOException If the block is damaged.
+     */
+    private static List<Program> decode(MappedByteBuffer map, Block block)
+            throws IOException {
+        ByteBuffer data = map.duplicate();
+        data.position((int) block.offset + HEADER);
+        data.limit((int) block.offset + HEADER + block.compressed);
+
+        Inflater inflater = new Inflater();
+        ArrayList<Program> programs = new ArrayList<>(block.count);
+
+        try (DataInputStream in = new DataInputStream(
+                new InflaterInputStream(new BufferInput(data), inflater))) {
+            for(int i = 0; i < block.count; i++) {
+                Program p = new Program();
+                p.setStartMillis(in.readLong());
+                p.setEndMillis(in.readLong());
+                p.setEpisodeId(in.readLong());
+                p.setName(readString(in));
+                p.setDescription(readString(in));
+                p.setImage(readString(in));
+                p.setStartTime(LocalFormat.FORMAT.format(
+                        Instant.ofEpochMilli(p.getStartMillis())));
+                p.setEndTime(LocalFormat.FORMAT.format(
+                        Instant.ofEpochMilli(p.getEndMillis())));
+
+                programs.add(p);
+            }
+        } finally {
+            inflater.end();
+        }
+
+        return programs;
+    }
+
+    private static void writeString(DataOutputStream out, String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /***
+     * Reads the remaining bytes of a buffer as a stream.
+     */
+    private static class BufferInput extends InputStream {
+        private final ByteBuffer buffer;
+
+        private BufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+
+            return n;
+        }
+    }
+
+    /***
+     * Holds the format of local times, so that the time zones are loaded
+     * on the first read instead of when the archive is created at startup.
+     */
+    private static class LocalFormat {
+        private static final DateTimeFormatter FORMAT =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd   HH:mm:ss")
+                        .withZone(ZoneId.of("Europe/Stockholm"));
+    }
+}
@@ -0,0 +1,623 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Headless RadioInfo that loads the schedules from SverigesRadio every
+ * hour and serves them over http in the same format as the api. Desktop
+ * clients started with -Dradioinfo.api=http://host:port/api/v2/ then load
+ * their schedules from the daemon instead of from SverigesRadio.
+ *
+ * The schedules are kept and served as whole utc days, as the api does,
+ * since the clients cache them per day and place their own windows in
+ * them. Days outside the window of the daemon, up to MAX_DAYS from today,
+ * are loaded in the background when asked for, and the request is answered
+ * with 503 until they are. Single episodes are served from the schedules
+ * as well, so that lean clients load their details from the daemon too.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleDaemon {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    //The most days a request for programs may span, and the most days
+    //from today a day outside the window may be loaded for.
+    private static final int MAX_DAYS = 31;
+
+    //The most days waiting to be loaded at once.
+    private static final int MAX_QUEUED_DAYS = 64;
+
+    //The most responses kept per snapshot.
+    private static final int MAX_RESPONSES =
+            Integer.getInteger("radioinfo.daemonResponses", 256);
+
+    private int port;
+    private HttpServer server;
+    private ExecutorService requestPool;
+    private ScheduledExecutorService refresher;
+
+    private ResponseCache responseCache;
+    private ScheduleWindow window;
+    private SegmentCache segments;
+    private ScheduleArchive archive;
+    private TableLoader dayLoader;
+    private ThreadPoolExecutor dayPool;
+    private Set<String> pendingDays;
+
+    private volatile Snapshot snapshot;
+
+    /***
+     * Constructor, the daemon is not started until start is called.
+     *
+     * @param port The port to serve the schedules on.
+     */
+    public ScheduleDaemon(int port) {
+        this.port = port;
+
+        responseCache = new ResponseCache();
+        window = ScheduleWindow.fromProperties();
+        segments = SegmentCache.fromProperties();
+        archive = ScheduleArchive.fromProperties();
+
+        pendingDays = ConcurrentHashMap.newKeySet();
+        snapshot = new Snapshot(new ArrayList<>(), new HashMap<>());
+    }
+
+    /***
+     * Starts serving the schedules and, if refresh is true, loading them
+     * from SverigesRadio every hour.
+     *
+     * @param refresh True if the schedules should be loaded from the api.
+     * @throws IOException If the server could not be started.
+     */
+    public void start(boolean refresh) throws IOException {
+        //The responses are small, so they are sent at once instead of
+        //waiting for the acknowledgement of the headers.
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api/v2/channels", this::serveChannels);
+        server.createContext("/api/v2/scheduledepisodes",
+                this::servePrograms);
+        server.createContext("/api/v2/episodes/get", this::serveEpisode);
+
+        requestPool = Executors.newFixedThreadPool(Math.max(1,
+                Integer.getInteger("radioinfo.daemonThreads", 16)));
+        server.setExecutor(requestPool);
+        server.start();
+
+        if(refresh) {
+            //Loads the days the clients ask for that are not served, one
+            //at a time so that the api is not flooded.
+            dayLoader = new TableLoader(false, responseCache, window,
+                    segments);
+            dayPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(MAX_QUEUED_DAYS));
+
+            refresher = Executors.newSingleThreadScheduledExecutor();
+            refresher.scheduleAtFixedRate(this::refresh, 0, 1,
+                    TimeUnit.HOURS);
+        }
+    }
+
+    /***
+     * Stops the server and the hourly loading.
+     */
+    public void stop() {
+        if(refresher != null) {
+            refresher.shutdownNow();
+            dayPool.shutdownNow();
+        }
+
+        server.stop(0);
+        requestPool.shutdownNow();
+    }
+
+    /***
+     * Get the port the daemon serves the schedules on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /***
+     * Loads the channels and programs from SverigesRadio and starts
+     * serving them. If loading fails the earlier schedules are kept.
+     */
+    private void refresh() {
+        long start = System.nanoTime();
+        boolean loaded = false;
+        List<Channel> channels = null;
+        RadioInfoEvents.Refresh event = new RadioInfoEvents.Refresh();
+        event.begin();
+
+        try {
+            TableLoader loader = new TableLoader(false, responseCache,
+                    window, segments);
+
+            loader.loadChannels();
+            long now = System.currentTimeMillis();
+
+            HashMap<Integer, TreeMap<String, List<Program>>> days =
+                    new HashMap<>();
+            for(Channel c : loader.getChannels()) {
+                TreeMap<String, List<Program>> channelDays = new TreeMap<>();
+
+                try {
+                    for(String day : loader.getDays(now)) {
+                        channelDays.put(day, loader.fetchDay(c.getId(), day,
+                                now));
+                    }
+                } catch (FileNotFoundException e) {
+                    //The api has no schedule for the channel.
+                    continue;
+                }
+
+                days.put(c.getId(), channelDays);
+                archive(c, channelDays);
+            }
+
+            channels = loader.getChannels();
+            publish(channels, days);
+            loaded = true;
+        } catch (Exception e) {
+            System.err.println("Kunde ej ladda in kanaler på grund av: "
+                    + e.getMessage());
+        }
+
+        RadioInfoMetrics.get().recordRefresh(System.nanoTime() - start,
+                loaded);
+
+        if(event.shouldCommit()) {
+            event.source = "daemon";
+            event.channels = loaded ? channels.size() : 0;
+            event.outcome = loaded ? "loaded" : "failed";
+            event.commit();
+        }
+    }
+
+    /***
+     * Adds the programs of a channel to the archive, if there is one. A
+     * failure is logged so that the refresh still publishes the new
+     * schedules.
+     *
+     * @param channel The channel.
+     * @param days The programs of the channel by utc day.
+     */
+    private void archive(Channel channel,
+                         TreeMap<String, List<Program>> days) {
+        if(archive == null) {
+            return;
+        }
+
+        try {
+            archive.setName(channel.getId(), channel.getName());
+            archive.append(channel.getId(),
+                    TableLoader.mergeDays(days.values()));
+        } catch (IOException e) {
+            System.err.println("Kunde ej arkivera tablån för kanal "
+                    + channel.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /***
+     * Starts serving the given channels and their programs, split into
+     * the utc days they start on.
+     *
+     * @param channels The channels to serve.
+     */
+    public void publish(List<Channel> channels) {
+        HashMap<Integer, TreeMap<String, List<Program>>> days =
+                new HashMap<>();
+
+        for(Channel c : channels) {
+            //Channels whose programs could not be loaded have id 0.
+            if(c.getId() == 0 || c.getPrograms() == null) {
+                continue;
+            }
+
+            TreeMap<String, List<Program>> channelDays = new TreeMap<>();
+            for(Program p : c.getPrograms()) {
+                channelDays.computeIfAbsent(ScheduleXml.formatUtc(
+                        p.getStartMillis()).substring(0, 10),
+                        k -> new ArrayList<>()).add(p);
+            }
+
+            days.put(c.getId(), channelDays);
+        }
+
+        publish(channels, days);
+    }
+
+    /***
+     * Starts serving the given channels and the programs of their days.
+     *
+     * @param channels The channels to serve.
+     * @param days The programs of every served channel by utc day.
+     */
+    private void publish(List<Channel> channels,
+                         Map<Integer, TreeMap<String, List<Program>>> days) {
+        RadioInfoEvents.Publish event = new RadioInfoEvents.Publish();
+        event.begin();
+
+        snapshot = new Snapshot(new ArrayList<>(channels), days);
+
+        if(event.shouldCommit()) {
+            event.source = "daemon";
+            event.channels = channels.size();
+            event.commit();
+        }
+    }
+
+    /***
+     * Serves the list of channels.
+     *
+     * @param exchange The http request and response.
+     * @throws IOException If the response could not be sent.
+     */
+    private void serveChannels(HttpExchange exchange) throws IOException {
+        send(exchange, 200, snapshot.channelsXml);
+    }
+
+    /***
+     * Serves the title, description and image url of the episode given by
+     * the id parameter, if it is in the served schedules.
+     *
+     * @param exchange The http request and response.
+     * @throws IOException If the response could not be sent.
+     */
+    private void serveEpisode(HttpExchange exchange) throws IOException {
+        Map<String, String> query =
+                parseQuery(exchange.getRequestURI().getRawQuery());
+
+        Program episode;
+        try {
+            episode = snapshot.episodes.get(
+                    Long.parseLong(query.getOrDefault("id", "")));
+        } catch (NumberFormatException e) {
+            episode = null;
+        }
+
+        if(episode == null) {
+            send(exchange, 404, new byte[0]);
+            return;
+        }
+
+        Program found = episode;
+        send(exchange, 200, Snapshot.toBytes(out ->
+                ScheduleXml.writeEpisode(out, found)));
+    }
+
+    /***
+     * Serves the programs of a channel between the days given by the
+     * fromdate and todate parameters. Without them all served days are
+     * sent. Days that are not served are loaded in the background, and
+     * until they are the request is answered with 503.
+     *
+     * @param exchange The http request and response.
+     * @throws IOException If the response could not be sent.
+     */
+    private void servePrograms(HttpExchange exchange) throws IOException {
+        Map<String, String> query =
+                parseQuery(exchange.getRequestURI().getRawQuery());
+        Snapshot current = snapshot;
+
+        int id;
+        TreeMap<String, List<Program>> days;
+        try {
+            id = Integer.parseInt(query.getOrDefault("channelid", ""));
+            days = current.days.get(id);
+        } catch (NumberFormatException e) {
+            id = 0;
+            days = null;
+        }
+
+        if(days == null) {
+            send(exchange, 404, new byte[0]);
+            return;
+        }
+
+        String from = query.get("fromdate");
+        String to = query.get("todate");
+        String key = id + "/" + from + "/" + to;
+
+        byte[] body = current.responses.get(key);
+        if(body == null) {
+            List<String> requested = requestedDays(days, from, to);
+            if(requested == null) {
+                send(exchange, 400, new byte[0]);
+                return;
+            }
+
+            ArrayList<List<Program>> segments = new ArrayList<>();
+            boolean loading = false;
+            for(String day : requested) {
+                List<Program> segment = days.get(day);
+
+                if(segment == null) {
+                    segment = current.loadedDays.get(id + "/" + day);
+                }
+
+                if(segment != null) {
+                    segments.add(segment);
+                } else if(loadDay(id, day)) {
+                    loading = true;
+                }
+            }
+
+            if(loading) {
+                exchange.getResponseHeaders().set("Retry-After", "5");
+                send(exchange, 503, new byte[0]);
+                return;
+            }
+
+            List<Program> programs = TableLoader.mergeDays(segments);
+            body = Snapshot.toBytes(out -> ScheduleXml.writePrograms(out,
+                    programs));
+
+            //Clients choose the ranges, so only so many are kept.
+            if(current.responses.size() < MAX_RESPONSES) {
+                current.responses.put(key, body);
+            }
+        }
+
+        send(exchange, 200, body);
+    }
+
+    /***
+     * Starts loading a day that is not served in the background, unless it
+     * is already being loaded. Only days up to MAX_DAYS from today are
+     * loaded, and only as many as fit in the queue.
+     *
+     * @param id The id of the channel.
+     * @param day The utc day, as yyyy-mm-dd.
+     * @return True if the day is being loaded, false if it will not be.
+     */
+    private boolean loadDay(int id, String day) {
+        if(dayLoader == null) {
+            return false;
+        }
+
+        long fromToday = Math.abs(LocalDate.parse(day).toEpochDay()
+                - LocalDate.now(ZoneOffset.UTC).toEpochDay());
+        if(fromToday > MAX_DAYS) {
+            return false;
+        }
+
+        String key = id + "/" + day;
+        if(!pendingDays.add(key)) {
+            return true;
+        }
+
+        try {
+            dayPool.execute(() -> {
+                try {
+                    List<Program> programs = dayLoader.fetchDay(id, day,
+                            System.currentTimeMillis());
+                    snapshot.addDay(key, programs);
+                } catch (FileNotFoundException e) {
+                    //The api has no schedule for the channel that day.
+                    snapshot.addDay(key, new ArrayList<>());
+                } catch (Exception e) {
+                    //Loaded again by the next request for the day.
+                } finally {
+                    pendingDays.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //The queue is full, the client asks again later.
+            pendingDays.remove(key);
+        }
+
+        return true;
+    }
+
+    /***
+     * Finds the days a request for programs asks for. Without fromdate
+     * or todate the served days up to or from the other one are used.
+     *
+     * @param days The served days of the channel.
+     * @param from The first day, or null.
+     * @param to The last day, or null.
+     * @return The days in order, or null if a day can not be read or the
+     * range is too long.
+     */
+    private static List<String> requestedDays(
+            TreeMap<String, List<Program>> days, String from, String to) {
+        if(from == null || to == null) {
+            ArrayList<String> served = new ArrayList<>();
+
+            for(String day : days.keySet()) {
+                if((from == null || day.compareTo(from) >= 0)
+                        && (to == null || day.compareTo(to) <= 0)) {
+                    served.add(day);
+                }
+            }
+
+            return served;
+        }
+
+        ArrayList<String> requested = new ArrayList<>();
+        try {
+            LocalDate last = LocalDate.parse(to);
+            for(LocalDate day = LocalDate.parse(from); !day.isAfter(last);
+                day = day.plusDays(1)) {
+                if(requested.size() == MAX_DAYS) {
+                    return null;
+                }
+
+                requested.add(day.toString());
+            }
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+
+        return requested;
+    }
+
+    /***
+     * Sends a response.
+     *
+     * @param exchange The http request and response.
+     * @param status The http status code.
+     * @param body The body of the response.
+     * @throws IOException If the response could not be sent.
+     */
+    private static void send(HttpExchange exchange, int status, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/xml; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1
+                : body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /***
+     * Reads the parameters of a query string.
+     *
+     * @param query The raw query string, may be null.
+     * @return The parameters by name.
+     */
+    private static Map<String, String> parseQuery(String query) {
+        HashMap<String, String> parameters = new HashMap<>();
+
+        if(query == null) {
+            return parameters;
+        }
+
+        for(String parameter : query.split("&")) {
+            int split = parameter.indexOf('=');
+
+            if(split > 0) {
+                parameters.put(parameter.substring(0, split),
+                        parameter.substring(split + 1));
+            }
+        }
+
+        return parameters;
+    }
+
+    /***
+     * The channels and programs being served. Responses are created once
+     * per snapshot and then reused for every client.
+     */
+    private static class Snapshot {
+        private final byte[] channelsXml;
+        private final Map<Integer, TreeMap<String, List<Program>>> days;
+        private final ConcurrentHashMap<String, List<Program>> loadedDays;
+        private final ConcurrentHashMap<Long, Program> episodes;
+        private final ConcurrentHashMap<String, byte[]> responses;
+
+        private Snapshot(List<Channel> channels,
+                         Map<Integer, TreeMap<String, List<Program>>> days) {
+            this.days = days;
+            loadedDays = new ConcurrentHashMap<>();
+            episodes = new ConcurrentHashMap<>();
+            responses = new ConcurrentHashMap<>();
+
+            ArrayList<Channel> found = new ArrayList<>();
+            for(Channel c : channels) {
+                if(days.containsKey(c.getId())) {
+                    found.add(c);
+                }
+            }
+
+            for(TreeMap<String, List<Program>> channelDays : days.values()) {
+                for(List<Program> programs : channelDays.values()) {
+                    addEpisodes(programs);
+                }
+            }
+
+            channelsXml = toBytes(out -> ScheduleXml.writeChannels(out,
+                    found));
+        }
+
+        /***
+         * Adds a day loaded outside the window. The days are kept until the
+         * next snapshot, and only as many as there are responses.
+         *
+         * @param key The id of the channel and the day, as id/yyyy-mm-dd.
+         * @param programs The programs of the day.
+         */
+        private void addDay(String key, List<Program> programs) {
+            if(loadedDays.size() < MAX_RESPONSES) {
+                loadedDays.put(key, programs);
+                addEpisodes(programs);
+            }
+        }
+
+        /***
+         * Adds the programs with an episode id to the served episodes.
+         *
+         * @param programs The programs.
+         */
+        private void addEpisodes(List<Program> programs) {
+            for(Program p : programs) {
+                if(p.getEpisodeId() != 0) {
+                    episodes.put(p.getEpisodeId(), p);
+                }
+            }
+        }
+
+        /***
+         * Writes xml to an array of bytes.
+         *
+         * @param content Writes the xml.
+         * @return The utf-8 bytes of the xml.
+         */
+        private static byte[] toBytes(XmlContent content) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (Writer out = new OutputStreamWriter(bytes,
+                    StandardCharsets.UTF_8)) {
+                content.write(out);
+            } catch (IOException e) {
+                //Writing to memory does not fail.
+                throw new IllegalStateException(e);
+            }
+
+            return bytes.toByteArray();
+        }
+    }
+
+    /***
+     * Writes xml to a writer.
+     */
+    private interface XmlContent {
+        void write(Writer out) throws IOException;
+    }
+}
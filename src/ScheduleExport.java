@@ -0,0 +1,651 @@
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/***
+ * Exports the schedules of channels to iCalendar, CSV or JSON. Programs are
+ * written one at a time as they are read from their source, so the whole
+ * document is never held in memory. Used by the export menu item of the
+ * GUI and from the command line with:
+ *
+ *   java Main --export ics|csv|json file|- [--from yyyy-MM-dd]
+ *        [--to yyyy-MM-dd] [--channels id,id,...]
+ *
+ * From the command line the programs are read from the archive if one is
+ * set with -Dradioinfo.archive, and loaded from the api otherwise. The
+ * api is asked for whole days, at most MAX_DAYS of them, and without
+ * --from and --to the days of the schedule window are exported. The GUI
+ * lets the user choose the channels and days, loaded from the api.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleExport {
+
+    //The most days that are loaded from the api for one export.
+    public static final int MAX_DAYS = 31;
+
+    private static final long DAY = 24 * 3600 * 1000L;
+
+    private static final DateTimeFormatter ICAL_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+                    .withZone(ZoneOffset.UTC);
+
+    private ScheduleExport() {
+    }
+
+    /***
+     * The formats that can be exported to.
+     */
+    public enum Format {
+        ICAL("ics"), CSV("csv"), JSON("json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /***
+         * Get the file extension of the format.
+         *
+         * @return The extension without a dot.
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /***
+         * Finds the format with the given name or file extension.
+         *
+         * @param name A name such as json or a file name such as
+         *             tabla.json.
+         * @return The format, or null if there is none.
+         */
+        public static Format of(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+
+            for(Format format : values()) {
+                if(lower.equals(format.name().toLowerCase(Locale.ROOT))
+                        || lower.equals(format.extension)
+                        || lower.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /***
+     * Gives the programs of a channel within a range of time.
+     */
+    public interface ProgramSource {
+        List<Program> programsOf(Channel channel, long from, long to)
+                throws IOException;
+    }
+
+    /***
+     * Gets the programs already loaded into the channels.
+     *
+     * @return A source of the loaded programs.
+     */
+    public static ProgramSource loaded() {
+        return (channel, from, to) -> {
+            ArrayList<Program> programs = new ArrayList<>();
+
+            if(channel.getPrograms() != null) {
+                for(Program p : channel.getPrograms()) {
+                    if(p.getStartMillis() >= from && p.getStartMillis() < to) {
+                        programs.add(p);
+                    }
+                }
+            }
+
+            return programs;
+        };
+    }
+
+    /***
+     * Gets the programs of whole utc days from the api, so that any days
+     * can be exported and not only those of the schedule window. The days
+     * of one channel are loaded at a time.
+     *
+     * @param loader The loader to load the days with.
+     * @return A source of the programs of the api.
+     */
+    public static ProgramSource days(TableLoader loader) {
+        return (channel, from, to) -> {
+            long now = System.currentTimeMillis();
+            ArrayList<List<Program>> days = new ArrayList<>();
+
+            try {
+                for(String day : daysOf(from, to)) {
+                    days.add(loader.fetchDay(channel.getId(), day, now));
+                }
+            } catch (FileNotFoundException e) {
+                //The api has no schedule for the channel.
+                return new ArrayList<>();
+            } catch (ParserConfigurationException | SAXException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+
+            ArrayList<Program> programs = new ArrayList<>();
+            for(Program p : TableLoader.mergeDays(days)) {
+                if(p.getStartMillis() >= from && p.getStartMillis() < to) {
+                    programs.add(p);
+                }
+            }
+
+            return programs;
+        };
+    }
+
+    /***
+     * Gets the programs from an archive.
+     *
+     * @param archive The archive to read from.
+     * @return A source of the archived programs.
+     */
+    public static ProgramSource archived(ScheduleArchive archive) {
+        return (channel, from, to) -> archive.read(channel.getId(), from, to);
+    }
+
+    /***
+     * Writes the programs of the given channels that start within a range
+     * of time. Only the programs of one channel are read at a time.
+     *
+     * @param out The writer to write to, should be buffered.
+     * @param format The format to write.
+     * @param channels The channels to export.
+     * @param from The start of the range in milliseconds since the epoch.
+     * @param to The end of the range, not included.
+     * @param source Gives the programs of each channel.
+     * @return The number of programs written.
+     * @throws IOException If the programs could not be read or written.
+     */
+    public static long export(Writer out, Format format,
+                              List<Channel> channels, long from, long to,
+                              ProgramSource source) throws IOException {
+        long count = 0;
+        String stamp = ICAL_TIME.format(Instant.now());
+
+        begin(out, format);
+        for(int i = 0; i < channels.size(); i++) {
+            Channel channel = channels.get(i);
+            List<Program> programs = source.programsOf(channel, from, to);
+
+            beginChannel(out, format, channel, i == 0);
+            for(int j = 0; j < programs.size(); j++) {
+                writeProgram(out, format, channel, programs.get(j), stamp,
+                        j == 0);
+                count++;
+            }
+            endChannel(out, format);
+        }
+        end(out, format);
+
+        out.flush();
+
+        return count;
+    }
+
+    private static void begin(Writer out, Format format) throws IOException {
+        switch (format) {
+            case ICAL :
+                out.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"
+                        + "PRODID:-//RadioInfo//Tablå//SV\r\n"
+                        + "CALSCALE:GREGORIAN\r\n");
+                break;
+            case CSV :
+                out.write("channelid,channel,episodeid,title,starttimeutc,"
+                        + "endtimeutc,description,imageurl\r\n");
+                break;
+            default :
+                out.write("{\"channels\":[");
+        }
+    }
+
+    private static void beginChannel(Writer out, Format format,
+                                     Channel channel, boolean first)
+            throws IOException {
+        if(format == Format.JSON) {
+            out.write(first ? "\n" : ",\n");
+            out.write("{\"id\":" + channel.getId() + ",\"name\":");
+            writeJsonString(out, channel.getName());
+            out.write(",\"programs\":[");
+        }
+    }
+
+    private static void endChannel(Writer out, Format format)
+            throws IOException {
+        if(format == Format.JSON) {
+            out.write("]}");
+        }
+    }
+
+    private static void end(Writer out, Format format) throws IOException {
+        switch (format) {
+            case ICAL :
+                out.write("END:VCALENDAR\r\n");
+                break;
+            case CSV :
+                break;
+            default :
+                out.write("\n]}\n");
+        }
+    }
+
+    /***
+     * Writes one program in the given format.
+     *
+     * @param out The writer to write to.
+     * @param format The format to write.
+     * @param channel The channel of the program.
+     * @param p The program.
+     * @param stamp The time of the export, formatted for iCalendar.
+     * @param first True if it is the first program of the channel.
+     * @throws IOException If the writer fails.
+     */
+    private static void writeProgram(Writer out, Format format,
+                                     Channel channel, Program p,
+                                     String stamp, boolean first)
+            throws IOException {
+        switch (format) {
+            case ICAL :
+                out.write("BEGIN:VEVENT\r\n");
+                writeIcalLine(out, "UID:" + channel.getId() + "-"
+                        + p.getStartMillis() + "-" + p.getEpisodeId()
+                        + "@radioinfo");
+                writeIcalLine(out, "DTSTAMP:" + stamp);
+                writeIcalLine(out, "DTSTART:" + ICAL_TIME.format(
+                        Instant.ofEpochMilli(p.getStartMillis())));
+                writeIcalLine(out, "DTEND:" + ICAL_TIME.format(
+                        Instant.ofEpochMilli(p.getEndMillis())));
+                writeIcalLine(out, "SUMMARY:" + escapeIcal(p.getName()));
+                writeIcalLine(out, "LOCATION:"
+                        + escapeIcal(channel.getName()));
+                if(p.getDescription() != null) {
+                    writeIcalLine(out, "DESCRIPTION:"
+                            + escapeIcal(p.getDescription()));
+                }
+                out.write("END:VEVENT\r\n");
+                break;
+            case CSV :
+                out.write(channel.getId() + ",");
+                writeCsv(out, channel.getName());
+                out.write("," + p.getEpisodeId() + ",");
+                writeCsv(out, p.getName());
+                out.write("," + ScheduleXml.formatUtc(p.getStartMillis())
+                        + "," + ScheduleXml.formatUtc(p.getEndMillis())
+                        + ",");
+                writeCsv(out, p.getDescription());
+                out.write(",");
+                writeCsv(out, p.getImage());
+                out.write("\r\n");
+                break;
+            default :
+                out.write(first ? "\n" : ",\n");
+                out.write("{\"episodeid\":" + p.getEpisodeId()
+                        + ",\"title\":");
+                writeJsonString(out, p.getName());
+                out.write(",\"starttimeutc\":\""
+                        + ScheduleXml.formatUtc(p.getStartMillis())
+                        + "\",\"endtimeutc\":\""
+                        + ScheduleXml.formatUtc(p.getEndMillis())
+                        + "\",\"description\":");
+                writeJsonString(out, p.getDescription());
+                out.write(",\"imageurl\":");
+                writeJsonString(out, p.getImage());
+                out.write("}");
+        }
+    }
+
+    /***
+     * Writes a content line, folded so that no line is longer than 75
+     * bytes of utf-8 as iCalendar requires.
+     *
+     * @param out The writer to write to.
+     * @param line The content line.
+     * @throws IOException If the writer fails.
+     */
+    private static void writeIcalLine(Writer out, String line)
+            throws IOException {
+        int bytes = 0;
+
+        for(int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            //A surrogate pair is four bytes, all counted at the first
+            //half so that the pair is never split by a fold.
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2
+                    : Character.isHighSurrogate(c) ? 4
+                    : Character.isLowSurrogate(c) ? 0 : 3;
+
+            //Folded lines start with a space, which counts as a byte.
+            if(bytes + size > 75) {
+                out.write("\r\n ");
+                bytes = 1;
+            }
+
+            out.write(c);
+            bytes += size;
+        }
+
+        out.write("\r\n");
+    }
+
+    private static String escapeIcal(String value) {
+        if(value == null) {
+            return "";
+        }
+
+        return value.replace("\\", "\\\\").replace(";", "\\;")
+                .replace(",", "\\,").replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    /***
+     * Writes a csv field, quoted if it contains a separator, quote or
+     * line break.
+     *
+     * @param out The writer to write to.
+     * @param value The value of the field, may be null.
+     * @throws IOException If the writer fails.
+     */
+    private static void writeCsv(Writer out, String value)
+            throws IOException {
+        if(value == null) {
+            return;
+        }
+
+        if(value.indexOf(',') == -1 && value.indexOf('"') == -1
+                && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /***
+     * Writes a json string, or null.
+     *
+     * @param out The writer to write to.
+     * @param value The string, may be null.
+     * @throws IOException If the writer fails.
+     */
+    private static void writeJsonString(Writer out, String value)
+            throws IOException {
+        if(value == null) {
+            out.write("null");
+            return;
+        }
+
+        out.write('"');
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"' :
+                    out.write("\\\"");
+                    break;
+                case '\\' :
+                    out.write("\\\\");
+                    break;
+                case '\n' :
+                    out.write("\\n");
+                    break;
+                case '\r' :
+                    out.write("\\r");
+                    break;
+                case '\t' :
+                    out.write("\\t");
+                    break;
+                default :
+                    if(c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    /***
+     * Runs an export from the command line.
+     *
+     * @param args The format, the file or - for standard out, and the
+     *             options --from, --to and --channels.
+     * @return The exit status, 0 if the export succeeded.
+     */
+    public static int command(String[] args) {
+        if(args.length < 2 || Format.of(args[0]) == null) {
+            System.err.println("Användning: --export ics|csv|json fil|- "
+                    + "[--from åååå-mm-dd] [--to åååå-mm-dd] "
+                    + "[--channels id,id]");
+            return 2;
+        }
+
+        Format format = Format.of(args[0]);
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        HashSet<Integer> ids = null;
+
+        try {
+            for(int i = 2; i < args.length; i += 2) {
+                if(i + 1 == args.length) {
+                    System.err.println("Värde saknas för " + args[i]);
+                    return 2;
+                }
+
+                switch (args[i]) {
+                    case "--from" :
+                        from = startOfDay(args[i + 1]);
+                        break;
+                    case "--to" :
+                        //The last day is included.
+                        to = startOfDay(args[i + 1]) + DAY;
+                        break;
+                    case "--channels" :
+                        ids = new HashSet<>();
+                        for(String id : args[i + 1].split(",")) {
+                            ids.add(Integer.parseInt(id.trim()));
+                        }
+                        break;
+                    default :
+                        System.err.println("Okänt val: " + args[i]);
+                        return 2;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Felaktigt värde: " + e.getMessage());
+            return 2;
+        }
+
+        try {
+            //Nothing is cached, each channel is let go once it has been
+            //written.
+            TableLoader loader = new TableLoader(false, new ResponseCache(0),
+                    ScheduleWindow.fromProperties(), new SegmentCache(0, 0));
+            ScheduleArchive archive = ScheduleArchive.fromProperties();
+
+            if(archive == null) {
+                List<String> window = loader.getDays(
+                        System.currentTimeMillis());
+                if(from == Long.MIN_VALUE) {
+                    from = startOfDay(window.get(0));
+                }
+                if(to == Long.MAX_VALUE) {
+                    to = startOfDay(window.get(window.size() - 1)) + DAY;
+                }
+
+                if(daysOf(from, to).size() > MAX_DAYS) {
+                    System.err.println("Högst " + MAX_DAYS + " dagar kan "
+                            + "exporteras utan arkiv");
+                    return 2;
+                }
+            }
+
+            //An archive is exported without asking the api.
+            List<Channel> all;
+            if(archive != null) {
+                all = archive.getChannels();
+            }
+            else {
+                loader.loadChannels();
+                all = loader.getChannels();
+            }
+
+            ArrayList<Channel> channels = new ArrayList<>();
+            for(Channel c : all) {
+                if(ids == null || ids.contains(c.getId())) {
+                    channels.add(c);
+                }
+            }
+
+            ProgramSource source = archive != null ? archived(archive)
+                    : days(loader);
+
+            Writer out = args[1].equals("-")
+                    ? new BufferedWriter(new OutputStreamWriter(System.out,
+                            StandardCharsets.UTF_8))
+                    : Files.newBufferedWriter(Paths.get(args[1]),
+                            StandardCharsets.UTF_8);
+
+            long count;
+            try {
+                count = export(out, format, channels, from, to, source);
+            } finally {
+                if(!args[1].equals("-")) {
+                    out.close();
+                }
+            }
+
+            System.err.println("Exporterade " + count + " program från "
+                    + channels.size() + " kanaler");
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Kunde ej exportera: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /***
+     * Get the time the given utc day starts.
+     *
+     * @param day The day as a yyyy-MM-dd string.
+     * @return The start of the day in milliseconds since the epoch.
+     * @throws java.time.format.DateTimeParseException If the day could
+     * not be read.
+     */
+    public static long startOfDay(String day) {
+        return LocalDate.parse(day).atStartOfDay(ZoneOffset.UTC)
+                .toInstant().toEpochMilli();
+    }
+
+    /***
+     * Gets the utc days that a range of time is part of.
+     *
+     * @param from The start of the range in milliseconds since the epoch.
+     * @param to The end of the range, not included.
+     * @return The days as yyyy-MM-dd strings in order.
+     */
+    static List<String> daysOf(long from, long to) {
+        ArrayList<String> days = new ArrayList<>();
+        if(to <= from) {
+            return days;
+        }
+
+        LocalDate last = Instant.ofEpochMilli(to - 1).atZone(ZoneOffset.UTC)
+                .toLocalDate();
+        for(LocalDate day = Instant.ofEpochMilli(from)
+                .atZone(ZoneOffset.UTC).toLocalDate(); !day.isAfter(last);
+                day = day.plusDays(1)) {
+            days.add(day.toString());
+        }
+
+        return days;
+    }
+
+    /***
+     * The channels and days the user has chosen to export.
+     */
+    public static class Selection {
+        private final List<Channel> channels;
+        private final long from;
+        private final long to;
+
+        /***
+         * Constructor.
+         *
+         * @param channels The channels to export.
+         * @param firstDay The first utc day as a yyyy-MM-dd string.
+         * @param lastDay The last utc day, included.
+         * @throws java.time.format.DateTimeParseException If a day could
+         * not be read.
+         */
+        public Selection(List<Channel> channels, String firstDay,
+                         String lastDay) {
+            this.channels = channels;
+            from = startOfDay(firstDay);
+            to = startOfDay(lastDay) + DAY;
+        }
+
+        /***
+         * Get the channels to export.
+         *
+         * @return The channels.
+         */
+        public List<Channel> getChannels() {
+            return channels;
+        }
+
+        /***
+         * Get the start of the first day.
+         *
+         * @return The time in milliseconds since the epoch.
+         */
+        public long getFrom() {
+            return from;
+        }
+
+        /***
+         * Get the end of the last day.
+         *
+         * @return The time in milliseconds since the epoch.
+         */
+        public long getTo() {
+            return to;
+        }
+
+        /***
+         * Get the number of days chosen.
+         *
+         * @return The number of days, 0 if the last day is before the
+         * first.
+         */
+        public int getDays() {
+            return daysOf(from, to).size();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/***
+ * Time index over the programs of all loaded channels for RadioInfo.
+ * The programs of every channel are sorted by start time and their start
+ * and end times are kept in primitive arrays, so finding what is on at a
+ * given time is a binary search per channel instead of a scan of the
+ * program lists.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleIndex {
+
+    private Channel[] channels;
+    private long[][] starts;
+    private long[][] ends;
+    private Program[][] programs;
+
+    /***
+     * Constructor, builds the index from the given channels. Channels
+     * without programs are indexed with empty schedules and programs
+     * without valid times are left out.
+     *
+     * @param channels The channels to index.
+     */
+    public ScheduleIndex(List<Channel> channels) {
+        int size = channels.size();
+
+        this.channels = channels.toArray(new Channel[0]);
+        starts = new long[size][];
+        ends = new long[size][];
+        programs = new Program[size][];
+
+        for(int i = 0; i < size; i++) {
+            indexChannel(i, this.channels[i].getPrograms());
+        }
+    }
+
+    /***
+     * Sorts the programs of one channel and fills its time arrays.
+     *
+     * @param i The position of the channel in the index.
+     * @param list The programs of the channel, may be null.
+     */
+    private void indexChannel(int i, List<Program> list) {
+        ArrayList<Program> valid = new ArrayList<>();
+        if(list != null) {
+            for(Program p : list) {
+                if(p.getStartMillis() != 0
+                        && p.getEndMillis() > p.getStartMillis()) {
+                    valid.add(p);
+                }
+            }
+        }
+        valid.sort(Comparator.comparingLong(Program::getStartMillis));
+
+        programs[i] = valid.toArray(new Program[0]);
+        starts[i] = new long[programs[i].length];
+        ends[i] = new long[programs[i].length];
+
+        for(int j = 0; j < programs[i].length; j++) {
+            starts[i][j] = programs[i][j].getStartMillis();
+            ends[i][j] = programs[i][j].getEndMillis();
+        }
+    }
+
+    /***
+     * Finds the position of the last program of a channel that starts
+     * at or before the given time.
+     *
+     * @param i The position of the channel in the index.
+     * @param time The time in milliseconds since the epoch.
+     * @return The position of the program or -1 if none has started.
+     */
+    private int lastStarted(int i, long time) {
+        int pos = Arrays.binarySearch(starts[i], time);
+
+        if(pos < 0) {
+            return -pos - 2;
+        }
+
+        //Step past programs with equal start times.
+        while(pos + 1 < starts[i].length && starts[i][pos + 1] == time) {
+            pos++;
+        }
+
+        return pos;
+    }
+
+    /***
+     * Gets the program that is on at the given time on the channel at
+     * the given position in the index.
+     *
+     * @param i The position of the channel in the index.
+     * @param time The time in milliseconds since the epoch.
+     * @return The program or null if nothing is on.
+     */
+    public Program programAt(int i, long time) {
+        int pos = lastStarted(i, time);
+
+        if(pos >= 0 && ends[i][pos] > time) {
+            return programs[i][pos];
+        }
+
+        return null;
+    }
+
+    /***
+     * Gets the first program that starts after the given time on the
+     * channel at the given position in the index.
+     *
+     * @param i The position of the channel in the index.
+     * @param time The time in milliseconds since the epoch.
+     * @return The program or null if there is no later program.
+     */
+    public Program programAfter(int i, long time) {
+        int pos = lastStarted(i, time) + 1;
+
+        if(pos < programs[i].length) {
+            return programs[i][pos];
+        }
+
+        return null;
+    }
+
+    /***
+     * Gets what is on every channel at the given time.
+     *
+     * @param time The time in milliseconds since the epoch.
+     * @return The program on at the time for each channel, in the order of
+     * the channels, with null where nothing is on.
+     */
+    public Program[] programsAt(long time) {
+        Program[] result = new Program[channels.length];
+
+        for(int i = 0; i < channels.length; i++) {
+            result[i] = programAt(i, time);
+        }
+
+        return result;
+    }
+
+    /***
+     * Gets the current and the next program of every channel at the
+     * given time.
+     *
+     * @param time The time in milliseconds since the epoch.
+     * @return One row per channel with the channel, the program on now and
+     * the program after it, where the programs may be null.
+     */
+    public List<NowNext> nowAndNext(long time) {
+        ArrayList<NowNext> rows = new ArrayList<>(channels.length);
+
+        for(int i = 0; i < channels.length; i++) {
+            rows.add(new NowNext(channels[i], programAt(i, time),
+                    programAfter(i, time)));
+        }
+
+        return rows;
+    }
+
+    /***
+     * Get the number of indexed channels.
+     *
+     * @return The number of channels.
+     */
+    public int getChannelCount() {
+        return channels.length;
+    }
+
+    /***
+     * Get the channel at the given position in the index.
+     *
+     * @param i The position of the channel.
+     * @return The channel.
+     */
+    public Channel getChannel(int i) {
+        return channels[i];
+    }
+
+    /***
+     * The current and next program of a channel.
+     */
+    public static class NowNext {
+        private final Channel channel;
+        private final Program now;
+        private final Program next;
+
+        /***
+         * Constructor.
+         *
+         * @param channel The channel.
+         * @param now The program on now, or null.
+         * @param next The program after the current one, or null.
+         */
+        public NowNext(Channel channel, Program now, Program next) {
+            this.channel = channel;
+            this.now = now;
+            this.next = next;
+        }
+
+        /***
+         * Get the channel.
+         *
+         * @return The channel.
+         */
+        public Channel getChannel() {
+            return channel;
+        }
+
+        /***
+         * Get the program on now.
+         *
+         * @return The program or null if nothing is on.
+         */
+        public Program getNow() {
+            return now;
+        }
+
+        /***
+         * Get the program after the current one.
+         *
+         * @return The program or null if there is none.
+         */
+        public Program getNext() {
+            return next;
+        }
+    }
+}
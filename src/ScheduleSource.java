@@ -0,0 +1,72 @@
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.util.List;
+
+/***
+ * A source of channels and their schedules. Implemented by the TableLoader
+ * for the SverigesRadio api, by FileScheduleSource for xml files on disk
+ * and by ScheduleAggregator, which combines several sources into one.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public interface ScheduleSource {
+
+    /***
+     * Get the name of the source, used for its metrics.
+     *
+     * @return The name.
+     */
+    String getName();
+
+    /***
+     * Loads the channels of the source.
+     *
+     * @return The channels, without programs.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException If the channels could not be parsed.
+     * @throws IOException If the channels could not be read.
+     */
+    List<Channel> fetchChannels()
+            throws ParserConfigurationException, SAXException, IOException;
+
+    /***
+     * Loads the programs of a channel within the schedule window around
+     * the current time.
+     *
+     * @param channelId The id of the channel.
+     * @return The programs sorted by start time, or null if the source
+     * has no schedule for the channel.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException If the programs could not be parsed.
+     * @throws IOException If the programs could not be read.
+     */
+    default List<Program> fetchPrograms(int channelId)
+            throws ParserConfigurationException, SAXException, IOException {
+        return fetchPrograms(channelId, System.currentTimeMillis());
+    }
+
+    /***
+     * Loads the programs of a channel within the schedule window around
+     * the given time, which may be a coming refresh.
+     *
+     * @param channelId The id of the channel.
+     * @param now The time in milliseconds since the epoch that the window
+     *            is placed around.
+     * @return The programs sorted by start time, or null if the source
+     * has no schedule for the channel.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException If the programs could not be parsed.
+     * @throws IOException If the programs could not be read.
+     */
+    List<Program> fetchPrograms(int channelId, long now)
+            throws ParserConfigurationException, SAXException, IOException;
+
+    /***
+     * Cancels all loading by the source. Every later load fails with an
+     * InterruptedIOException. May be called from any thread.
+     */
+    void cancel();
+}
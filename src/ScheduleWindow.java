@@ -0,0 +1,132 @@
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/***
+ * The span of time around the current time whose programs are shown in
+ * RadioInfo. By default programs starting 12 hours before to 12 hours
+ * after the current time are shown, which can be changed with the system
+ * properties radioinfo.lookback and radioinfo.lookahead given in hours.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleWindow {
+
+    private static final long HOUR = 3600 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    private long lookback;
+    private long lookahead;
+
+    /***
+     * Constructor.
+     *
+     * @param lookbackHours The number of hours before the current time.
+     * @param lookaheadHours The number of hours after the current time.
+     */
+    public ScheduleWindow(int lookbackHours, int lookaheadHours) {
+        lookback = lookbackHours * HOUR;
+        lookahead = lookaheadHours * HOUR;
+    }
+
+    /***
+     * Creates the window given by the system properties, or the default
+     * window of 12 hours before and after the current time.
+     *
+     * @return The window.
+     */
+    public static ScheduleWindow fromProperties() {
+        return new ScheduleWindow(
+                Integer.getInteger("radioinfo.lookback", 12),
+                Integer.getInteger("radioinfo.lookahead", 12));
+    }
+
+    /***
+     * Get the number of hours before the current time in the window.
+     *
+     * @return The hours.
+     */
+    public long getLookbackHours() {
+        return lookback / HOUR;
+    }
+
+    /***
+     * Get the number of hours after the current time in the window.
+     *
+     * @return The hours.
+     */
+    public long getLookaheadHours() {
+        return lookahead / HOUR;
+    }
+
+    /***
+     * Get the start of the window.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @return The start of the window in milliseconds since the epoch.
+     */
+    public long getStart(long now) {
+        return now - lookback;
+    }
+
+    /***
+     * Get the end of the window.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @return The end of the window in milliseconds since the epoch.
+     */
+    public long getEnd(long now) {
+        return now + lookahead;
+    }
+
+    /***
+     * Checks if a program starting at the given time is within the window.
+     *
+     * @param startMillis The start of the program.
+     * @param now The current time in milliseconds since the epoch.
+     * @return True if the program starts within the window.
+     */
+    public boolean contains(long startMillis, long now) {
+        return startMillis >= getStart(now) && startMillis <= getEnd(now);
+    }
+
+    /***
+     * Finds the days in utc time covered by the window.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @return The days as yyyy-MM-dd strings in order.
+     */
+    public List<String> getDays(long now) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        ArrayList<String> days = new ArrayList<>();
+        long last = Math.floorDiv(getEnd(now), DAY);
+        for(long day = Math.floorDiv(getStart(now), DAY); day <= last; day++) {
+            days.add(format.format(new Date(day * DAY)));
+        }
+
+        return days;
+    }
+
+    /***
+     * Get the time the given utc day ends.
+     *
+     * @param day The day as a yyyy-MM-dd string.
+     * @return The end of the day in milliseconds since the epoch.
+     */
+    public static long endOfDay(String day) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        try {
+            return format.parse(day).getTime() + DAY;
+        } catch (ParseException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/***
+ * Writes channels and programs as xml in the same format as the
+ * SverigesRadio api, so that they can be read by the ChannelHandler,
+ * ProgramHandler and EpisodeHandler.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class ScheduleXml {
+
+    private static final DateTimeFormatter UTC_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'")
+                    .withZone(ZoneOffset.UTC);
+
+    private ScheduleXml() {
+    }
+
+    /***
+     * Writes the given channels as a channels xml file.
+     *
+     * @param out The writer to write to.
+     * @param channels The channels to write.
+     * @throws IOException If the writer fails.
+     */
+    public static void writeChannels(Writer out, List<Channel> channels)
+            throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<sr>\n"
+                + "  <channels>\n");
+
+        for(Channel c : channels) {
+            //The ChannelHandler expects the id before the name.
+            out.write("    <channel id=\"" + c.getId() + "\" name=\"");
+            escape(out, c.getName());
+            out.write("\"></channel>\n");
+        }
+
+        out.write("  </channels>\n</sr>\n");
+    }
+
+    /***
+     * Writes the given programs as a scheduledepisodes xml file.
+     *
+     * @param out The writer to write to.
+     * @param programs The programs to write.
+     * @throws IOException If the writer fails.
+     */
+    public static void writePrograms(Writer out, List<Program> programs)
+            throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<sr>\n"
+                + "  <schedule>\n");
+
+        for(Program p : programs) {
+            writeProgram(out, p);
+        }
+
+        out.write("  </schedule>\n</sr>\n");
+    }
+
+    /***
+     * Writes one program as a scheduledepisode element.
+     *
+     * @param out The writer to write to.
+     * @param p The program to write.
+     * @throws IOException If the writer fails.
+     */
+    public static void writeProgram(Writer out, Program p)
+            throws IOException {
+        out.write("    <scheduledepisode>\n");
+
+        if(p.getEpisodeId() != 0) {
+            out.write("      <episodeid>" + p.getEpisodeId()
+                    + "</episodeid>\n");
+        }
+
+        writeElement(out, "title", p.getName());
+        writeElement(out, "description", p.getDescription());
+        writeElement(out, "starttimeutc", formatUtc(p.getStartMillis()));
+        writeElement(out, "endtimeutc", formatUtc(p.getEndMillis()));
+        writeElement(out, "imageurl", p.getImage());
+
+        out.write("    </scheduledepisode>\n");
+    }
+
+    /***
+     * Writes the given program as an episode xml file, as returned by
+     * episodes/get, with its title, description and image url.
+     *
+     * @param out The writer to write to.
+     * @param p The program to write.
+     * @throws IOException If the writer fails.
+     */
+    public static void writeEpisode(Writer out, Program p)
+            throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<sr>\n"
+                + "  <episode id=\"" + p.getEpisodeId() + "\">\n");
+
+        writeElement(out, "title", p.getName());
+        writeElement(out, "description", p.getDescription());
+        writeElement(out, "imageurl", p.getImage());
+
+        out.write("  </episode>\n</sr>\n");
+    }
+
+    /***
+     * Formats a time the way the api does.
+     *
+     * @param millis The time in milliseconds since the epoch.
+     * @return The time in utc.
+     */
+    public static String formatUtc(long millis) {
+        return UTC_FORMAT.format(Instant.ofEpochMilli(millis));
+    }
+
+    /***
+     * Writes an element with the given text, unless the text is null.
+     *
+     * @param out The writer to write to.
+     * @param name The name of the element.
+     * @param value The text of the element.
+     * @throws IOException If the writer fails.
+     */
+    private static void writeElement(Writer out, String name, String value)
+            throws IOException {
+        if(value == null) {
+            return;
+        }
+
+        out.write("      <" + name + ">");
+        escape(out, value);
+        out.write("</" + name + ">\n");
+    }
+
+    /***
+     * Writes the text with the characters that have a meaning in xml
+     * escaped.
+     *
+     * @param out The writer to write to.
+     * @param text The text to write.
+     * @throws IOException If the writer fails.
+     */
+    private static void escape(Writer out, String text) throws IOException {
+        if(text == null) {
+            return;
+        }
+
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            switch (c) {
+                case '<' :
+                    out.write("&lt;");
+                    break;
+                case '>' :
+                    out.write("&gt;");
+                    break;
+                case '&' :
+                    out.write("&amp;");
+                    break;
+                case '"' :
+                    out.write("&quot;");
+                    break;
+                default :
+                    out.write(c);
+            }
+        }
+    }
+}
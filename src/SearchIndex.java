@@ -0,0 +1,316 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/***
+ * Inverted index over the words in the names and descriptions of the
+ * programs of all channels. Words are normalized for Swedish text and
+ * every word of a query matches as a prefix. The index is updated one
+ * channel at a time when its schedule is loaded. Programs containing the
+ * words of the query themselves are found before those only containing
+ * longer words starting with them, and each in order of start time.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class SearchIndex {
+
+    private static final Locale SWEDISH = new Locale("sv", "SE");
+
+    //Exact matches first, then by start time and channel. The keys are
+    //kept in the hits so that sorting does not read the programs.
+    private static final Comparator<Hit> ORDER = (a, b) -> {
+        if(a.exact != b.exact) {
+            return a.exact ? -1 : 1;
+        }
+
+        int order = Long.compare(a.start, b.start);
+        return order != 0 ? order : Integer.compare(a.channelId,
+                b.channelId);
+    };
+
+    //Word -> channel id -> programs of that channel containing the word.
+    private TreeMap<String, HashMap<Integer, ArrayList<Program>>> words;
+
+    private HashMap<Integer, Channel> channels;
+    private HashMap<Integer, Set<String>> channelWords;
+
+    /***
+     * Constructor, creates an empty index.
+     */
+    public SearchIndex() {
+        words = new TreeMap<>();
+        channels = new HashMap<>();
+        channelWords = new HashMap<>();
+    }
+
+    /***
+     * Replaces the indexed programs of a channel with its current
+     * programs. A channel without programs is removed from the index.
+     *
+     * @param id The id of the channel.
+     * @param channel The channel with its newly loaded programs.
+     */
+    public synchronized void updateChannel(int id, Channel channel) {
+        removeChannel(id);
+
+        if(channel.getPrograms() == null) {
+            return;
+        }
+
+        HashSet<String> added = new HashSet<>();
+        for(Program p : channel.getPrograms()) {
+            HashSet<String> programWords = new HashSet<>();
+            tokenize(p.getName(), programWords);
+            tokenize(p.getDescription(), programWords);
+
+            for(String word : programWords) {
+                words.computeIfAbsent(word, w -> new HashMap<>())
+                        .computeIfAbsent(id, i -> new ArrayList<>())
+                        .add(p);
+            }
+
+            added.addAll(programWords);
+        }
+
+        channels.put(id, channel);
+        channelWords.put(id, added);
+    }
+
+    /***
+     * Removes all programs of a channel from the index.
+     *
+     * @param id The id of the channel.
+     */
+    public synchronized void removeChannel(int id) {
+        Set<String> old = channelWords.remove(id);
+        channels.remove(id);
+
+        if(old == null) {
+            return;
+        }
+
+        for(String word : old) {
+            HashMap<Integer, ArrayList<Program>> postings = words.get(word);
+            postings.remove(id);
+
+            if(postings.isEmpty()) {
+                words.remove(word);
+            }
+        }
+    }
+
+    /***
+     * Finds the programs that contain every word of the query, where
+     * each word matches the beginning of a word in the name or
+     * description of the program.
+     *
+     * @param query The words to search for.
+     * @return The matching programs with their channels, the exact matches
+     * first and then by start time.
+     */
+    public synchronized List<Hit> search(String query) {
+        ArrayList<String> terms = new ArrayList<>();
+        tokenize(query, terms);
+
+        if(terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Program, Hit> matches = null;
+        for(String term : terms) {
+            Map<Program, Hit> termMatches = prefixMatches(term);
+
+            if(matches == null) {
+                matches = termMatches;
+            }
+            else {
+                //A hit is exact only if every term is a word of it.
+                Iterator<Hit> hits = matches.values().iterator();
+                while(hits.hasNext()) {
+                    Hit hit = hits.next();
+                    Hit other = termMatches.get(hit.program);
+
+                    if(other == null) {
+                        hits.remove();
+                    }
+                    else {
+                        hit.exact &= other.exact;
+                    }
+                }
+            }
+
+            if(matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        ArrayList<Hit> hits = new ArrayList<>(matches.values());
+        hits.sort(ORDER);
+
+        return hits;
+    }
+
+    /***
+     * Finds all programs containing a word that starts with the term. A
+     * program containing the term itself is an exact hit.
+     *
+     * @param term The normalized term.
+     * @return The hits by their programs.
+     */
+    private Map<Program, Hit> prefixMatches(String term) {
+        //Identity since programs with equal names are still different.
+        IdentityHashMap<Program, Hit> matches = new IdentityHashMap<>();
+
+        SortedMap<String, HashMap<Integer, ArrayList<Program>>> range =
+                words.subMap(term, term + Character.MAX_VALUE);
+
+        //The term itself sorts first in the range, so a program keeps
+        //the hit of its exact word.
+        for(Map.Entry<String, HashMap<Integer, ArrayList<Program>>> word :
+                range.entrySet()) {
+            boolean exact = word.getKey().equals(term);
+
+            for(Map.Entry<Integer, ArrayList<Program>> postings :
+                    word.getValue().entrySet()) {
+                Channel channel = channels.get(postings.getKey());
+
+                for(Program p : postings.getValue()) {
+                    if(!matches.containsKey(p)) {
+                        matches.put(p, new Hit(channel, p, exact));
+                    }
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    /***
+     * Splits the text into normalized words and adds them to the given
+     * collection.
+     *
+     * @param text The text to split, may be null.
+     * @param result The collection to add the words to.
+     */
+    static void tokenize(String text, Collection<String> result) {
+        if(text == null) {
+            return;
+        }
+
+        StringBuilder word = new StringBuilder();
+        for(int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? normalize(text.charAt(i)) : ' ';
+
+            if(Character.isLetterOrDigit(c)) {
+                word.append(c);
+            }
+            else if(word.length() > 0) {
+                result.add(word.toString());
+                word.setLength(0);
+            }
+        }
+    }
+
+    /***
+     * Normalizes a character for searching in Swedish text. The letters
+     * å, ä and ö are kept since they are separate letters in Swedish,
+     * while accents that are not are removed.
+     *
+     * @param c The character to normalize.
+     * @return The normalized character.
+     */
+    static char normalize(char c) {
+        c = String.valueOf(c).toLowerCase(SWEDISH).charAt(0);
+
+        switch (c) {
+            case 'à' : case 'á' : case 'â' :
+                return 'a';
+            case 'æ' :
+                return 'ä';
+            case 'ø' :
+                return 'ö';
+            case 'é' : case 'è' : case 'ê' : case 'ë' :
+                return 'e';
+            case 'í' : case 'ì' : case 'î' : case 'ï' :
+                return 'i';
+            case 'ó' : case 'ò' : case 'ô' :
+                return 'o';
+            case 'ú' : case 'ù' : case 'û' : case 'ü' :
+                return 'u';
+            case 'ç' :
+                return 'c';
+            case 'ñ' :
+                return 'n';
+            default :
+                return c;
+        }
+    }
+
+    /***
+     * A program found by a search together with its channel.
+     */
+    public static class Hit {
+        private final Channel channel;
+        private final Program program;
+        private final long start;
+        private final int channelId;
+        private boolean exact;
+
+        /***
+         * Constructor.
+         *
+         * @param channel The channel of the program.
+         * @param program The program that matched.
+         */
+        public Hit(Channel channel, Program program) {
+            this(channel, program, false);
+        }
+
+        /***
+         * Constructor.
+         *
+         * @param channel The channel of the program.
+         * @param program The program that matched.
+         * @param exact True if the program contains the words searched for
+         * and not only longer words starting with them.
+         */
+        private Hit(Channel channel, Program program, boolean exact) {
+            this.channel = channel;
+            this.program = program;
+            this.exact = exact;
+
+            start = program.getStartMillis();
+            channelId = channel.getId();
+        }
+
+        /***
+         * Get the channel of the program.
+         *
+         * @return The channel.
+         */
+        public Channel getChannel() {
+            return channel;
+        }
+
+        /***
+         * Get the program that matched.
+         *
+         * @return The program.
+         */
+        public Program getProgram() {
+            return program;
+        }
+    }
+}
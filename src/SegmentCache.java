@@ -0,0 +1,137 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Cache of the programs of one channel during one utc day. A segment of a
+ * day that had already ended when it was downloaded can not change and is
+ * never downloaded again. Segments of the current and coming days are
+ * kept for a limited time so that changes to the schedule are seen. The
+ * least recently used segments are removed when the cache is full.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class SegmentCache {
+
+    private LinkedHashMap<String, Segment> segments;
+    private long maxAge;
+
+    /***
+     * Constructor.
+     *
+     * @param capacity The maximum number of segments to keep.
+     * @param maxAge The time in milliseconds to keep segments of days that
+     *               had not ended when they were downloaded.
+     */
+    public SegmentCache(int capacity, long maxAge) {
+        this.maxAge = maxAge;
+
+        segments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Segment> e) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /***
+     * Creates a cache with the capacity and max age given by the system
+     * properties radioinfo.segments and radioinfo.segmentMaxAge (in
+     * minutes), or 2048 segments kept for 6 hours by default.
+     *
+     * @return The cache.
+     */
+    public static SegmentCache fromProperties() {
+        return new SegmentCache(
+                Integer.getInteger("radioinfo.segments", 2048),
+                Integer.getInteger("radioinfo.segmentMaxAge", 360)
+                        * 60 * 1000L);
+    }
+
+    /***
+     * Gets the programs of a channel during a day if they are cached and
+     * still valid.
+     *
+     * @param channelId The id of the channel.
+     * @param day The utc day as a yyyy-MM-dd string.
+     * @param now The current time in milliseconds since the epoch.
+     * @return The programs of the day or null if they must be downloaded.
+     */
+    public synchronized List<Program> get(int channelId, String day,
+                                          long now) {
+        Segment segment = segments.get(key(channelId, day));
+
+        if(segment == null) {
+            return null;
+        }
+
+        if(!segment.complete && now - segment.fetched > maxAge) {
+            return null;
+        }
+
+        //A segment fetched during its day is downloaded again once the
+        //day is over so that the final schedule is kept.
+        if(!segment.complete && now >= segment.dayEnd) {
+            return null;
+        }
+
+        return segment.programs;
+    }
+
+    /***
+     * Stores the downloaded programs of a channel during a day.
+     *
+     * @param channelId The id of the channel.
+     * @param day The utc day as a yyyy-MM-dd string.
+     * @param programs The programs of the day.
+     * @param now The time the programs were downloaded.
+     */
+    public synchronized void put(int channelId, String day,
+                                 List<Program> programs, long now) {
+        long dayEnd = ScheduleWindow.endOfDay(day);
+
+        segments.put(key(channelId, day), new Segment(
+                Collections.unmodifiableList(programs), now, dayEnd,
+                now >= dayEnd));
+    }
+
+    /***
+     * Get the number of cached segments.
+     *
+     * @return The number of segments.
+     */
+    public synchronized int size() {
+        return segments.size();
+    }
+
+    /***
+     * Creates the key of a segment.
+     *
+     * @param channelId The id of the channel.
+     * @param day The utc day.
+     * @return The key.
+     */
+    private static String key(int channelId, String day) {
+        return channelId + "/" + day;
+    }
+
+    /***
+     * The programs of one channel during one day.
+     */
+    private static class Segment {
+        private final List<Program> programs;
+        private final long fetched;
+        private final long dayEnd;
+        private final boolean complete;
+
+        private Segment(List<Program> programs, long fetched, long dayEnd,
+                        boolean complete) {
+            this.programs = programs;
+            this.fetched = fetched;
+            this.dayEnd = dayEnd;
+            this.complete = complete;
+        }
+    }
+}
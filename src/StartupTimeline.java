@@ -0,0 +1,89 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/***
+ * Timeline of the start of RadioInfo, from the start of the jvm until the
+ * first schedules are shown. Every milestone is kept the first time it is
+ * reached: main, window (the main window has been made visible),
+ * firstPaint, firstData (the first schedule has been loaded) and
+ * fullyLoaded (the first refresh is shown).
+ *
+ * The timeline is shown by the metrics under radioinfo:type=Metrics.
+ * Start with -Dradioinfo.startupTimeline=true to also print it when the
+ * start is done.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class StartupTimeline {
+
+    private static final boolean PRINT =
+            Boolean.getBoolean("radioinfo.startupTimeline");
+
+    //Wall clock and nano time of the same instant, so that the marks can
+    //be given from the start of the jvm.
+    private static final long BASE_MILLIS = System.currentTimeMillis();
+    private static final long BASE_NANOS = System.nanoTime();
+
+    private static final LinkedHashMap<String, Long> marks =
+            new LinkedHashMap<>();
+
+    private StartupTimeline() {
+    }
+
+    /***
+     * Marks that a milestone has been reached, unless it has been reached
+     * before. May be called from any thread.
+     *
+     * @param milestone The name of the milestone.
+     */
+    public static void mark(String milestone) {
+        long now = System.nanoTime();
+
+        synchronized(marks) {
+            if(marks.putIfAbsent(milestone, now) != null) {
+                return;
+            }
+        }
+
+        if(PRINT && milestone.equals("fullyLoaded")) {
+            for(String line : getLines()) {
+                System.err.println("startup " + line);
+            }
+        }
+    }
+
+    /***
+     * Gets the milestones reached so far.
+     *
+     * @return One line per milestone with the time since the start of the
+     * jvm, in the order they were reached.
+     */
+    public static String[] getLines() {
+        Map<String, Long> reached;
+        synchronized(marks) {
+            reached = new LinkedHashMap<>(marks);
+        }
+
+        if(reached.isEmpty()) {
+            return new String[0];
+        }
+
+        //Only read once the start is done, since it loads the management
+        //classes.
+        long start = BASE_MILLIS
+                - ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        List<String> lines = new ArrayList<>();
+        for(Map.Entry<String, Long> mark : reached.entrySet()) {
+            lines.add(String.format(Locale.ROOT, "%s=%.1fms", mark.getKey(),
+                    start + (mark.getValue() - BASE_NANOS) / 1e6));
+        }
+
+        return lines.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,54 @@
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/***
+ * Pool of shared strings used to store each distinct program name,
+ * description and image url only once. Strings no longer used by any
+ * schedule are removed from the pool by the garbage collector.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class StringPool {
+
+    private WeakHashMap<String, WeakReference<String>> strings;
+
+    /***
+     * Constructor, creates an empty pool.
+     */
+    public StringPool() {
+        strings = new WeakHashMap<>();
+    }
+
+    /***
+     * Gets the pooled string equal to the given string, adding it to the
+     * pool if there is none.
+     *
+     * @param s The string, may be null.
+     * @return The shared instance of the string.
+     */
+    public synchronized String get(String s) {
+        if(s == null) {
+            return null;
+        }
+
+        WeakReference<String> ref = strings.get(s);
+        String pooled = ref == null ? null : ref.get();
+
+        if(pooled == null) {
+            strings.put(s, new WeakReference<>(s));
+            pooled = s;
+        }
+
+        return pooled;
+    }
+
+    /***
+     * Get the number of strings in the pool.
+     *
+     * @return The number of strings.
+     */
+    public synchronized int size() {
+        return strings.size();
+    }
+}
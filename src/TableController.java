@@ -1,259 +1,1049 @@
-import javax.imageio.ImageIO;
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-
-
-/***
- * Controller handles interaction between GUI and TableLoader for RadioInfo.
- *
- * @author Leo Juneblad
- * @version 1.0
- */
-public class TableController {
-
-    private GUI gui;
-    private TableLoader parser;
-
-    private BufferedImage defaultImage;
-    private CopyOnWriteArrayList<Channel> channels;
-
-    private int currentChannel;
-
-    private boolean connected;
-    private AtomicBoolean updating;
-
-
-    /***
-     * Constructor initializes objects.
-     *
-     * @param gui The gui class for the program.
-     */
-    public TableController(GUI gui) {
-        connected = true;
-        updating = new AtomicBoolean();
-
-        this.gui = gui;
-
-        channels = new CopyOnWriteArrayList<>();
-        currentChannel = 0;
-
-        try {
-            defaultImage = ImageIO.read(getClass().getResource("black.jpg"));
-        } catch (IOException e) {
-            gui.displayError("Kunde ej ladda in default bild för programmen");
-        }
-
-        gui.addChannelSelectListener(new ListListener());
-        gui.addProgramSelectListener(new TableListener());
-        gui.addUpdateListener(new UpdateListener());
-
-        scheduleUpdates();
-    }
-
-    /***
-     * Initialize the TableLoader.
-     */
-    private void initializeParser() {
-        try {
-            this.parser = new TableLoader();
-        } catch (MalformedURLException e) {
-            connected = false;
-            updating.set(false);
-            gui.displayError("Kunde ej ansluta till SRs api");
-        }
-
-        try {
-            parser.checkConnection();
-            connected = true;
-        } catch (IOException e) {
-            connected = false;
-            updating.set(false);
-            gui.displayError("Ingen anslutning");
-        }
-    }
-
-    /***
-     * Sets a schedule to update the table of programs every hour.
-     */
-    public void scheduleUpdates() {
-        //3600 seconds per hour * 1000 ms per second
-        Timer timer = new Timer(1000 * 3600, new UpdateListener());
-        timer.setInitialDelay(0);
-        timer.setRepeats(true);
-        timer.start();
-    }
-
-    /***
-     * Clears the values displayed in the gui and the list of channels.
-     */
-    public void clearUI() {
-        gui.clearList();
-        gui.clearTable();
-        channels.clear();
-    }
-
-    /***
-     * Loads the channels and programs to be shown in the gui. Loading is
-     * done using a swingworker so that the gui continues to be responsive
-     * as loading is done.
-     */
-    private void loadChannels() {
-        if(connected && updating.get()) {
-            //Swing worker is created to load channels so that the gui does
-            //not freeze.
-            SwingWorker<CopyOnWriteArrayList<Channel>, Integer> thread
-                    = new SwingWorker<>() {
-                @Override
-                protected CopyOnWriteArrayList<Channel> doInBackground()
-                        throws Exception {
-
-                    //Load all channels and programs.
-                    parser.loadChannels();
-                    for(Channel c : parser.getChannels()) {
-                        parser.loadPrograms(c.getId());
-                    }
-
-                    return new CopyOnWriteArrayList<>(parser.getChannels());
-                }
-
-                @Override
-                protected void done() {
-                    try {
-                        CopyOnWriteArrayList<Channel> channelsTemp = get();
-
-                        displayValues(channelsTemp);
-
-                        updating.set(false);
-                    } catch (InterruptedException | ExecutionException e) {
-                        gui.displayError("Kunde ej ladda in kanaler på "
-                                + "grund av: " + e.getCause().getMessage());
-                        updating.set(false);
-                    }
-                }
-            };
-
-            thread.execute();
-        }
-    }
-
-    /***
-     * Adds the given list of channels to the gui and
-     * displays the programs of the current channel.
-     *
-     * @param channelsTemp The list of channels to be added to the gui.
-     */
-    private void displayValues(CopyOnWriteArrayList<Channel> channelsTemp) {
-        //Add channels to list.
-        for(Channel c : channelsTemp) {
-            gui.addChannelToList(c);
-        }
-
-        //Add current channels programs to gui.
-        for(Program p :
-                channelsTemp.get(currentChannel).getPrograms()) {
-            String[] data = { p.getName(), p.getStartTime(), p.getEndTime() };
-
-            gui.addProgram(data);
-        }
-
-        channels = channelsTemp;
-    }
-
-    /***
-     * A mouse listener for the list of channels in the gui.
-     * Updates the table of programs to the programs from the
-     * selected channel.
-     */
-    class ListListener extends MouseAdapter {
-        @Override
-        public void mouseClicked(MouseEvent e) {
-            if(e.getClickCount() == 2) {
-                Channel c = gui.getSelectedChannel();
-
-                //If programs could not be found for the channel.
-                if(c.getId() == 0) {
-                    gui.displayError("Kunde ej hitta programtablå för "
-                            + "denna kanal");
-                }
-
-                gui.clearTable();
-
-                //Add programs to table.
-                for(Program p : c.getPrograms()) {
-                    String[] data = { p.getName(), p.getStartTime(),
-                            p.getEndTime() };
-
-                    gui.addProgram(data);
-                }
-
-                //Set the new currently displayed channel.
-                for(Channel channel : channels) {
-                    if(c.getId() == channel.getId()) {
-                        currentChannel = channels.indexOf(channel);
-                    }
-                }
-
-                gui.setTitle(c.getName());
-                gui.closeChannelSelect();
-            }
-        }
-    }
-
-    /***
-     * The mouse listener for the table of programs. Opens
-     * a new window with information about the selected program.
-     */
-    class TableListener extends MouseAdapter {
-        @Override
-        public void mouseClicked(MouseEvent e) {
-            if(e.getClickCount() == 2) {
-                for(Program p : channels.get(currentChannel).getPrograms()) {
-                    if(gui.getSelectedProgram().equals(p.getName())) {
-                        try {
-                            BufferedImage img =
-                                    ImageIO.read(new URL(p.getImage()));
-                            gui.setImage(img);
-                        } catch (IOException ex) {
-                            gui.setImage(defaultImage);
-                        }
-
-                        gui.setProgramInfo(p.getDescription(),
-                                p.getStartTime(), p.getEndTime());
-                        gui.setProgramName(p.getName());
-
-                        gui.openSelectedProgram(
-                                channels.get(currentChannel).getName());
-
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
-    /***
-     * Action listener for the update button in the menu in the gui.
-     * Loads in the table again.
-     */
-    class UpdateListener implements ActionListener {
-        @Override
-        public void actionPerformed(ActionEvent e) {
-            if(updating.compareAndSet(false, true)) {
-                initializeParser();
-
-                clearUI();
-                loadChannels();
-            }
-        }
-    }
-}
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+
+/***
+ * Controller handles interaction between GUI and TableLoader for RadioInfo.
+ *
+ * @author Leo Juneblad
+ * @version 1.0
+ */
+public class TableController {
+
+    //Start with -Dradioinfo.paginated=true to download the xml files
+    //page by page instead of as single documents.
+    private static final boolean PAGINATED =
+            Boolean.getBoolean("radioinfo.paginated");
+
+    //Start with -Dradioinfo.compact=true to store the schedules in
+    //columns with shared strings instead of as lists of programs.
+    private static final boolean COMPACT =
+            Boolean.getBoolean("radioinfo.compact");
+
+    //Start with -Dradioinfo.prefetchLead=<minutes> to change how long
+    //before the hourly refresh its schedules are loaded, 0 turns it off.
+    private static final int PREFETCH_LEAD =
+            Integer.getInteger("radioinfo.prefetchLead", 5) * 60 * 1000;
+
+    //Start with -Dradioinfo.lean=true to keep only the titles, times and
+    //episodes of the programs, their descriptions and images are loaded
+    //when opened. The descriptions are then not searched, matched by the
+    //watchlist or exported. The archive keeps the descriptions it already
+    //has of the programs.
+    private static final boolean LEAN =
+            Boolean.getBoolean("radioinfo.lean");
+
+    //3600 seconds per hour * 1000 ms per second
+    private static final int HOUR = 1000 * 3600;
+
+    private RadioInfoView gui;
+    private ResponseCache responseCache;
+    private ScheduleWindow window;
+    private SegmentCache segments;
+    private StringPool stringPool;
+    private Clock clock;
+
+    private BufferedImage defaultImage;
+    private CopyOnWriteArrayList<Channel> channels;
+    private ScheduleIndex index;
+    private NowNextTicker ticker;
+    private SearchIndex searchIndex;
+    private ScheduleArchive archive;
+    private Watchlist watchlist;
+    private EdtDispatcher dispatcher;
+    private ProgramDetails details;
+    private volatile TableLoader detailLoader;
+
+    private int currentChannel;
+
+    private volatile RefreshWorker worker;
+    private PrefetchWorker prefetch;
+    private CopyOnWriteArrayList<ActionListener> refreshListeners;
+
+
+    /***
+     * Constructor initializes objects. Nothing is loaded on the EDT, the
+     * default image and the schedules are loaded in the background.
+     *
+     * @param gui The gui class for the program.
+     */
+    public TableController(RadioInfoView gui) {
+        this(gui, Clock.systemUTC());
+    }
+
+    /***
+     * Constructor with the clock that the schedule window is placed and
+     * the cached segments are aged by, so that days of refreshes can be
+     * simulated.
+     *
+     * @param gui The gui class for the program.
+     * @param clock The clock.
+     */
+    TableController(RadioInfoView gui, Clock clock) {
+        this.clock = clock;
+        refreshListeners = new CopyOnWriteArrayList<>();
+
+        this.gui = gui;
+
+        channels = new CopyOnWriteArrayList<>();
+        currentChannel = 0;
+
+        responseCache = new ResponseCache();
+        window = ScheduleWindow.fromProperties();
+        segments = SegmentCache.fromProperties();
+        stringPool = COMPACT ? new StringPool() : null;
+        dispatcher = EdtDispatcher.fromProperties();
+        ticker = new NowNextTicker(gui, dispatcher);
+        searchIndex = new SearchIndex();
+        archive = ScheduleArchive.fromProperties();
+        watchlist = Watchlist.fromProperties();
+        details = ProgramDetails.fromProperties();
+
+        loadDefaultImage();
+
+        gui.addChannelSelectListener(new ListListener());
+        gui.addProgramSelectListener(new TableListener());
+        gui.addUpdateListener(new UpdateListener());
+        gui.addExportListener(new ExportListener());
+        gui.addWatchlistListener(new WatchlistListener());
+        gui.addOverviewListener(new OverviewListener());
+        gui.addSearchListener(new SearchListener());
+
+        scheduleUpdates();
+    }
+
+    /***
+     * Loads the image shown for programs without an image in the
+     * background, since ImageIO takes long to load the first time.
+     */
+    private void loadDefaultImage() {
+        new SwingWorker<BufferedImage, Void>() {
+            @Override
+            protected BufferedImage doInBackground() throws IOException {
+                return ImageIO.read(TableController.class.getResource(
+                        "black.jpg"));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    defaultImage = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    gui.displayError("Kunde ej ladda in default bild för "
+                            + "programmen");
+                }
+            }
+        }.execute();
+    }
+
+    /***
+     * Creates the TableLoader, and the sources it is combined with if
+     * any are set with radioinfo.sources. Called by the refresh worker so
+     * that the parsers and the connection are set up off the EDT.
+     *
+     * @return The source to load from.
+     * @throws IOException If the api cannot be reached.
+     */
+    private ScheduleSource initializeParser() throws IOException {
+        TableLoader parser;
+        try {
+            parser = new TableLoader(PAGINATED, responseCache, window,
+                    segments);
+            parser.setStringPool(stringPool);
+            parser.setLean(LEAN);
+            parser.setClock(clock);
+        } catch (MalformedURLException e) {
+            throw new IOException("Kunde ej ansluta till SRs api", e);
+        }
+
+        ScheduleSource source = ScheduleAggregator.fromProperties(parser,
+                window);
+
+        //Other sources can be used when the api cannot be reached.
+        if(source == parser) {
+            try {
+                parser.checkConnection();
+            } catch (IOException e) {
+                throw new IOException("Ingen anslutning", e);
+            }
+        }
+
+        return source;
+    }
+
+    /***
+     * Get the cache of responses read by the table loaders, which keeps
+     * count of how many parses it has saved.
+     *
+     * @return The response cache.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /***
+     * Sets a schedule to update the table of programs every hour.
+     */
+    public void scheduleUpdates() {
+        Timer timer = new Timer(HOUR, e -> scheduledRefresh());
+        timer.setInitialDelay(0);
+        timer.setRepeats(true);
+        timer.start();
+    }
+
+    /***
+     * Starts the hourly refresh and sets the prefetch of the next one.
+     * If the schedules of this refresh have been prefetched they are
+     * shown at once instead of being loaded. Called on the EDT.
+     */
+    void scheduledRefresh() {
+        PrefetchWorker ready = prefetch;
+        prefetch = null;
+
+        refresh(ready == null ? null
+                : ready.take(clock.millis()));
+
+        if(PREFETCH_LEAD > 0) {
+            long at = clock.millis() + HOUR;
+
+            Timer timer = new Timer(Math.max(0, HOUR - PREFETCH_LEAD),
+                    e -> prefetch(at));
+            timer.setRepeats(false);
+            timer.start();
+        }
+    }
+
+    /***
+     * Starts loading the schedules of a coming refresh in the background,
+     * with the schedule window placed around the time of the refresh.
+     * They are shown by the next scheduled refresh. Called on the EDT.
+     *
+     * @param at The time of the refresh in milliseconds since the epoch.
+     * @return The worker loading the schedules.
+     */
+    PrefetchWorker prefetch(long at) {
+        if(prefetch != null) {
+            prefetch.cancelLoading();
+        }
+
+        prefetch = new PrefetchWorker(at);
+        prefetch.execute();
+
+        return prefetch;
+    }
+
+    /***
+     * Starts loading the channels and programs again. A refresh that is
+     * still running is cancelled and replaced by the new one. Must be
+     * called on the EDT.
+     */
+    public void refresh() {
+        refresh(null);
+    }
+
+    /***
+     * Starts a refresh, which replaces a running one. Called on the EDT.
+     *
+     * @param prefetched The channels and programs of the refresh if they
+     *                   have been prefetched, otherwise null.
+     * @return The worker of the refresh.
+     */
+    RefreshWorker refresh(List<Channel> prefetched) {
+        long start = System.nanoTime();
+
+        //The newer refresh replaces the running one. It is replaced
+        //before it is cancelled, since a worker cancelled on the EDT is
+        //done at once.
+        RefreshWorker replaced = worker;
+        worker = null;
+        if(replaced != null) {
+            replaced.cancelLoading();
+        }
+
+        //The ui is not cleared so that the current values are
+        //shown until they are replaced by the new ones.
+        RefreshWorker started = new RefreshWorker(start, prefetched);
+        worker = started;
+        started.execute();
+
+        return started;
+    }
+
+    /***
+     * Cancels the running refresh, if any. Its downloads and parses are
+     * stopped at once and the values shown are kept. May be called from
+     * any thread.
+     */
+    public void cancelRefresh() {
+        RefreshWorker running = worker;
+
+        if(running != null) {
+            running.cancelLoading();
+        }
+    }
+
+    /***
+     * Stops the background work of the controller when the program
+     * exits. The running refresh is cancelled and the ticker of the now
+     * and next overview is stopped. May be called from any thread.
+     */
+    public void shutdown() {
+        cancelRefresh();
+        ticker.stop();
+    }
+
+    /***
+     * Adds a listener that is called on the EDT when an update has
+     * finished. The action command of the event is "loaded" if the
+     * channels were loaded, "cancelled" if the update was cancelled with
+     * cancelRefresh and "failed" otherwise. Updates that are replaced by a
+     * newer one are not reported.
+     *
+     * @param listener The listener to be added.
+     */
+    public void addRefreshListener(ActionListener listener) {
+        refreshListeners.add(listener);
+    }
+
+    /***
+     * Tells the refresh listeners that an update has finished.
+     *
+     * @param outcome Either loaded, cancelled or failed.
+     * @param start The start of the update from System.nanoTime.
+     * @param event The event of the update, null if it was cancelled
+     *              before it started.
+     */
+    private void refreshFinished(String outcome, long start,
+                                 RadioInfoEvents.Refresh event) {
+        RadioInfoMetrics.get().recordRefresh(System.nanoTime() - start,
+                outcome.equals("loaded"));
+
+        if(event != null && event.shouldCommit()) {
+            event.channels = channels.size();
+            event.outcome = outcome;
+            event.commit();
+        }
+
+        ActionEvent action = new ActionEvent(this,
+                ActionEvent.ACTION_PERFORMED, outcome);
+
+        for(ActionListener listener : refreshListeners) {
+            listener.actionPerformed(action);
+        }
+    }
+
+    /***
+     * Clears the values displayed in the gui and the list of channels.
+     */
+    public void clearUI() {
+        gui.clearList();
+        gui.clearTable();
+        channels.clear();
+    }
+
+    /***
+     * Loads the channels and programs to be shown in the gui. Loading is
+     * done using a swingworker so that the gui continues to be responsive
+     * as loading is done. The worker can be cancelled, which also cancels
+     * its schedule source.
+     */
+    class RefreshWorker
+            extends SwingWorker<CopyOnWriteArrayList<Channel>, Integer> {
+
+        private volatile ScheduleSource loader;
+        private long start;
+        private List<Channel> prefetched;
+        private volatile RadioInfoEvents.Refresh event;
+        private Watchlist.Update matches;
+        private ArrayList<Channel> listed = new ArrayList<>();
+
+        /***
+         * Constructor, loading is started with execute.
+         *
+         * @param start The start of the update from System.nanoTime.
+         * @param prefetched The channels and programs if they have been
+         *                   prefetched, otherwise null.
+         */
+        RefreshWorker(long start, List<Channel> prefetched) {
+            this.start = start;
+            this.prefetched = prefetched;
+        }
+
+        /***
+         * Stops the worker and the downloads and parses of its loader.
+         */
+        void cancelLoading() {
+            cancel(true);
+
+            ScheduleSource running = loader;
+            if(running != null) {
+                running.cancel();
+            }
+        }
+
+        @Override
+        protected CopyOnWriteArrayList<Channel> doInBackground()
+                throws Exception {
+
+            //The event is created here since the first event starts the
+            //flight recorder, which would hold the EDT at startup.
+            RadioInfoEvents.Refresh created = new RadioInfoEvents.Refresh();
+            created.begin();
+            if(created.isEnabled()) {
+                created.source = prefetched == null ? "gui" : "prefetch";
+            }
+            event = created;
+
+            //Load all channels and programs, unless they were prefetched.
+            List<Channel> loaded = prefetched;
+            if(loaded == null) {
+                loader = initializeParser();
+
+                //Cancelled while the source was created.
+                if(isCancelled()) {
+                    loader.cancel();
+                }
+
+                loaded = loader.fetchChannels();
+            }
+
+            for(Channel c : loaded) {
+                int id = c.getId();
+                List<Program> programs = prefetched == null
+                        ? loader.fetchPrograms(id, clock.millis())
+                        : c.getPrograms();
+
+                //Mark the channel if no programs were found.
+                if(programs == null) {
+                    c.setId(0);
+                }
+                else {
+                    c.setPrograms(programs);
+                    StartupTimeline.mark("firstData");
+                }
+
+                //Only the latest state of each channel is drawn.
+                dispatcher.post(id, () -> showLoaded(id, c));
+
+                //Update the search index channel by channel.
+                searchIndex.updateChannel(id, c);
+
+                archive(id, c);
+            }
+
+            //All programs are matched against the watchlist in one pass.
+            //The matches are kept as reported once they are shown by done.
+            matches = watchlist.match(loaded);
+
+            return new CopyOnWriteArrayList<>(loaded);
+        }
+
+        /***
+         * Shows a channel as soon as it has been loaded, before the
+         * refresh is done. Before the first refresh is shown the channels
+         * are listed one by one, after that only the programs of the
+         * current channel are replaced. Called on the EDT by the
+         * dispatcher.
+         *
+         * @param id The id of the channel.
+         * @param c The loaded channel.
+         */
+        private void showLoaded(int id, Channel c) {
+            //Refreshes that are done or replaced are shown by done.
+            if(worker != this) {
+                return;
+            }
+
+            if(channels.isEmpty()) {
+                //A replaced first refresh may have listed channels.
+                if(listed.isEmpty()) {
+                    gui.clearList();
+                }
+
+                gui.addChannelToList(c);
+                listed.add(c);
+                if(listed.size() - 1 == currentChannel) {
+                    gui.setPrograms(programsOf(c));
+                }
+            }
+            else if(id == channels.get(currentChannel).getId()) {
+                gui.setPrograms(programsOf(c));
+            }
+        }
+
+        @Override
+        protected void done() {
+            //A replaced worker leaves the ui to the one replacing it.
+            if(worker != this) {
+                RadioInfoEvents.Refresh replaced = event;
+                if(replaced != null && replaced.shouldCommit()) {
+                    replaced.outcome = "replaced";
+                    replaced.commit();
+                }
+                return;
+            }
+
+            worker = null;
+
+            if(isCancelled()) {
+                clearPartialList();
+                refreshFinished("cancelled", start, event);
+                return;
+            }
+
+            try {
+                displayValues(get());
+                watchlist.report(matches);
+                showMatches(matches.getMatches());
+                refreshFinished("loaded", start, event);
+                StartupTimeline.mark("fullyLoaded");
+            } catch (InterruptedException | ExecutionException e) {
+                clearPartialList();
+                gui.displayError("Kunde ej ladda in kanaler på "
+                        + "grund av: " + e.getCause().getMessage());
+                refreshFinished("failed", start, event);
+            }
+        }
+
+        /***
+         * Removes the channels listed by a first refresh that did not
+         * finish, since there are no loaded channels behind them.
+         */
+        private void clearPartialList() {
+            if(channels.isEmpty()) {
+                gui.clearList();
+                gui.clearTable();
+                listed.clear();
+            }
+        }
+    }
+
+    /***
+     * Loads the channels and programs of a coming refresh, with the
+     * schedule window placed around the time of the refresh. Nothing is
+     * shown or indexed until the refresh takes them. The programs of a
+     * channel are left as null if none were found.
+     */
+    class PrefetchWorker extends SwingWorker<List<Channel>, Void> {
+
+        private volatile ScheduleSource loader;
+        private long at;
+
+        /***
+         * Constructor, loading is started with execute.
+         *
+         * @param at The time of the refresh in milliseconds since the
+         *           epoch.
+         */
+        PrefetchWorker(long at) {
+            this.at = at;
+        }
+
+        /***
+         * Stops the worker and the downloads and parses of its loader.
+         */
+        void cancelLoading() {
+            cancel(true);
+
+            ScheduleSource running = loader;
+            if(running != null) {
+                running.cancel();
+            }
+        }
+
+        /***
+         * Gets the prefetched channels for a refresh. They are only used
+         * if they have been loaded and the refresh is close to the time
+         * they were loaded for, otherwise the prefetch is cancelled.
+         *
+         * @param now The time of the refresh in milliseconds since the
+         *            epoch.
+         * @return The channels, or null if they can not be used.
+         */
+        List<Channel> take(long now) {
+            if(isDone() && !isCancelled()
+                    && Math.abs(now - at) <= PREFETCH_LEAD) {
+                try {
+                    return get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Kunde ej förhämta tablåerna: "
+                            + e.getCause().getMessage());
+                    return null;
+                }
+            }
+
+            cancelLoading();
+            return null;
+        }
+
+        @Override
+        protected List<Channel> doInBackground() throws Exception {
+            loader = initializeParser();
+
+            //Cancelled while the source was created.
+            if(isCancelled()) {
+                loader.cancel();
+            }
+
+            List<Channel> loaded = loader.fetchChannels();
+            for(Channel c : loaded) {
+                c.setPrograms(loader.fetchPrograms(c.getId(), at));
+            }
+
+            return loaded;
+        }
+    }
+
+    /***
+     * Shows programs that newly matched the watchlist, if there are any.
+     *
+     * @param matches The new matches.
+     */
+    private void showMatches(List<Watchlist.Match> matches) {
+        if(matches.isEmpty()) {
+            return;
+        }
+
+        ArrayList<String[]> rows = new ArrayList<>();
+        for(Watchlist.Match match : matches) {
+            Program p = match.getProgram();
+
+            rows.add(new String[] { match.getChannel().getName(),
+                    p.getName(), p.getStartTime(), match.getPattern() });
+        }
+
+        gui.showWatchlistMatches(rows);
+    }
+
+    /***
+     * Appends the loaded programs of a channel to the archive, if the
+     * schedules are archived. A failing archive does not stop the update.
+     *
+     * @param id The id of the channel.
+     * @param channel The channel with its loaded programs.
+     */
+    private void archive(int id, Channel channel) {
+        if(archive == null || channel.getPrograms() == null) {
+            return;
+        }
+
+        try {
+            archive.setName(id, channel.getName());
+            archive.append(id, channel.getPrograms());
+        } catch (IOException e) {
+            System.err.println("Kunde ej arkivera tablån för kanal " + id
+                    + ": " + e.getMessage());
+        }
+    }
+
+    /***
+     * Adds the given list of channels to the gui and
+     * displays the programs of the current channel.
+     *
+     * @param channelsTemp The list of channels to be added to the gui.
+     */
+    private void displayValues(CopyOnWriteArrayList<Channel> channelsTemp) {
+        long start = System.nanoTime();
+        RadioInfoEvents.EdtUpdate event = new RadioInfoEvents.EdtUpdate();
+        event.begin();
+
+        //The list is updated in place so that its selection is kept.
+        gui.setChannels(channelsTemp);
+
+        //Only the changed rows of the current channel are updated.
+        List<Program> programs = programsOf(channelsTemp.get(currentChannel));
+        gui.setPrograms(programs);
+
+        RadioInfoEvents.Publish publish = new RadioInfoEvents.Publish();
+        publish.begin();
+        channels = channelsTemp;
+        index = new ScheduleIndex(channelsTemp);
+        ticker.setIndex(index);
+        if(publish.shouldCommit()) {
+            publish.source = "gui";
+            publish.channels = channelsTemp.size();
+            publish.commit();
+        }
+
+        RadioInfoMetrics.get().recordEdtUpdate(System.nanoTime() - start);
+        if(event.shouldCommit()) {
+            event.kind = "refresh";
+            event.rows = programs.size();
+            event.commit();
+        }
+    }
+
+    /***
+     * Gets the programs of a channel.
+     *
+     * @param channel The channel.
+     * @return The programs, or an empty list if none could be loaded.
+     */
+    private static List<Program> programsOf(Channel channel) {
+        if(channel.getPrograms() == null) {
+            return List.of();
+        }
+
+        return channel.getPrograms();
+    }
+
+    /***
+     * Finds the position of a channel in a list of channels.
+     *
+     * @param channels The channels to search.
+     * @param id The id of the channel.
+     * @return The position of the last channel with the id, or -1 if
+     * there is none.
+     */
+    static int indexOfChannel(List<Channel> channels, int id) {
+        int found = -1;
+
+        for(Channel channel : channels) {
+            if(id == channel.getId()) {
+                found = channels.indexOf(channel);
+            }
+        }
+
+        return found;
+    }
+
+    /***
+     * A mouse listener for the list of channels in the gui.
+     * Updates the table of programs to the programs from the
+     * selected channel.
+     */
+    class ListListener extends MouseAdapter {
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            if(e.getClickCount() == 2) {
+                Channel c = gui.getSelectedChannel();
+
+                //If programs could not be found for the channel.
+                if(c.getId() == 0) {
+                    gui.displayError("Kunde ej hitta programtablå för "
+                            + "denna kanal");
+                }
+
+                //Add programs to table.
+                long start = System.nanoTime();
+                RadioInfoEvents.EdtUpdate event =
+                        new RadioInfoEvents.EdtUpdate();
+                event.begin();
+                gui.setPrograms(programsOf(c));
+                RadioInfoMetrics.get().recordEdtUpdate(
+                        System.nanoTime() - start);
+                if(event.shouldCommit()) {
+                    event.kind = "channel";
+                    event.rows = programsOf(c).size();
+                    event.commit();
+                }
+
+                //Set the new currently displayed channel. Before the first
+                //refresh is shown only the channels listed so far can be
+                //selected.
+                List<Channel> shown = channels;
+                RefreshWorker running = worker;
+                if(shown.isEmpty() && running != null) {
+                    shown = running.listed;
+                }
+
+                int found = indexOfChannel(shown, c.getId());
+                if(found != -1) {
+                    currentChannel = found;
+                }
+
+                gui.setTitle(c.getName());
+                gui.closeChannelSelect();
+            }
+        }
+    }
+
+    /***
+     * Opens a window with information about a program. The details of
+     * programs opened before are shown at once, others are loaded in the
+     * background first since their image, and in the lean mode their
+     * description, must be downloaded.
+     *
+     * @param p The program.
+     * @param channelName The name of the channel of the program.
+     */
+    private void openProgram(Program p, String channelName) {
+        ProgramDetails.Detail cached = details.getCached(p);
+        if(cached != null) {
+            showProgram(p, channelName, cached);
+            return;
+        }
+
+        new SwingWorker<ProgramDetails.Detail, Void>() {
+            @Override
+            protected ProgramDetails.Detail doInBackground()
+                    throws Exception {
+                TableLoader loader = detailLoader;
+                if(loader == null) {
+                    loader = new TableLoader(PAGINATED, responseCache,
+                            window, segments);
+                    detailLoader = loader;
+                }
+
+                return details.load(p, loader);
+            }
+
+            @Override
+            protected void done() {
+                ProgramDetails.Detail detail;
+                try {
+                    detail = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    //Show what the schedule has of the program.
+                    detail = new ProgramDetails.Detail(p.getDescription(),
+                            null);
+                }
+
+                showProgram(p, channelName, detail);
+            }
+        }.execute();
+    }
+
+    /***
+     * Shows a program with its details in the window for programs.
+     *
+     * @param p The program.
+     * @param channelName The name of the channel of the program.
+     * @param detail The description and image of the program.
+     */
+    private void showProgram(Program p, String channelName,
+                             ProgramDetails.Detail detail) {
+        BufferedImage image = detail.getImage();
+        gui.setImage(image != null ? image : defaultImage);
+
+        gui.setProgramInfo(detail.getDescription(), p.getStartTime(),
+                p.getEndTime());
+        gui.setProgramName(p.getName());
+
+        gui.openSelectedProgram(channelName);
+    }
+
+    /***
+     * The mouse listener for the table of programs. Opens
+     * a new window with information about the selected program.
+     */
+    class TableListener extends MouseAdapter {
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            Program p = gui.getSelectedProgram();
+
+            if(e.getClickCount() == 2 && p != null) {
+                openProgram(p, channels.get(currentChannel).getName());
+            }
+        }
+    }
+
+    /***
+     * Action listener for the now and next button in the menu in the gui.
+     * Shows what is on every channel right now and what comes after. The
+     * rows are kept current by the ticker.
+     */
+    class OverviewListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            if(index == null) {
+                gui.displayError("Inga kanaler har laddats in än");
+                return;
+            }
+
+            gui.openOverview();
+        }
+    }
+
+    /***
+     * Action listener for the search field in the gui. Shows the programs
+     * of all channels matching the entered words.
+     */
+    class SearchListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            ArrayList<String[]> rows = new ArrayList<>();
+
+            for(SearchIndex.Hit hit : searchIndex.search(gui.getSearchText())) {
+                Program p = hit.getProgram();
+
+                rows.add(new String[] { hit.getChannel().getName(),
+                        p.getName(), p.getStartTime(), p.getEndTime() });
+            }
+
+            gui.setSearchResults(rows);
+        }
+    }
+
+    /***
+     * Action listener for the export button in the menu in the gui.
+     * Writes the programs of the chosen channels and days to the chosen
+     * file. Only the dialogs are shown on the EDT. The days are loaded
+     * from the api through the caches of the refreshes and the file is
+     * opened and written in the background, so that the gui is not held up
+     * by a large export or a slow disk.
+     */
+    class ExportListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            if(channels.isEmpty()) {
+                gui.displayError("Inga kanaler har laddats in än");
+                return;
+            }
+
+            ScheduleExport.Selection selection = gui.chooseExport(
+                    new ArrayList<>(channels));
+            if(selection == null) {
+                return;
+            }
+            if(selection.getDays() == 0
+                    || selection.getDays() > ScheduleExport.MAX_DAYS) {
+                gui.displayError("Välj mellan 1 och "
+                        + ScheduleExport.MAX_DAYS + " dagar");
+                return;
+            }
+
+            File file = gui.chooseExportFile();
+            if(file == null) {
+                return;
+            }
+
+            new SwingWorker<Long, Void>() {
+                @Override
+                protected Long doInBackground() throws IOException {
+                    return export(selection, file);
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        gui.displayError("Exporterade " + get()
+                                + " program till " + file.getName());
+                    } catch (ExecutionException ex) {
+                        gui.displayError("Kunde ej exportera till "
+                                + file.getName() + ": "
+                                + ex.getCause().getMessage());
+                    } catch (InterruptedException ex) {
+                        gui.displayError("Kunde ej exportera till "
+                                + file.getName());
+                    }
+                }
+            }.execute();
+        }
+
+        /***
+         * Writes the export to a file next to the chosen one, which
+         * replaces it when the export is done, so that a failed export
+         * does not leave half a file behind. Called in the background.
+         *
+         * @param selection The channels and days to export.
+         * @param file The chosen file, whose ending gives the format.
+         * @return The number of exported programs.
+         * @throws IOException If the format is unknown, or the file could
+         * not be written.
+         */
+        private long export(ScheduleExport.Selection selection, File file)
+                throws IOException {
+            ScheduleExport.Format format =
+                    ScheduleExport.Format.of(file.getName());
+            if(format == null) {
+                throw new IOException("Välj en fil som slutar på .ics, "
+                        + ".csv eller .json");
+            }
+
+            TableLoader loader = new TableLoader(PAGINATED, responseCache,
+                    window, segments);
+            loader.setStringPool(stringPool);
+            loader.setLean(LEAN);
+
+            Path target = file.toPath();
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            long count;
+            try (Writer out = Files.newBufferedWriter(temp,
+                    StandardCharsets.UTF_8)) {
+                count = ScheduleExport.export(out, format,
+                        selection.getChannels(), selection.getFrom(),
+                        selection.getTo(), ScheduleExport.days(loader));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+
+            return count;
+        }
+    }
+
+    /***
+     * Action listener for the watchlist button in the menu in the gui.
+     * Lets the user edit the watched words, and matches the loaded
+     * programs against the new words at once instead of at the next
+     * refresh.
+     */
+    class WatchlistListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            List<String> patterns = gui.editWatchlist(
+                    watchlist.getPatterns());
+            if(patterns == null) {
+                return;
+            }
+
+            try {
+                watchlist.setPatterns(patterns);
+            } catch (IOException ex) {
+                gui.displayError("Kunde ej spara bevakningarna: "
+                        + ex.getMessage());
+            }
+
+            ArrayList<Channel> matched = new ArrayList<>(channels);
+
+            new SwingWorker<Watchlist.Update, Void>() {
+                @Override
+                protected Watchlist.Update doInBackground() {
+                    return watchlist.match(matched);
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        Watchlist.Update update = get();
+                        watchlist.report(update);
+                        showMatches(update.getMatches());
+                    } catch (InterruptedException | ExecutionException ex) {
+                        gui.displayError("Kunde ej matcha bevakningarna");
+                    }
+                }
+            }.execute();
+        }
+    }
+
+    /***
+     * Action listener for the update button in the menu in the gui.
+     * Loads in the table again.
+     */
+    class UpdateListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            refresh();
+        }
+    }
+}
@@ -1,157 +1,739 @@
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
-import java.sql.Time;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.util.ArrayList;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
-
-/***
- * Loads and parses the xml files containing the channels and
- * programs from SverigesRadio. Parsing is done with SAXParser using
- * ChannelHandler and ProgramHandler for the two different xml files.
- *
- * @author Leo Juneblad (c19lsd)
- * @version 1.0
- */
-public class TableLoader {
-
-    private URL source;
-    private String channelId;
-
-    private CopyOnWriteArrayList<Channel> channels;
-
-    private ChannelHandler channelHandler;
-    private ProgramHandler programHandler;
-
-    private String day1;
-    private String day2;
-
-
-    /***
-     * Constructor, initializes variables and objects.
-     *
-     * @throws MalformedURLException If there is a problem with the url.
-     */
-    public TableLoader() throws MalformedURLException {
-        source = new URL("http://api.sr.se/api/v2/channels?pagination=false");
-
-        channels = new CopyOnWriteArrayList<>();
-
-        channelHandler = new ChannelHandler();
-        programHandler = new ProgramHandler();
-    }
-
-    /***
-     * Check if the system is connected to the internet.
-     *
-     * @throws IOException If a connection is not established.
-     */
-    public void checkConnection() throws IOException {
-        URLConnection connection = source.openConnection();
-        connection.connect();
-    }
-
-    /***
-     * Parses the xml file of programs of the given channel id.
-     *
-     * @param id The channel to get programs from.
-     * @throws ParserConfigurationException If a parser cannot be created.
-     * @throws SAXException
-     * @throws IOException
-     */
-    public synchronized void loadPrograms(int id)
-            throws ParserConfigurationException, SAXException, IOException {
-        boolean found = true;
-
-        channelId = Integer.toString(id);
-        findDays();
-
-        source = new URL("http://api.sr.se/api/v2/"
-                + "scheduledepisodes?pagination=false&channelid="
-                + channelId + "&fromdate=" + day1 + "&todate=" + day2);
-
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser saxParser = factory.newSAXParser();
-        try {
-            saxParser.parse(new InputSource(source.openStream()),
-                    programHandler);
-        } catch (FileNotFoundException e) {
-            found = false;
-        }
-
-        //Add programs to correct channels.
-        for(Channel channel : channels) {
-            if(channel.getId() == id) {
-                //Mark the channel if no programs were found.
-                if(found == false) {
-                    channel.setId(0);
-                }
-                else {
-                    channel.setPrograms(programHandler.getPrograms());
-                }
-            }
-        }
-    }
-
-    /***
-     * Find the two days covered by the 12 hours before and after
-     * the current hour, in utc time and puts the days in the
-     * variables day1 and day2.
-     */
-    private void findDays() {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-        format.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-        //Get time in UTC
-        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-
-        //Check day 12 hours before and after current time.
-        cal.add(Calendar.HOUR, -12);
-        day1 = format.format(cal.getTime());
-
-        cal.add(Calendar.HOUR, 24);
-        day2 = format.format(cal.getTime());
-    }
-
-    /***
-     * Parses the xml file containing all channels on SverigesRadio.
-     *
-     * @throws ParserConfigurationException If a parser cannot be created.
-     * @throws SAXException
-     * @throws IOException
-     */
-    public synchronized void loadChannels()
-            throws ParserConfigurationException, SAXException, IOException {
-
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser saxParser = factory.newSAXParser();
-        saxParser.parse(new InputSource(source.openStream()),
-                channelHandler);
-
-        channels = channelHandler.getChannels();
-    }
-
-    /***
-     * Get the arraylist containing all parsed channels.
-     * @return The list of channels.
-     */
-    public synchronized CopyOnWriteArrayList<Channel> getChannels() {
-        return channels;
-    }
-}
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.sql.Time;
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.List;
+import java.util.Objects;
+import java.util.Comparator;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/***
+ * Loads and parses the xml files containing the channels and
+ * programs from SverigesRadio. Parsing is done with SAXParser using
+ * ChannelHandler and ProgramHandler for the two different xml files.
+ * Used as a ScheduleSource on its own, or as one of the sources of a
+ * ScheduleAggregator.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class TableLoader implements ScheduleSource {
+
+    //Start with -Dradioinfo.api=http://host:port/api/v2/ to load the
+    //schedules from a RadioInfo daemon instead of from SverigesRadio.
+    private static final String API =
+            System.getProperty("radioinfo.api", "http://api.sr.se/api/v2/");
+
+    //Number of entries requested per page in paginated mode.
+    private static final int PAGE_SIZE = 50;
+
+    //Shared between loaders since a new loader is created every update.
+    private static final ExecutorService PAGE_POOL =
+            Executors.newFixedThreadPool(4, r -> {
+                Thread thread = new Thread(r, "TableLoader-page");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private URL source;
+    private boolean paginated;
+    private ResponseCache cache;
+    private String channelId;
+    private int loadingId;
+
+    private CopyOnWriteArrayList<Channel> channels;
+
+    private ChannelHandler channelHandler;
+    private ProgramHandler programHandler;
+
+    private ScheduleWindow window;
+    private SegmentCache segments;
+    private List<String> days;
+    private StringPool pool;
+    private boolean lean;
+    private Clock clock;
+    private RadioInfoMetrics metrics;
+
+    private volatile boolean cancelled;
+    private Set<URLConnection> connections;
+
+
+    /***
+     * Constructor, initializes variables and objects. Every xml file is
+     * downloaded as a single document.
+     *
+     * @throws MalformedURLException If there is a problem with the url.
+     */
+    public TableLoader() throws MalformedURLException {
+        this(false, new ResponseCache(), ScheduleWindow.fromProperties(),
+                SegmentCache.fromProperties());
+    }
+
+    /***
+     * Constructor, initializes variables and objects.
+     *
+     * @param paginated True if the xml files should be downloaded page by
+     *                  page, where all pages after the first are fetched
+     *                  in parallel.
+     * @param cache The cache of earlier responses, kept between loaders so
+     *              that unchanged responses are not parsed again.
+     * @param window The window of programs to load around the current time.
+     * @param segments The cache of programs per channel and day, kept
+     *                 between loaders.
+     * @throws MalformedURLException If there is a problem with the url.
+     */
+    public TableLoader(boolean paginated, ResponseCache cache,
+                       ScheduleWindow window, SegmentCache segments)
+            throws MalformedURLException {
+        this.paginated = paginated;
+        this.cache = cache;
+        this.window = window;
+        this.segments = segments;
+        source = new URL(API + "channels?pagination=false");
+
+        channels = new CopyOnWriteArrayList<>();
+
+        channelHandler = new ChannelHandler();
+        programHandler = new ProgramHandler();
+
+        clock = Clock.systemUTC();
+        metrics = RadioInfoMetrics.get();
+        connections = ConcurrentHashMap.newKeySet();
+    }
+
+    /***
+     * Sets the string pool used to store schedules compactly. Without a
+     * pool the schedules are stored as lists of programs.
+     *
+     * @param pool The string pool shared by all schedules, or null.
+     */
+    public void setStringPool(StringPool pool) {
+        this.pool = pool;
+    }
+
+    /***
+     * Sets if the schedules are loaded without the descriptions and
+     * image urls of the episodes, which are then loaded one episode at a
+     * time with fetchDetail.
+     *
+     * @param lean True to only keep the titles, times and episode ids.
+     */
+    public void setLean(boolean lean) {
+        this.lean = lean;
+        programHandler.setLean(lean);
+    }
+
+    /***
+     * Sets the clock the age of the cached segments is measured with.
+     *
+     * @param clock The clock, the system clock by default.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /***
+     * Loads the title, description and image url of a single episode.
+     *
+     * @param episodeId The id of the episode.
+     * @return The episode, or null if the api does not have it.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    public synchronized Program fetchDetail(long episodeId)
+            throws ParserConfigurationException, SAXException, IOException {
+        checkCancelled();
+        loadingId = 0;
+
+        URL url = new URL(API + "episodes/get?id=" + episodeId);
+
+        List<Program> episodes;
+        try {
+            episodes = parse(url, EpisodeHandler::new,
+                    EpisodeHandler::getEpisodes).getEntries();
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        return episodes.isEmpty() ? null : episodes.get(0);
+    }
+
+    /***
+     * Cancels all loading by this loader. Open connections are closed so
+     * that blocked reads end at once, parses stop at their next read and
+     * every later load fails with an InterruptedIOException. May be
+     * called from any thread.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+
+        for(URLConnection connection : connections) {
+            if(connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+        }
+    }
+
+    /***
+     * Checks if loading has been cancelled, either with cancel or by
+     * interrupting the loading thread.
+     *
+     * @throws InterruptedIOException If loading has been cancelled.
+     */
+    private void checkCancelled() throws InterruptedIOException {
+        if(cancelled || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Hämtningen avbröts");
+        }
+    }
+
+    /***
+     * Check if the system is connected to the internet.
+     *
+     * @throws IOException If a connection is not established.
+     */
+    public void checkConnection() throws IOException {
+        URLConnection connection = source.openConnection();
+        connection.connect();
+    }
+
+    /***
+     * Get the name of the source.
+     *
+     * @return The url of the api.
+     */
+    @Override
+    public String getName() {
+        return API;
+    }
+
+    /***
+     * Loads the channels from the api.
+     *
+     * @return The loaded channels, also kept by the loader.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    @Override
+    public synchronized List<Channel> fetchChannels()
+            throws ParserConfigurationException, SAXException, IOException {
+        loadChannels();
+
+        return channels;
+    }
+
+    /***
+     * Loads the programs of the given channel id within the schedule
+     * window and sets them on the loaded channel.
+     *
+     * @param id The channel to get programs from.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    public synchronized void loadPrograms(int id)
+            throws ParserConfigurationException, SAXException, IOException {
+        List<Program> programs = fetchPrograms(id);
+
+        //Add programs to correct channels.
+        for(Channel channel : channels) {
+            if(channel.getId() == id) {
+                //Mark the channel if no programs were found.
+                if(programs == null) {
+                    channel.setId(0);
+                }
+                else {
+                    channel.setPrograms(programs);
+                }
+            }
+        }
+    }
+
+    /***
+     * Loads the programs of the given channel id within the schedule
+     * window around the given time. The programs are kept per utc day in
+     * the segment cache, so only the days that are not cached are
+     * downloaded.
+     *
+     * @param id The channel to get programs from.
+     * @param now The time in milliseconds since the epoch that the window
+     *            is placed around.
+     * @return The programs, or null if the api has no schedule for the
+     * channel.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    @Override
+    public synchronized List<Program> fetchPrograms(int id, long now)
+            throws ParserConfigurationException, SAXException, IOException {
+        boolean found = true;
+        checkCancelled();
+
+        findDays(now);
+
+        //The age of the cached segments is that of the current time, also
+        //when the window is placed around a coming refresh.
+        long fetched = clock.millis();
+
+        ArrayList<List<Program>> segments = new ArrayList<>();
+        try {
+            for(String day : days) {
+                segments.add(fetchDay(id, day, fetched));
+            }
+        } catch (FileNotFoundException e) {
+            found = false;
+        }
+
+        List<Program> programs = mergeDays(segments);
+        programs.removeIf(p -> !window.contains(p.getStartMillis(), now));
+
+        return found ? compact(programs) : null;
+    }
+
+    /***
+     * Gets the days of the schedule window around the given time.
+     *
+     * @param now The time in milliseconds since the epoch that the window
+     *            is placed around.
+     * @return The utc days as yyyy-MM-dd strings in order.
+     */
+    public List<String> getDays(long now) {
+        return window.getDays(now);
+    }
+
+    /***
+     * Gets all programs of the given channel during one utc day, also
+     * those outside the schedule window, from the segment cache or else
+     * from the api.
+     *
+     * @param id The channel to get programs from.
+     * @param day The day as a yyyy-MM-dd string.
+     * @param now The current time in milliseconds since the epoch.
+     * @return The programs of the day.
+     * @throws FileNotFoundException If the api has no schedule for the
+     * channel.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    public synchronized List<Program> fetchDay(int id, String day, long now)
+            throws ParserConfigurationException, SAXException, IOException {
+        checkCancelled();
+
+        List<Program> segment = segments.get(id, day, now);
+        if(segment == null) {
+            channelId = Integer.toString(id);
+            loadingId = id;
+
+            segment = loadDay(day);
+            segments.put(id, day, segment, now);
+        }
+
+        return segment;
+    }
+
+    /***
+     * Merges the programs of several days. Programs that pass midnight
+     * are part of both days and are only kept once.
+     *
+     * @param days The programs of each day.
+     * @return The programs sorted by start time.
+     */
+    static List<Program> mergeDays(Iterable<List<Program>> days) {
+        ArrayList<Program> programs = new ArrayList<>();
+        for(List<Program> day : days) {
+            programs.addAll(day);
+        }
+
+        programs.sort(Comparator.comparingLong(Program::getStartMillis));
+        for(int i = programs.size() - 1; i > 0; i--) {
+            Program p = programs.get(i);
+            Program previous = programs.get(i - 1);
+
+            if(p.getStartMillis() == previous.getStartMillis()
+                    && Objects.equals(p.getName(), previous.getName())) {
+                programs.remove(i);
+            }
+        }
+
+        return programs;
+    }
+
+    /***
+     * Downloads and parses all programs of the current channel during
+     * one utc day.
+     *
+     * @param day The day as a yyyy-MM-dd string.
+     * @return The programs of the day.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    private List<Program> loadDay(String day)
+            throws ParserConfigurationException, SAXException, IOException {
+        if(paginated) {
+            return compact(loadPages("scheduledepisodes?channelid="
+                    + channelId + "&fromdate=" + day + "&todate=" + day,
+                    this::newProgramHandler,
+                    h -> compact(h.getPrograms())));
+        }
+
+        URL url = new URL(API
+                + "scheduledepisodes?pagination=false&channelid="
+                + channelId + "&fromdate=" + day + "&todate=" + day);
+
+        return parse(url, () -> programHandler,
+                h -> compact(h.getPrograms())).getEntries();
+    }
+
+    /***
+     * Creates a handler for a page of programs.
+     *
+     * @return The handler, lean if the loader is.
+     */
+    private ProgramHandler newProgramHandler() {
+        ProgramHandler handler = new ProgramHandler();
+        handler.setLean(lean);
+
+        return handler;
+    }
+
+    /***
+     * Stores the programs compactly if a string pool is set. This is done
+     * before the programs are put in the response and segment caches so
+     * that the caches do not hold on to the parsed programs.
+     *
+     * @param programs The programs to store.
+     * @return The compact schedule, or the same list if no pool is set.
+     */
+    private List<Program> compact(List<Program> programs) {
+        if(pool == null) {
+            return programs;
+        }
+
+        return CompactSchedule.of(programs, pool);
+    }
+
+    /***
+     * Find the utc days covered by the schedule window around the
+     * current time and puts them in the list of days.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     */
+    private void findDays(long now) {
+        days = window.getDays(now);
+    }
+
+    /***
+     * Parses the xml file containing all channels on SverigesRadio.
+     *
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    public synchronized void loadChannels()
+            throws ParserConfigurationException, SAXException, IOException {
+        loadingId = 0;
+
+        List<Channel> parsed;
+        if(paginated) {
+            parsed = loadPages("channels?", ChannelHandler::new,
+                    ChannelHandler::getChannels);
+        }
+        else {
+            parsed = parse(source, () -> channelHandler,
+                    ChannelHandler::getChannels).getEntries();
+        }
+
+        //The channels get their programs set after loading, so new
+        //channels are created to keep the parsed ones unchanged in the
+        //response cache.
+        channels = new CopyOnWriteArrayList<>();
+        for(Channel c : parsed) {
+            Channel channel = new Channel();
+            channel.setId(c.getId());
+            channel.setName(c.getName());
+
+            channels.add(channel);
+        }
+    }
+
+    /***
+     * Downloads and parses every page of the given api query. The first
+     * page is parsed to find the total number of pages, the remaining
+     * pages are then fetched in parallel and merged in page order.
+     *
+     * @param query The api query, without the pagination parameters.
+     * @param newHandler Creates a new handler for each page.
+     * @param results Gets the parsed entries from a handler.
+     * @return The entries of all pages in order.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    private <H extends DefaultHandler & PagedHandler, T> ArrayList<T>
+            loadPages(String query, Supplier<H> newHandler,
+                      Function<H, ? extends List<T>> results)
+            throws ParserConfigurationException, SAXException, IOException {
+
+        ResponseCache.ParsedPage<T> first =
+                parse(pageUrl(query, 1), newHandler, results);
+
+        ArrayList<Future<List<T>>> pages = new ArrayList<>();
+        for(int page = 2; page <= first.getTotalPages(); page++) {
+            URL url = pageUrl(query, page);
+            pages.add(PAGE_POOL.submit(() ->
+                    parse(url, newHandler, results).getEntries()));
+        }
+
+        ArrayList<T> entries = new ArrayList<>(first.getEntries());
+        try {
+            for(Future<List<T>> page : pages) {
+                entries.addAll(page.get());
+            }
+        } catch (InterruptedException e) {
+            pages.forEach(page -> page.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Hämtningen avbröts", e);
+        } catch (ExecutionException e) {
+            pages.forEach(page -> page.cancel(true));
+            rethrow(e.getCause());
+        }
+
+        return entries;
+    }
+
+    /***
+     * Creates the url of a single page of the given api query.
+     *
+     * @param query The api query, without the pagination parameters.
+     * @param page The number of the page, starting at 1.
+     * @return The url of the page.
+     * @throws MalformedURLException If there is a problem with the url.
+     */
+    private URL pageUrl(String query, int page)
+            throws MalformedURLException {
+        return new URL(API + query + "&page=" + page + "&size=" + PAGE_SIZE);
+    }
+
+    /***
+     * Downloads and parses the xml file at the given url. If the body is
+     * identical to the last body read from the url, the earlier result is
+     * returned from the response cache without parsing.
+     *
+     * @param url The url of the xml file.
+     * @param newHandler Gives the handler to parse the file with.
+     * @param results Gets the parsed entries from the handler.
+     * @return The parsed entries and the total number of pages.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    private <H extends DefaultHandler & PagedHandler, T>
+            ResponseCache.ParsedPage<T> parse(
+                    URL url, Supplier<H> newHandler,
+                    Function<H, ? extends List<T>> results)
+            throws ParserConfigurationException, SAXException, IOException {
+        //Pages may be loaded by other threads, so the id is read first.
+        int id = loadingId;
+
+        byte[] body = null;
+        String key = url.toString();
+        String outcome = null;
+        long fetchStart = System.nanoTime();
+        RadioInfoEvents.Fetch fetch = new RadioInfoEvents.Fetch();
+        fetch.begin();
+        URLConnection connection = url.openConnection();
+        connections.add(connection);
+        try {
+            //Checked after the connection is added, so that a cancel
+            //either sees the connection or is seen here.
+            checkCancelled();
+
+            try (InputStream in = connection.getInputStream()) {
+                body = in.readAllBytes();
+            }
+            outcome = "ok";
+        } catch (IOException e) {
+            if(cancelled) {
+                outcome = "cancelled";
+                throw new InterruptedIOException("Hämtningen avbröts");
+            }
+
+            outcome = e.getClass().getSimpleName();
+            metrics.recordFetchError();
+            throw e;
+        } finally {
+            connections.remove(connection);
+
+            if(fetch.shouldCommit()) {
+                fetch.channelId = id;
+                fetch.url = key;
+                fetch.bytes = body == null ? 0 : body.length;
+                fetch.outcome = outcome;
+                fetch.commit();
+            }
+        }
+        long fetchNanos = System.nanoTime() - fetchStart;
+        metrics.recordFetch(fetchNanos, body.length);
+        if(id != 0) {
+            metrics.recordChannelFetch(id, fetchNanos);
+        }
+
+        long hash = ResponseCache.hash(body);
+
+        RadioInfoEvents.Parse parseEvent = new RadioInfoEvents.Parse();
+        parseEvent.begin();
+
+        ResponseCache.ParsedPage<?> cached = cache.get(key, hash);
+        if(cached != null) {
+            commitParse(parseEvent, id, body.length, cached.getEntries(),
+                    "cached");
+
+            return (ResponseCache.ParsedPage<T>) cached;
+        }
+
+        long start = ResponseCache.cpuTime();
+        long parseStart = System.nanoTime();
+
+        H handler = newHandler.get();
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        SAXParser saxParser = factory.newSAXParser();
+        try {
+            saxParser.parse(new InputSource(cancellable(
+                    new ByteArrayInputStream(body))), handler);
+        } catch (InterruptedIOException e) {
+            commitParse(parseEvent, id, body.length, null, "cancelled");
+            throw e;
+        } catch (SAXException e) {
+            commitParse(parseEvent, id, body.length, null, "failed");
+            metrics.recordParseError();
+            throw e;
+        }
+        metrics.recordParse(System.nanoTime() - parseStart);
+
+        ResponseCache.ParsedPage<T> page = new ResponseCache.ParsedPage<>(
+                results.apply(handler), handler.getTotalPages());
+        cache.put(key, hash, page, ResponseCache.cpuTime() - start);
+
+        commitParse(parseEvent, id, body.length, page.getEntries(),
+                "parsed");
+
+        return page;
+    }
+
+    /***
+     * Commits a parse event, filling it in only if it is recorded.
+     *
+     * @param event The event, begun before the parse.
+     * @param id The id of the channel, 0 for the list of channels.
+     * @param bytes The size of the xml file.
+     * @param entries The parsed entries, or null if the parse failed.
+     * @param outcome Either parsed, cached, cancelled or failed.
+     */
+    private static void commitParse(RadioInfoEvents.Parse event, int id,
+                                    int bytes, List<?> entries,
+                                    String outcome) {
+        if(event.shouldCommit()) {
+            event.channelId = id;
+            event.bytes = bytes;
+            event.entries = entries == null ? 0 : entries.size();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    /***
+     * Wraps a stream so that reading from it fails once loading has been
+     * cancelled. The parser reads in blocks, so a parse stops within a
+     * block of the cancel.
+     *
+     * @param in The stream to wrap.
+     * @return The wrapped stream.
+     */
+    private InputStream cancellable(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                checkCancelled();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkCancelled();
+                return super.read(b, off, len);
+            }
+        };
+    }
+
+    /***
+     * Throws the cause of a failed page download with its original type.
+     *
+     * @param cause The exception thrown while loading the page.
+     * @throws ParserConfigurationException If a parser cannot be created.
+     * @throws SAXException
+     * @throws IOException
+     */
+    private static void rethrow(Throwable cause)
+            throws ParserConfigurationException, SAXException, IOException {
+        if(cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if(cause instanceof SAXException) {
+            throw (SAXException) cause;
+        }
+        if(cause instanceof ParserConfigurationException) {
+            throw (ParserConfigurationException) cause;
+        }
+        if(cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        throw new RuntimeException(cause);
+    }
+
+    /***
+     * Get the arraylist containing all parsed channels.
+     * @return The list of channels.
+     */
+    public synchronized CopyOnWriteArrayList<Channel> getChannels() {
+        return channels;
+    }
+}
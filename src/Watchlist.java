@@ -0,0 +1,405 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/***
+ * Words or phrases that the user follows. On every refresh the titles and
+ * descriptions of all programs are matched against all watched words at
+ * once, with an Aho-Corasick automaton, so the time of a match grows with
+ * the size of the schedules and not with the number of watched words.
+ * Only programs that did not match at the last refresh are reported. The
+ * matches of a refresh are only kept as reported once they are shown, and
+ * a channel that failed to load keeps the matches reported before.
+ *
+ * The words are matched case insensitively anywhere in the text, and are
+ * kept one per line in the file set with -Dradioinfo.watchlist, by
+ * default .radioinfo-watchlist in the home directory.
+ *
+ * @author Leo Juneblad (c19lsd)
+ * @version 1.0
+ */
+public class Watchlist {
+
+    private Path file;
+    private List<String> patterns;
+    private Automaton automaton;
+
+    //Keys of the reported matches of every channel.
+    private HashMap<Integer, HashSet<String>> reported;
+
+    /***
+     * Constructor, the watchlist is not saved.
+     *
+     * @param patterns The watched words.
+     */
+    public Watchlist(List<String> patterns) {
+        this(patterns, null);
+    }
+
+    private Watchlist(List<String> patterns, Path file) {
+        this.file = file;
+        reported = new HashMap<>();
+        setWords(patterns);
+    }
+
+    /***
+     * Reads the watchlist from the file set with radioinfo.watchlist.
+     *
+     * @return The watchlist, empty if the file does not exist or could not
+     * be read.
+     */
+    public static Watchlist fromProperties() {
+        Path file = Paths.get(System.getProperty("radioinfo.watchlist",
+                Paths.get(System.getProperty("user.home"),
+                        ".radioinfo-watchlist").toString()));
+        List<String> patterns = new ArrayList<>();
+
+        try {
+            if(Files.exists(file)) {
+                patterns = Files.readAllLines(file, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            System.err.println("Kunde ej läsa bevakningarna: "
+                    + e.getMessage());
+        }
+
+        return new Watchlist(patterns, file);
+    }
+
+    /***
+     * Get the watched words.
+     *
+     * @return The words, in the order they were added.
+     */
+    public synchronized List<String> getPatterns() {
+        return new ArrayList<>(patterns);
+    }
+
+    /***
+     * Replaces the watched words and saves them. Programs that matched
+     * before are not reported again.
+     *
+     * @param patterns The new words, blank ones are ignored.
+     * @throws IOException If the words could not be saved.
+     */
+    public synchronized void setPatterns(List<String> patterns)
+            throws IOException {
+        setWords(patterns);
+
+        if(file != null) {
+            Files.write(file, this.patterns, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void setWords(List<String> words) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        for(String word : words) {
+            if(!word.trim().isEmpty()) {
+                unique.add(word.trim());
+            }
+        }
+
+        patterns = new ArrayList<>(unique);
+        automaton = new Automaton(patterns);
+    }
+
+    /***
+     * Matches the programs of the channels against the watched words and
+     * keeps the matches as reported.
+     *
+     * @param channels The channels with their newly loaded programs.
+     * @return The matches that were not reported before.
+     */
+    public synchronized List<Match> update(List<Channel> channels) {
+        Update update = match(channels);
+        report(update);
+
+        return update.getMatches();
+    }
+
+    /***
+     * Matches the programs of the channels against the watched words,
+     * without keeping the matches as reported. Channels without programs
+     * are skipped.
+     *
+     * @param channels The channels with their newly loaded programs.
+     * @return The matches, to be passed to report once they are shown.
+     */
+    public synchronized Update match(List<Channel> channels) {
+        ArrayList<Match> found = new ArrayList<>();
+        HashMap<Integer, HashSet<String>> present = new HashMap<>();
+        int[] marks = new int[patterns.size()];
+        int[] hits = new int[patterns.size()];
+        int stamp = 0;
+
+        for(Channel channel : channels) {
+            if(channel.getPrograms() == null) {
+                continue;
+            }
+
+            HashSet<String> keys = new HashSet<>();
+            HashSet<String> before = reported.getOrDefault(channel.getId(),
+                    new HashSet<>());
+            present.put(channel.getId(), keys);
+
+            if(patterns.isEmpty()) {
+                continue;
+            }
+
+            for(Program p : channel.getPrograms()) {
+                //Marks of older programs are left behind by the stamp.
+                stamp++;
+                int count = automaton.scan(p.getName(), stamp, marks, hits,
+                        0);
+                count = automaton.scan(p.getDescription(), stamp, marks,
+                        hits, count);
+
+                for(int i = 0; i < count; i++) {
+                    String pattern = patterns.get(hits[i]);
+                    String key = p.getStartMillis() + ":"
+                            + p.getEpisodeId() + ":" + pattern;
+
+                    keys.add(key);
+                    if(!before.contains(key)) {
+                        found.add(new Match(channel, p, pattern));
+                    }
+                }
+            }
+        }
+
+        return new Update(found, present);
+    }
+
+    /***
+     * Keeps the matches of a refresh as reported, so that they are not
+     * reported again. Only the current matches of each matched channel
+     * are kept, so the sets do not grow, and channels that were not
+     * matched keep the matches reported before.
+     *
+     * @param update The matches of a refresh that have been shown.
+     */
+    public synchronized void report(Update update) {
+        reported.putAll(update.present);
+    }
+
+    /***
+     * The matches of a refresh that have not yet been reported.
+     */
+    public static class Update {
+        private List<Match> matches;
+        private HashMap<Integer, HashSet<String>> present;
+
+        private Update(List<Match> matches,
+                       HashMap<Integer, HashSet<String>> present) {
+            this.matches = matches;
+            this.present = present;
+        }
+
+        /***
+         * Get the matches that were not reported before.
+         *
+         * @return The new matches.
+         */
+        public List<Match> getMatches() {
+            return matches;
+        }
+    }
+
+    /***
+     * A program that matched a watched word.
+     */
+    public static class Match {
+        private Channel channel;
+        private Program program;
+        private String pattern;
+
+        Match(Channel channel, Program program, String pattern) {
+            this.channel = channel;
+            this.program = program;
+            this.pattern = pattern;
+        }
+
+        public Channel getChannel() {
+            return channel;
+        }
+
+        public Program getProgram() {
+            return program;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+    }
+
+    /***
+     * Aho-Corasick automaton of the watched words, built out to a full
+     * table of transitions so that every character of a text is a single
+     * lookup. Characters that are in no word share one column.
+     */
+    private static class Automaton {
+        private static final int[] NONE = new int[0];
+
+        private int[] latin;
+        private HashMap<Character, Integer> others;
+        private int width;
+        private int[] next;
+        private int[][] output;
+
+        /***
+         * Builds the automaton of the words.
+         *
+         * @param words The words, without duplicates.
+         */
+        Automaton(List<String> words) {
+            latin = new int[256];
+            others = new HashMap<>();
+            width = 1;
+
+            int states = 1;
+            for(String word : words) {
+                states += word.length();
+                for(int i = 0; i < word.length(); i++) {
+                    //Lower case per character, as in scan.
+                    char c = Character.toLowerCase(word.charAt(i));
+                    if(column(c) == 0) {
+                        if(c < 256) {
+                            latin[c] = width++;
+                        }
+                        else {
+                            others.put(c, width++);
+                        }
+                    }
+                }
+            }
+
+            next = new int[states * width];
+            Arrays.fill(next, -1);
+            output = new int[states][];
+            int[] fail = new int[states];
+
+            //The trie of the words.
+            int used = 1;
+            for(int w = 0; w < words.size(); w++) {
+                String word = words.get(w);
+                int state = 0;
+                for(int j = 0; j < word.length(); j++) {
+                    char c = Character.toLowerCase(word.charAt(j));
+                    int i = state * width + column(c);
+                    if(next[i] == -1) {
+                        next[i] = used++;
+                    }
+                    state = next[i];
+                }
+                output[state] = append(output[state], w);
+            }
+
+            //Missing transitions go where the longest suffix would go,
+            //in breadth first order so that the suffix is always done.
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for(int c = 0; c < width; c++) {
+                int child = next[c];
+                if(child == -1) {
+                    next[c] = 0;
+                }
+                else {
+                    fail[child] = 0;
+                    queue.add(child);
+                }
+            }
+
+            while(!queue.isEmpty()) {
+                int state = queue.poll();
+                output[state] = append(output[state], output[fail[state]]);
+
+                for(int c = 0; c < width; c++) {
+                    int i = state * width + c;
+                    int suffix = next[fail[state] * width + c];
+
+                    if(next[i] == -1) {
+                        next[i] = suffix;
+                    }
+                    else {
+                        fail[next[i]] = suffix;
+                        queue.add(next[i]);
+                    }
+                }
+            }
+
+            for(int s = 0; s < states; s++) {
+                if(output[s] == null) {
+                    output[s] = NONE;
+                }
+            }
+        }
+
+        /***
+         * Finds the words in a text. Every word is added to the hits once
+         * per stamp.
+         *
+         * @param text The text, may be null.
+         * @param stamp The stamp of the current program.
+         * @param marks The last stamp each word was found with.
+         * @param hits The words found for the current stamp.
+         * @param count The number of hits so far.
+         * @return The number of hits.
+         */
+        int scan(String text, int stamp, int[] marks, int[] hits,
+                 int count) {
+            if(text == null) {
+                return count;
+            }
+
+            int state = 0;
+            for(int i = 0; i < text.length(); i++) {
+                char c = Character.toLowerCase(text.charAt(i));
+                state = next[state * width + column(c)];
+
+                for(int word : output[state]) {
+                    if(marks[word] != stamp) {
+                        marks[word] = stamp;
+                        hits[count++] = word;
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        private int column(char c) {
+            if(c < 256) {
+                return latin[c];
+            }
+
+            Integer column = others.get(c);
+            return column == null ? 0 : column;
+        }
+
+        private static int[] append(int[] words, int word) {
+            return append(words, new int[] { word });
+        }
+
+        private static int[] append(int[] words, int[] more) {
+            if(more == null || more.length == 0) {
+                return words;
+            }
+            if(words == null) {
+                return more;
+            }
+
+            int[] joined = Arrays.copyOf(words, words.length + more.length);
+            System.arraycopy(more, 0, joined, words.length, more.length);
+
+            return joined;
+        }
+    }
+}